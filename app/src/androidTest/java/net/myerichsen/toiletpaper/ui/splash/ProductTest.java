@@ -20,14 +20,13 @@ import org.junit.runner.RunWith;
 
 import static androidx.test.espresso.Espresso.onView;
 import static androidx.test.espresso.action.ViewActions.click;
-import static androidx.test.espresso.action.ViewActions.scrollTo;
 import static androidx.test.espresso.assertion.ViewAssertions.matches;
+import static androidx.test.espresso.contrib.RecyclerViewActions.actionOnItemAtPosition;
+import static androidx.test.espresso.matcher.ViewMatchers.isDescendantOfA;
 import static androidx.test.espresso.matcher.ViewMatchers.isDisplayed;
-import static androidx.test.espresso.matcher.ViewMatchers.withClassName;
 import static androidx.test.espresso.matcher.ViewMatchers.withId;
 import static androidx.test.espresso.matcher.ViewMatchers.withText;
 import static org.hamcrest.Matchers.allOf;
-import static org.hamcrest.Matchers.is;
 
 @SuppressWarnings("deprecation")
 @LargeTest
@@ -42,23 +41,13 @@ public class ProductTest extends ToiletPaperTest {
         help("Oversigt over kendte produkter.");
 
         ViewInteraction textView = onView(
-                allOf(withText("Budget"),
-                        childAtPosition(
-                                childAtPosition(
-                                        IsInstanceOf.<View>instanceOf(android.widget.TableRow.class),
-                                        0),
-                                0),
+                allOf(withId(R.id.plBrand),
+                        isDescendantOfA(childAtPosition(withId(R.id.productRecyclerView), 0)),
                         isDisplayed()));
         textView.check(matches(withText("Budget")));
 
-        ViewInteraction tableRow = onView(
-                childAtPosition(
-                        allOf(withId(R.id.productTableLayout),
-                                childAtPosition(
-                                        withClassName(is("android.widget.ScrollView")),
-                                        0)),
-                        1));
-        tableRow.perform(scrollTo(), click());
+        ViewInteraction recyclerView = onView(withId(R.id.productRecyclerView));
+        recyclerView.perform(actionOnItemAtPosition(0, click()));
 
         help("Produktdetaljer.");
 
@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) 2020. Michael Erichsen.
+ *
+ * The program is distributed under the terms of the GNU Affero General Public License v3.0
+ */
+
+package net.myerichsen.toiletpaper;
+
+import android.database.sqlite.SQLiteDatabase;
+
+/**
+ * A step in the database schema migration from one version to the next.
+ * <p>
+ * Steps contain the SQL as it was when the version was released, so they must never be
+ * changed after release. A schema change is made by adding a new step to MIGRATIONS and
+ * bumping DATABASE_Version in TpDbHelper. All steps run inside the transaction that
+ * SQLiteOpenHelper opens around onUpgrade, so an upgrade either completes or leaves the
+ * database unchanged.
+ * </p>
+ */
+abstract class DbMigration {
+    /**
+     * Oldest version that can be migrated. Older databases are recreated.
+     */
+    static final int FIRST_VERSION = 5;
+
+    /**
+     * All migration steps, ordered by version
+     */
+    private static final DbMigration[] MIGRATIONS = {
+            new MigrationTo6(),
+            new MigrationTo7(),
+            new MigrationTo8(),
+            new MigrationTo9(),
+            new MigrationTo10(),
+            new MigrationTo11(),
+            new MigrationTo12(),
+            new MigrationTo13()};
+
+    private final int version;
+
+    /**
+     * Constructor
+     *
+     * @param version The version this step migrates to
+     */
+    DbMigration(int version) {
+        this.version = version;
+    }
+
+    /**
+     * Run all steps needed to migrate from oldVersion to newVersion
+     *
+     * @param db         Database
+     * @param oldVersion Current version of the database, at least FIRST_VERSION
+     * @param newVersion Target version
+     */
+    static void migrate(SQLiteDatabase db, int oldVersion, int newVersion) {
+        int current = oldVersion;
+
+        for (DbMigration migration : MIGRATIONS) {
+            if ((migration.version <= current) || (migration.version > newVersion)) {
+                continue;
+            }
+
+            if (migration.version != current + 1) {
+                throw new IllegalStateException("Ingen migrering fra version " + current +
+                        " til version " + migration.version);
+            }
+
+            migration.migrate(db);
+            current = migration.version;
+        }
+
+        if (current != newVersion) {
+            throw new IllegalStateException("Ingen migrering fra version " + current +
+                    " til version " + newVersion);
+        }
+    }
+
+    /**
+     * Rebuild a table with a new definition by copying the rows into a new table
+     * and swapping it in. Used for changes ALTER TABLE cannot make.
+     * Indexes on the table are dropped and must be recreated by the caller.
+     *
+     * @param db           Database
+     * @param table        Table name
+     * @param createSql    CREATE TABLE statement for the new table, using the table name
+     * @param targetColumns Column list of the new table to insert into
+     * @param sourceColumns Column list or expressions to select from the old table
+     */
+    static void copyAndSwap(SQLiteDatabase db, String table, String createSql,
+                            String targetColumns, String sourceColumns) {
+        String oldTable = table + "_OLD";
+        db.execSQL("ALTER TABLE " + table + " RENAME TO " + oldTable);
+        db.execSQL(createSql);
+        db.execSQL("INSERT INTO " + table + " (" + targetColumns + ") SELECT " + sourceColumns +
+                " FROM " + oldTable);
+        db.execSQL("DROP TABLE " + oldTable);
+    }
+
+    /**
+     * Migrate the database from the previous version to this version
+     *
+     * @param db Database
+     */
+    abstract void migrate(SQLiteDatabase db);
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright (c) 2020. Michael Erichsen.
+ *
+ * The program is distributed under the terms of the GNU Affero General Public License v3.0
+ */
+
+package net.myerichsen.toiletpaper;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Result of a CSV import: number of rows inserted, rows skipped as already known,
+ * and the rows that were rejected.
+ * Only the first MAX_REJECTS reject messages are kept, so the report stays small
+ * however large the imported file is.
+ */
+public class ImportReport {
+    private static final int MAX_REJECTS = 100;
+    private final List<String> rejects = new ArrayList<>();
+    private int rows = 0;
+    private int skipped = 0;
+    private int rejected = 0;
+
+    void addRow() {
+        rows++;
+    }
+
+    void addSkipped() {
+        skipped++;
+    }
+
+    void addReject(int line, String reason) {
+        rejected++;
+
+        if (rejects.size() < MAX_REJECTS) {
+            rejects.add("Linje " + line + ": " + reason);
+        }
+    }
+
+    /**
+     * @return Number of rows inserted
+     */
+    public int getRows() {
+        return rows;
+    }
+
+    /**
+     * @return Number of rows skipped because the observation was already known
+     */
+    public int getSkipped() {
+        return skipped;
+    }
+
+    /**
+     * @return Number of rows rejected
+     */
+    public int getRejected() {
+        return rejected;
+    }
+
+    /**
+     * @return The first reject messages, one per rejected line
+     */
+    public List<String> getRejects() {
+        return rejects;
+    }
+}
@@ -77,6 +77,23 @@ public class MainActivity extends AppCompatActivity implements PriceListFragment
         NavController navController = findNavController(this, R.id.nav_host_fragment);
         NavigationUI.setupActionBarWithNavController(this, navController, mAppBarConfiguration);
         NavigationUI.setupWithNavController(navigationView, navController);
+
+        // Complete the derived fields of products from older versions, if still queued
+        TPRepository.getInstance(this).update(this, new TPRepository.DbCall<Integer>() {
+            @Override
+            public Integer call(TPDbAdapter adapter) {
+                return adapter.recomputeDerivedFields();
+            }
+        }, new TPRepository.DbCallback<Integer>() {
+            @Override
+            public void onResult(Integer rows) {
+            }
+
+            @Override
+            public void onError(Exception e) {
+                e.printStackTrace();
+            }
+        });
     }
 
     @Override
@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) 2020. Michael Erichsen.
+ *
+ * The program is distributed under the terms of the GNU Affero General Public License v3.0
+ */
+
+package net.myerichsen.toiletpaper;
+
+import android.database.sqlite.SQLiteDatabase;
+
+/**
+ * Version 10: Prices as INTEGER fixed-point amounts. Package prices in øre,
+ * unit prices in hundredths of an øre.
+ */
+class MigrationTo10 extends DbMigration {
+    private static final String CREATE_PRODUCT_TABLE = "CREATE TABLE TABLE_PRODUCT " +
+            "(UID INTEGER PRIMARY KEY AUTOINCREMENT, LAYERS INTEGER, PACKAGE_ROLLS INTEGER, " +
+            "ROLL_SHEETS INTEGER, SHEET_WIDTH INTEGER, SHEET_LENGTH INTEGER, SHEET_LENGTH_C INTEGER, " +
+            "ROLL_LENGTH NUMERIC, ROLL_LENGTH_C INTEGER, PACKAGE_PRICE INTEGER, ROLL_PRICE INTEGER, " +
+            "ROLL_PRICE_C INTEGER, PAPER_WEIGHT NUMERIC, PAPER_WEIGHT_C INTEGER, PACKAGE_WEIGHT NUMERIC, " +
+            "PACKAGE_WEIGHT_C INTEGER, ROLL_WEIGHT NUMERIC, ROLL_WEIGHT_C INTEGER, KILO_PRICE INTEGER, " +
+            "KILO_PRICE_C INTEGER, METER_PRICE INTEGER, METER_PRICE_C INTEGER, SHEET_PRICE INTEGER, " +
+            "SHEET_PRICE_C INTEGER, SUPPLIER TEXT, COMMENTS TEXT, ITEM_NO TEXT, BRAND TEXT, " +
+            "TIME_STAMP TIMESTAMP DEFAULT CURRENT_TIMESTAMP)";
+    private static final String PRODUCT_COLUMNS = "UID, LAYERS, PACKAGE_ROLLS, ROLL_SHEETS, " +
+            "SHEET_WIDTH, SHEET_LENGTH, SHEET_LENGTH_C, ROLL_LENGTH, ROLL_LENGTH_C, PACKAGE_PRICE, " +
+            "ROLL_PRICE, ROLL_PRICE_C, PAPER_WEIGHT, PAPER_WEIGHT_C, PACKAGE_WEIGHT, PACKAGE_WEIGHT_C, " +
+            "ROLL_WEIGHT, ROLL_WEIGHT_C, KILO_PRICE, KILO_PRICE_C, METER_PRICE, METER_PRICE_C, " +
+            "SHEET_PRICE, SHEET_PRICE_C, SUPPLIER, COMMENTS, ITEM_NO, BRAND, TIME_STAMP";
+    private static final String PRODUCT_SOURCE = "UID, LAYERS, PACKAGE_ROLLS, ROLL_SHEETS, " +
+            "SHEET_WIDTH, SHEET_LENGTH, SHEET_LENGTH_C, ROLL_LENGTH, ROLL_LENGTH_C, " +
+            "CAST(ROUND(PACKAGE_PRICE * 100) AS INTEGER), CAST(ROUND(ROLL_PRICE * 10000) AS INTEGER), " +
+            "ROLL_PRICE_C, PAPER_WEIGHT, PAPER_WEIGHT_C, PACKAGE_WEIGHT, PACKAGE_WEIGHT_C, " +
+            "ROLL_WEIGHT, ROLL_WEIGHT_C, CAST(ROUND(KILO_PRICE * 10000) AS INTEGER), KILO_PRICE_C, " +
+            "CAST(ROUND(METER_PRICE * 10000) AS INTEGER), METER_PRICE_C, " +
+            "CAST(ROUND(SHEET_PRICE * 10000) AS INTEGER), SHEET_PRICE_C, " +
+            "SUPPLIER, COMMENTS, ITEM_NO, BRAND, TIME_STAMP";
+    private static final String CREATE_PRICE_TABLE = "CREATE TABLE TABLE_PRICE (UID INTEGER PRIMARY KEY, " +
+            "PRODUCT_UID INTEGER NOT NULL, PACKAGE_PRICE INTEGER, " +
+            "TIME_STAMP TIMESTAMP DEFAULT CURRENT_TIMESTAMP)";
+
+    MigrationTo10() {
+        super(10);
+    }
+
+    @Override
+    void migrate(SQLiteDatabase db) {
+        copyAndSwap(db, "TABLE_PRODUCT", CREATE_PRODUCT_TABLE, PRODUCT_COLUMNS, PRODUCT_SOURCE);
+        copyAndSwap(db, "TABLE_PRICE", CREATE_PRICE_TABLE, "UID, PRODUCT_UID, PACKAGE_PRICE, TIME_STAMP",
+                "UID, PRODUCT_UID, CAST(ROUND(PACKAGE_PRICE * 100) AS INTEGER), TIME_STAMP");
+
+        db.execSQL("CREATE INDEX IF NOT EXISTS INDEX_PRODUCT_KEY ON TABLE_PRODUCT (ITEM_NO, SUPPLIER)");
+        db.execSQL("CREATE INDEX IF NOT EXISTS INDEX_BRAND ON TABLE_PRODUCT (BRAND, TIME_STAMP)");
+        db.execSQL("CREATE INDEX IF NOT EXISTS INDEX_ITEM_NO_NOCASE ON TABLE_PRODUCT (ITEM_NO COLLATE NOCASE)");
+        db.execSQL("CREATE INDEX IF NOT EXISTS INDEX_BRAND_NOCASE ON TABLE_PRODUCT (BRAND COLLATE NOCASE)");
+        db.execSQL("CREATE INDEX IF NOT EXISTS INDEX_SUPPLIER_KILO_PRICE ON TABLE_PRODUCT (SUPPLIER, KILO_PRICE)");
+        db.execSQL("CREATE INDEX IF NOT EXISTS INDEX_SUPPLIER_METER_PRICE ON TABLE_PRODUCT (SUPPLIER, METER_PRICE)");
+        db.execSQL("CREATE INDEX IF NOT EXISTS INDEX_SUPPLIER_SHEET_PRICE ON TABLE_PRODUCT (SUPPLIER, SHEET_PRICE)");
+        db.execSQL("CREATE INDEX IF NOT EXISTS INDEX_SUPPLIER_PAPER_WEIGHT ON TABLE_PRODUCT (SUPPLIER, PAPER_WEIGHT)");
+        db.execSQL("CREATE INDEX IF NOT EXISTS INDEX_BRAND_UID ON TABLE_PRODUCT (BRAND, UID)");
+        db.execSQL("CREATE UNIQUE INDEX IF NOT EXISTS INDEX_PRICE_HISTORY ON TABLE_PRICE (PRODUCT_UID, TIME_STAMP)");
+    }
+}
@@ -0,0 +1,26 @@
+/*
+ * Copyright (c) 2020. Michael Erichsen.
+ *
+ * The program is distributed under the terms of the GNU Affero General Public License v3.0
+ */
+
+package net.myerichsen.toiletpaper;
+
+import android.database.sqlite.SQLiteDatabase;
+
+/**
+ * Version 11: Table of maintenance jobs. Queues the recompute of the derived fields
+ * of the existing products, which were saved before they were computed on save.
+ */
+class MigrationTo11 extends DbMigration {
+
+    MigrationTo11() {
+        super(11);
+    }
+
+    @Override
+    void migrate(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE IF NOT EXISTS TABLE_JOB (JOB TEXT PRIMARY KEY, LAST_UID INTEGER NOT NULL)");
+        db.execSQL("INSERT OR REPLACE INTO TABLE_JOB (JOB, LAST_UID) VALUES ('RECOMPUTE_DERIVED', 0)");
+    }
+}
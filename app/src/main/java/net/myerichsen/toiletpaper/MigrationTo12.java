@@ -0,0 +1,45 @@
+/*
+ * Copyright (c) 2020. Michael Erichsen.
+ *
+ * The program is distributed under the terms of the GNU Affero General Public License v3.0
+ */
+
+package net.myerichsen.toiletpaper;
+
+import android.database.sqlite.SQLiteDatabase;
+
+/**
+ * Version 12: The compare rankings are kept in partial indexes per metric, with and
+ * without the supplier, in place of the supplier and metric indexes.
+ */
+class MigrationTo12 extends DbMigration {
+    private static final String[] METRICS = {"KILO_PRICE", "METER_PRICE", "SHEET_PRICE", "PAPER_WEIGHT"};
+
+    MigrationTo12() {
+        super(12);
+    }
+
+    @Override
+    void migrate(SQLiteDatabase db) {
+        for (String metric : METRICS) {
+            db.execSQL("DROP INDEX IF EXISTS INDEX_SUPPLIER_" + metric);
+        }
+
+        db.execSQL("CREATE INDEX IF NOT EXISTS INDEX_RANK_PAPER_WEIGHT ON TABLE_PRODUCT " +
+                "(PAPER_WEIGHT DESC, UID) WHERE PAPER_WEIGHT > 0");
+        db.execSQL("CREATE INDEX IF NOT EXISTS INDEX_RANK_KILO_PRICE ON TABLE_PRODUCT " +
+                "(KILO_PRICE, UID) WHERE KILO_PRICE > 0");
+        db.execSQL("CREATE INDEX IF NOT EXISTS INDEX_RANK_METER_PRICE ON TABLE_PRODUCT " +
+                "(METER_PRICE, UID) WHERE METER_PRICE > 0");
+        db.execSQL("CREATE INDEX IF NOT EXISTS INDEX_RANK_SHEET_PRICE ON TABLE_PRODUCT " +
+                "(SHEET_PRICE, UID) WHERE SHEET_PRICE > 0");
+        db.execSQL("CREATE INDEX IF NOT EXISTS INDEX_RANK_SUPPLIER_PAPER_WEIGHT ON TABLE_PRODUCT " +
+                "(SUPPLIER, PAPER_WEIGHT DESC, UID) WHERE PAPER_WEIGHT > 0");
+        db.execSQL("CREATE INDEX IF NOT EXISTS INDEX_RANK_SUPPLIER_KILO_PRICE ON TABLE_PRODUCT " +
+                "(SUPPLIER, KILO_PRICE, UID) WHERE KILO_PRICE > 0");
+        db.execSQL("CREATE INDEX IF NOT EXISTS INDEX_RANK_SUPPLIER_METER_PRICE ON TABLE_PRODUCT " +
+                "(SUPPLIER, METER_PRICE, UID) WHERE METER_PRICE > 0");
+        db.execSQL("CREATE INDEX IF NOT EXISTS INDEX_RANK_SUPPLIER_SHEET_PRICE ON TABLE_PRODUCT " +
+                "(SUPPLIER, SHEET_PRICE, UID) WHERE SHEET_PRICE > 0");
+    }
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright (c) 2020. Michael Erichsen.
+ *
+ * The program is distributed under the terms of the GNU Affero General Public License v3.0
+ */
+
+package net.myerichsen.toiletpaper;
+
+import android.database.sqlite.SQLiteDatabase;
+
+/**
+ * Version 13: Text searches use a full text index of the products, kept up to date by
+ * triggers, in place of the NOCASE indexes.
+ */
+class MigrationTo13 extends DbMigration {
+    private static final String INSERT_SEARCH_ROW = " INSERT INTO TABLE_SEARCH " +
+            "(docid, ITEM_NO, BRAND, SUPPLIER, COMMENTS) " +
+            "VALUES (new.UID, new.ITEM_NO, new.BRAND, new.SUPPLIER, new.COMMENTS); END";
+    private static final String DELETE_SEARCH_ROW = " DELETE FROM TABLE_SEARCH WHERE docid = old.UID; END";
+    private static final String TEXT_CHANGED = " WHEN old.ITEM_NO IS NOT new.ITEM_NO " +
+            "OR old.BRAND IS NOT new.BRAND OR old.SUPPLIER IS NOT new.SUPPLIER " +
+            "OR old.COMMENTS IS NOT new.COMMENTS";
+
+    MigrationTo13() {
+        super(13);
+    }
+
+    @Override
+    void migrate(SQLiteDatabase db) {
+        db.execSQL("DROP INDEX IF EXISTS INDEX_ITEM_NO_NOCASE");
+        db.execSQL("DROP INDEX IF EXISTS INDEX_BRAND_NOCASE");
+
+        db.execSQL("CREATE VIRTUAL TABLE IF NOT EXISTS TABLE_SEARCH USING fts4(" +
+                "content=\"TABLE_PRODUCT\", ITEM_NO, BRAND, SUPPLIER, COMMENTS, " +
+                "tokenize=unicode61, prefix=\"2,3\")");
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS TRIGGER_SEARCH_INSERT AFTER INSERT ON TABLE_PRODUCT " +
+                "BEGIN" + INSERT_SEARCH_ROW);
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS TRIGGER_SEARCH_UPDATE_BEFORE BEFORE UPDATE ON TABLE_PRODUCT" +
+                TEXT_CHANGED + " BEGIN" + DELETE_SEARCH_ROW);
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS TRIGGER_SEARCH_UPDATE_AFTER AFTER UPDATE ON TABLE_PRODUCT" +
+                TEXT_CHANGED + " BEGIN" + INSERT_SEARCH_ROW);
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS TRIGGER_SEARCH_DELETE BEFORE DELETE ON TABLE_PRODUCT " +
+                "BEGIN" + DELETE_SEARCH_ROW);
+
+        // Index the existing products
+        db.execSQL("INSERT INTO TABLE_SEARCH (TABLE_SEARCH) VALUES ('rebuild')");
+    }
+}
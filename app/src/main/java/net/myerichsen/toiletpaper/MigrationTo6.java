@@ -0,0 +1,28 @@
+/*
+ * Copyright (c) 2020. Michael Erichsen.
+ *
+ * The program is distributed under the terms of the GNU Affero General Public License v3.0
+ */
+
+package net.myerichsen.toiletpaper;
+
+import android.database.sqlite.SQLiteDatabase;
+
+/**
+ * Version 6: One row per price observation (ITEM_NO, SUPPLIER, TIME_STAMP). Rows with a
+ * placeholder item number without digits, such as "?", are different products and are kept.
+ */
+class MigrationTo6 extends DbMigration {
+
+    MigrationTo6() {
+        super(6);
+    }
+
+    @Override
+    void migrate(SQLiteDatabase db) {
+        db.execSQL("DELETE FROM TABLE_PRODUCT WHERE ITEM_NO GLOB '*[0-9]*' AND UID NOT IN " +
+                "(SELECT MIN(UID) FROM TABLE_PRODUCT GROUP BY ITEM_NO, SUPPLIER, TIME_STAMP)");
+        db.execSQL("CREATE INDEX IF NOT EXISTS INDEX_OBSERVATION ON TABLE_PRODUCT " +
+                "(ITEM_NO, SUPPLIER, TIME_STAMP)");
+    }
+}
@@ -0,0 +1,30 @@
+/*
+ * Copyright (c) 2020. Michael Erichsen.
+ *
+ * The program is distributed under the terms of the GNU Affero General Public License v3.0
+ */
+
+package net.myerichsen.toiletpaper;
+
+import android.database.sqlite.SQLiteDatabase;
+
+/**
+ * Version 7: Secondary indexes for searches and compare sort keys
+ */
+class MigrationTo7 extends DbMigration {
+
+    MigrationTo7() {
+        super(7);
+    }
+
+    @Override
+    void migrate(SQLiteDatabase db) {
+        db.execSQL("CREATE INDEX IF NOT EXISTS INDEX_BRAND ON TABLE_PRODUCT (BRAND, TIME_STAMP)");
+        db.execSQL("CREATE INDEX IF NOT EXISTS INDEX_ITEM_NO_NOCASE ON TABLE_PRODUCT (ITEM_NO COLLATE NOCASE)");
+        db.execSQL("CREATE INDEX IF NOT EXISTS INDEX_BRAND_NOCASE ON TABLE_PRODUCT (BRAND COLLATE NOCASE)");
+        db.execSQL("CREATE INDEX IF NOT EXISTS INDEX_SUPPLIER_KILO_PRICE ON TABLE_PRODUCT (SUPPLIER, KILO_PRICE)");
+        db.execSQL("CREATE INDEX IF NOT EXISTS INDEX_SUPPLIER_METER_PRICE ON TABLE_PRODUCT (SUPPLIER, METER_PRICE)");
+        db.execSQL("CREATE INDEX IF NOT EXISTS INDEX_SUPPLIER_SHEET_PRICE ON TABLE_PRODUCT (SUPPLIER, SHEET_PRICE)");
+        db.execSQL("CREATE INDEX IF NOT EXISTS INDEX_SUPPLIER_PAPER_WEIGHT ON TABLE_PRODUCT (SUPPLIER, PAPER_WEIGHT)");
+    }
+}
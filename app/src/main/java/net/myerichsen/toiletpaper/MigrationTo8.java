@@ -0,0 +1,24 @@
+/*
+ * Copyright (c) 2020. Michael Erichsen.
+ *
+ * The program is distributed under the terms of the GNU Affero General Public License v3.0
+ */
+
+package net.myerichsen.toiletpaper;
+
+import android.database.sqlite.SQLiteDatabase;
+
+/**
+ * Version 8: Index for the paged product list
+ */
+class MigrationTo8 extends DbMigration {
+
+    MigrationTo8() {
+        super(8);
+    }
+
+    @Override
+    void migrate(SQLiteDatabase db) {
+        db.execSQL("CREATE INDEX IF NOT EXISTS INDEX_BRAND_UID ON TABLE_PRODUCT (BRAND, UID)");
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2020. Michael Erichsen.
+ *
+ * The program is distributed under the terms of the GNU Affero General Public License v3.0
+ */
+
+package net.myerichsen.toiletpaper;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import android.text.TextUtils;
+
+/**
+ * Version 9: One product row per (ITEM_NO, SUPPLIER) and the package prices in TABLE_PRICE.
+ * The latest observation of each item number at each supplier is kept as the product row.
+ * Each row with a placeholder item number, such as "?", is a product of its own.
+ */
+class MigrationTo9 extends DbMigration {
+
+    MigrationTo9() {
+        super(9);
+    }
+
+    @Override
+    void migrate(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE IF NOT EXISTS TABLE_PRICE (UID INTEGER PRIMARY KEY, " +
+                "PRODUCT_UID INTEGER NOT NULL, PACKAGE_PRICE NUMERIC, " +
+                "TIME_STAMP TIMESTAMP DEFAULT CURRENT_TIMESTAMP)");
+        db.execSQL("CREATE UNIQUE INDEX IF NOT EXISTS INDEX_PRICE_HISTORY ON TABLE_PRICE " +
+                "(PRODUCT_UID, TIME_STAMP)");
+        copyPrices(db);
+        db.execSQL("DELETE FROM TABLE_PRODUCT WHERE UID NOT IN (SELECT PRODUCT_UID FROM TABLE_PRICE)");
+        db.execSQL("DROP INDEX IF EXISTS INDEX_OBSERVATION");
+        db.execSQL("CREATE INDEX IF NOT EXISTS INDEX_PRODUCT_KEY ON TABLE_PRODUCT " +
+                "(ITEM_NO, SUPPLIER)");
+    }
+
+    /**
+     * Copy every observation to TABLE_PRICE, pointing at the latest row of its
+     * (ITEM_NO, SUPPLIER) group. The rows are read newest first within each group by
+     * walking INDEX_OBSERVATION backwards, so the first row of a group is the one to keep.
+     * A row with a placeholder item number points at itself.
+     */
+    private static void copyPrices(SQLiteDatabase db) {
+        Cursor cursor = db.rawQuery("SELECT UID, ITEM_NO, SUPPLIER, PACKAGE_PRICE, TIME_STAMP " +
+                "FROM TABLE_PRODUCT ORDER BY ITEM_NO DESC, SUPPLIER DESC, TIME_STAMP DESC", null);
+        SQLiteStatement statement = db.compileStatement("INSERT OR IGNORE INTO TABLE_PRICE " +
+                "(PRODUCT_UID, PACKAGE_PRICE, TIME_STAMP) VALUES (?, ?, ?)");
+        String itemNo = null;
+        String supplier = null;
+        long productUid = -1;
+
+        try {
+            while (cursor.moveToNext()) {
+                if ((productUid == -1) || isPlaceholder(cursor.getString(1)) ||
+                        !TextUtils.equals(itemNo, cursor.getString(1)) ||
+                        !TextUtils.equals(supplier, cursor.getString(2))) {
+                    productUid = cursor.getLong(0);
+                    itemNo = cursor.getString(1);
+                    supplier = cursor.getString(2);
+                }
+
+                statement.clearBindings();
+                statement.bindLong(1, productUid);
+
+                if (!cursor.isNull(3)) {
+                    statement.bindDouble(2, cursor.getDouble(3));
+                }
+
+                if (!cursor.isNull(4)) {
+                    statement.bindString(3, cursor.getString(4));
+                }
+                statement.executeInsert();
+            }
+        } finally {
+            cursor.close();
+            statement.close();
+        }
+    }
+
+    /**
+     * An item number without digits does not identify a product. Kept here as the rule was
+     * in version 9.
+     */
+    private static boolean isPlaceholder(String itemNo) {
+        if (itemNo == null) {
+            return true;
+        }
+
+        for (int i = 0; i < itemNo.length(); i++) {
+            if (Character.isDigit(itemNo.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
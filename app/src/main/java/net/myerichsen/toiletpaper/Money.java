@@ -0,0 +1,137 @@
+/*
+ * Copyright (c) 2020. Michael Erichsen.
+ *
+ * The program is distributed under the terms of the GNU Affero General Public License v3.0
+ */
+
+package net.myerichsen.toiletpaper;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Fixed-point amounts in Danish kroner, held as long integers of a minor unit.
+ * <p>
+ * Package prices are kept in øre (PRICE_SCALE). Unit prices are kept in hundredths of an øre
+ * (UNIT_PRICE_SCALE), as the price of a sheet is only a fraction of an øre. Amounts are
+ * stored in INTEGER columns and compared and sorted as integers. Only parsing, division
+ * and formatting deal with decimals, and they round half up.
+ * </p>
+ */
+public final class Money {
+    /**
+     * Decimals of a package price, i.e. øre
+     */
+    public static final int PRICE_SCALE = 2;
+    /**
+     * Decimals of a unit price: roll, kilo, meter and sheet price
+     */
+    public static final int UNIT_PRICE_SCALE = 4;
+    private static final long[] POWERS = {1, 10, 100, 1000, 10000};
+
+    private Money() {
+    }
+
+    /**
+     * Parse an amount in kroner. Both comma and point are accepted as decimal separator.
+     *
+     * @param kroner Amount in kroner, e.g. 29.95. Empty means zero
+     * @param scale  Decimals of the result
+     * @return Amount in minor units
+     * @throws NumberFormatException if the text is not a number
+     */
+    public static long parse(String kroner, int scale) {
+        String s = kroner.trim().replace(',', '.');
+
+        if (s.isEmpty()) {
+            return 0;
+        }
+        return new BigDecimal(s).setScale(scale, RoundingMode.HALF_UP).unscaledValue().longValue();
+    }
+
+    /**
+     * Divide an amount by a quantity
+     *
+     * @param amount   Amount at PRICE_SCALE
+     * @param quantity Positive whole quantity, e.g. rolls or sheets
+     * @return Amount per unit at UNIT_PRICE_SCALE
+     */
+    public static long unitPrice(long amount, long quantity) {
+        long dividend = amount * POWERS[UNIT_PRICE_SCALE - PRICE_SCALE];
+        return Math.floorDiv(2 * dividend + quantity, 2 * quantity);
+    }
+
+    /**
+     * Divide an amount by a measured quantity
+     *
+     * @param amount   Amount at PRICE_SCALE
+     * @param quantity Positive quantity, e.g. meters or kilograms
+     * @return Amount per unit at UNIT_PRICE_SCALE
+     */
+    public static long unitPrice(long amount, double quantity) {
+        // Rounded in double arithmetic, which is exact to far below the unit for any price
+        return Math.round(amount * (double) POWERS[UNIT_PRICE_SCALE - PRICE_SCALE] / quantity);
+    }
+
+    /**
+     * Round an amount to fewer decimals
+     *
+     * @param amount  Amount
+     * @param scale   Decimals of the amount
+     * @param toScale Decimals of the result, at most scale
+     * @return Rounded amount at toScale
+     */
+    public static long round(long amount, int scale, int toScale) {
+        long divisor = POWERS[scale - toScale];
+        return Math.floorDiv(2 * amount + divisor, 2 * divisor);
+    }
+
+    /**
+     * Format an amount in kroner with a decimal point. Trailing zeros after the second
+     * decimal are dropped, so 27.2 kr at UNIT_PRICE_SCALE is "27.20".
+     *
+     * @param amount Amount
+     * @param scale  Decimals of the amount
+     * @return Formatted amount
+     */
+    public static String format(long amount, int scale) {
+        long unit = POWERS[scale];
+        long abs = Math.abs(amount);
+        long fraction = abs % unit;
+        int decimals = scale;
+
+        while ((decimals > PRICE_SCALE) && (fraction % 10 == 0)) {
+            fraction /= 10;
+            decimals--;
+        }
+
+        StringBuilder sb = new StringBuilder(12);
+
+        if (amount < 0) {
+            sb.append('-');
+        }
+        sb.append(abs / unit);
+
+        if (decimals > 0) {
+            String digits = Long.toString(fraction);
+            sb.append('.');
+
+            for (int i = digits.length(); i < decimals; i++) {
+                sb.append('0');
+            }
+            sb.append(digits);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Convert an amount to kroner, for plotting
+     *
+     * @param amount Amount
+     * @param scale  Decimals of the amount
+     * @return Amount in kroner
+     */
+    public static double toKroner(long amount, int scale) {
+        return (double) amount / POWERS[scale];
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 2020. Michael Erichsen.
+ *
+ * The program is distributed under the terms of the GNU Affero General Public License v3.0
+ */
+
+package net.myerichsen.toiletpaper;
+
+import net.myerichsen.toiletpaper.ui.products.ProductModel;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Least recently used cache of the latest product by item number, for the scan flow.
+ * <p>
+ * A write removes the products it changes. A read that started before a write must not
+ * put the product it read, as it may be stale, so every removal starts a new generation
+ * and a product is only put if the generation is still the one its read started in.
+ * </p>
+ */
+final class ProductCache {
+    private final Map<String, ProductModel> products;
+    private long generation;
+
+    /**
+     * Constructor
+     *
+     * @param capacity Maximum number of products cached
+     */
+    ProductCache(final int capacity) {
+        products = new LinkedHashMap<String, ProductModel>(capacity + 1, 1.0f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, ProductModel> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * @return Generation to pass to put, taken before the database is read
+     */
+    synchronized long generation() {
+        return generation;
+    }
+
+    /**
+     * @param itemNo Item number
+     * @return Cached product, or null. The product is shared and must not be changed
+     */
+    synchronized ProductModel get(String itemNo) {
+        return products.get(itemNo);
+    }
+
+    /**
+     * Cache a product read from the database, unless it was changed since the read started
+     *
+     * @param itemNo     Item number
+     * @param pm         Product
+     * @param generation Generation taken before the read
+     */
+    synchronized void put(String itemNo, ProductModel pm, long generation) {
+        if (generation == this.generation) {
+            products.put(itemNo, pm);
+        }
+    }
+
+    /**
+     * Remove the product of an item number, after it was saved
+     */
+    synchronized void remove(String itemNo) {
+        products.remove(itemNo);
+        generation++;
+    }
+
+    /**
+     * Remove all products, after a bulk change
+     */
+    synchronized void clear() {
+        products.clear();
+        generation++;
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright (c) 2020. Michael Erichsen.
+ *
+ * The program is distributed under the terms of the GNU Affero General Public License v3.0
+ */
+
+package net.myerichsen.toiletpaper;
+
+import net.myerichsen.toiletpaper.ui.products.ProductModel;
+
+/**
+ * Computes the derived fields of a product from the entered ones.
+ * <p>
+ * Every product is run through the calculator before it is written, whether it is imported
+ * or entered by hand, so the stored metrics are complete and can be ranked directly.
+ * A derived field is filled in when it is zero or was computed before, marked by its _c
+ * flag. A value entered by the user is kept. A computed value whose inputs are missing
+ * is cleared.
+ * </p>
+ * <p>
+ * The fields are computed in dependency order, so a field computed early can be the input
+ * of a later one: lengths and weights first, then the unit prices that divide by them.
+ * Sheet length and roll length depend on each other, and so do roll weight and package
+ * weight. The entered one of each pair is the input for the other. The calculator works
+ * on the primitive fields only, has no Android dependencies and allocates nothing.
+ * </p>
+ */
+public final class ProductCalculator {
+    private ProductCalculator() {
+    }
+
+    /**
+     * Fill in the derivable fields
+     *
+     * @param pm Product data, updated in place
+     * @return true if any field was computed
+     */
+    public static boolean calculate(ProductModel pm) {
+        int rolls = pm.getPackageRolls();
+        int sheets = pm.getRollSheets();
+        boolean computed = false;
+
+        // Sheet length in mm = roll length in m * 1000 / sheets per roll
+        if (isDerivable(pm.getSheetLength(), pm.getSheetLength_c())) {
+            boolean possible = isEntered(pm.getRollLength(), pm.getRollLength_c()) && (sheets > 0);
+            pm.setSheetLength(possible ? Math.round(pm.getRollLength() * 1000 / sheets) : 0);
+            pm.setSheetLength_c(possible ? 1 : 0);
+            computed = possible;
+        }
+
+        // Roll length in m = sheet length in mm * sheets per roll / 1000
+        if (isDerivable(pm.getRollLength(), pm.getRollLength_c())) {
+            boolean possible = (pm.getSheetLength() > 0) && (sheets > 0);
+            pm.setRollLength(possible ? (float) pm.getSheetLength() * sheets / 1000 : 0);
+            pm.setRollLength_c(possible ? 1 : 0);
+            computed |= possible;
+        }
+
+        // Package weight in kg = roll weight in g * rolls per package / 1000
+        if (isDerivable(pm.getPackageWeight(), pm.getPackageWeight_c())) {
+            boolean possible = isEntered(pm.getRollWeight(), pm.getRollWeight_c()) && (rolls > 0);
+            pm.setPackageWeight(possible ? pm.getRollWeight() * rolls / 1000 : 0);
+            pm.setPackageWeight_c(possible ? 1 : 0);
+            computed |= possible;
+        }
+
+        // Roll weight in g = package weight in kg * 1000 / rolls per package
+        if (isDerivable(pm.getRollWeight(), pm.getRollWeight_c())) {
+            boolean possible = (pm.getPackageWeight() > 0) && (rolls > 0);
+            pm.setRollWeight(possible ? pm.getPackageWeight() * 1000 / rolls : 0);
+            pm.setRollWeight_c(possible ? 1 : 0);
+            computed |= possible;
+        }
+
+        // Paper weight in g/m2 = package weight in g / paper area of the package in m2
+        if (isDerivable(pm.getPaperWeight(), pm.getPaperWeight_c())) {
+            double area = (double) rolls * sheets * pm.getSheetWidth() * pm.getSheetLength() / 1000000;
+            boolean possible = (pm.getPackageWeight() > 0) && (area > 0);
+            pm.setPaperWeight(possible ? (float) (pm.getPackageWeight() * 1000 / area) : 0);
+            pm.setPaperWeight_c(possible ? 1 : 0);
+            computed |= possible;
+        }
+
+        long packagePrice = pm.getPackagePrice();
+
+        if (isDerivable(pm.getRollPrice(), pm.getRollPrice_c())) {
+            boolean possible = (packagePrice > 0) && (rolls > 0);
+            pm.setRollPrice(possible ? Money.unitPrice(packagePrice, (long) rolls) : 0);
+            pm.setRollPrice_c(possible ? 1 : 0);
+            computed |= possible;
+        }
+
+        if (isDerivable(pm.getKiloPrice(), pm.getKiloPrice_c())) {
+            boolean possible = (packagePrice > 0) && (pm.getPackageWeight() > 0);
+            pm.setKiloPrice(possible ? Money.unitPrice(packagePrice, (double) pm.getPackageWeight()) : 0);
+            pm.setKiloPrice_c(possible ? 1 : 0);
+            computed |= possible;
+        }
+
+        if (isDerivable(pm.getMeterPrice(), pm.getMeterPrice_c())) {
+            boolean possible = (packagePrice > 0) && (rolls > 0) && (pm.getRollLength() > 0);
+            pm.setMeterPrice(possible ? Money.unitPrice(packagePrice, rolls * (double) pm.getRollLength()) : 0);
+            pm.setMeterPrice_c(possible ? 1 : 0);
+            computed |= possible;
+        }
+
+        if (isDerivable(pm.getSheetPrice(), pm.getSheetPrice_c())) {
+            boolean possible = (packagePrice > 0) && (rolls > 0) && (sheets > 0);
+            pm.setSheetPrice(possible ? Money.unitPrice(packagePrice, (long) rolls * sheets) : 0);
+            pm.setSheetPrice_c(possible ? 1 : 0);
+            computed |= possible;
+        }
+
+        return computed;
+    }
+
+    /**
+     * A field may be computed unless the user has entered a value
+     */
+    private static boolean isDerivable(double value, int computedFlag) {
+        return (value == 0) || (computedFlag != 0);
+    }
+
+    /**
+     * A value entered by the user, not computed
+     */
+    private static boolean isEntered(double value, int computedFlag) {
+        return (value > 0) && (computedFlag == 0);
+    }
+}
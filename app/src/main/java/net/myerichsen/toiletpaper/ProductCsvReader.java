@@ -0,0 +1,273 @@
+/*
+ * Copyright (c) 2020. Michael Erichsen.
+ *
+ * The program is distributed under the terms of the GNU Affero General Public License v3.0
+ */
+
+package net.myerichsen.toiletpaper;
+
+import com.opencsv.CSVReader;
+import com.opencsv.exceptions.CsvValidationException;
+
+import net.myerichsen.toiletpaper.ui.products.ProductModel;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
+import java.time.format.DateTimeParseException;
+import java.time.format.ResolverStyle;
+import java.time.temporal.ChronoField;
+
+/**
+ * Streaming reader for product CSV files.
+ * <p>
+ * Columns are mapped by the names in the header line, so the column order does not matter
+ * and missing numeric columns default to zero. An optional timestamp column dates the
+ * price observation, and is stored in one format. Only one row is held in memory at a time.
+ * Rows that cannot be parsed are recorded in the import report and skipped.
+ * </p>
+ */
+class ProductCsvReader implements Closeable {
+    private static final DateTimeFormatter[] TIMESTAMP_FORMATS = {
+            timestampFormat("uuuu-M-d[ H:m[:s]]"),
+            timestampFormat("uuuu-M-d'T'H:m[:s]"),
+            timestampFormat("d-M-uuuu[ H:m[:s]]"),
+            timestampFormat("d.M.uuuu[ H:m[:s]]"),
+    };
+    private final CSVReader csvReader;
+    private final ImportReport report;
+    private final int itemNo;
+    private final int brand;
+    private final int layers;
+    private final int packageRolls;
+    private final int rollSheets;
+    private final int sheetWidth;
+    private final int sheetLength;
+    private final int sheetLength_c;
+    private final int rollLength;
+    private final int rollLength_c;
+    private final int packagePrice;
+    private final int rollPrice;
+    private final int rollPrice_c;
+    private final int paperWeight;
+    private final int paperWeight_c;
+    private final int packageWeight;
+    private final int packageWeight_c;
+    private final int rollWeight;
+    private final int rollWeight_c;
+    private final int kiloPrice;
+    private final int kiloPrice_c;
+    private final int meterPrice;
+    private final int meterPrice_c;
+    private final int sheetPrice;
+    private final int sheetPrice_c;
+    private final int supplier;
+    private final int comments;
+    private final int timestamp;
+    private String[] header;
+    private int line = 1;
+
+    /**
+     * Constructor. Reads the header line and resolves the column positions.
+     *
+     * @param reader CSV source with a header line
+     * @param report Report to receive rejected rows
+     */
+    ProductCsvReader(Reader reader, ImportReport report) throws IOException, CsvValidationException {
+        this.csvReader = new CSVReader(reader);
+        this.report = report;
+
+        header = csvReader.readNext();
+
+        if (header == null) {
+            throw new IOException("Filen er tom");
+        }
+
+        itemNo = column("itemNo");
+        brand = column("brand");
+
+        if ((itemNo < 0) || (brand < 0)) {
+            throw new IOException("Ukendt filformat. Kolonnerne itemNo og brand skal findes");
+        }
+
+        layers = column("layers");
+        packageRolls = column("packageRolls");
+        rollSheets = column("rollSheets");
+        sheetWidth = column("sheetWidth");
+        sheetLength = column("sheetLength");
+        sheetLength_c = column("sheetLength_c");
+        rollLength = column("rollLength");
+        rollLength_c = column("rollLength_c");
+        packagePrice = column("packagePrice");
+        rollPrice = column("rollPrice");
+        rollPrice_c = column("rollPrice_c");
+        paperWeight = column("paperWeight");
+        paperWeight_c = column("paperWeight_c");
+        packageWeight = column("packageWeight");
+        packageWeight_c = column("packageWeight_c");
+        rollWeight = column("rollWeight");
+        rollWeight_c = column("rollWeight_c");
+        kiloPrice = column("kiloPrice");
+        kiloPrice_c = column("kiloPrice_c");
+        meterPrice = column("meterPrice");
+        meterPrice_c = column("meterPrice_c");
+        sheetPrice = column("sheetPrice");
+        sheetPrice_c = column("sheetPrice_c");
+        supplier = column("supplier");
+        comments = column("comments");
+        timestamp = column("timestamp");
+        header = null;
+    }
+
+    /**
+     * Read the next valid product row. Invalid rows are reported and skipped.
+     *
+     * @return Product data, or null at end of file
+     */
+    ProductModel readNext() throws IOException {
+        String[] data;
+
+        while (true) {
+            try {
+                data = csvReader.readNext();
+            } catch (CsvValidationException e) {
+                line++;
+                report.addReject(line, e.getMessage());
+                continue;
+            }
+
+            if (data == null) {
+                return null;
+            }
+
+            line++;
+
+            // Skip blank lines
+            if ((data.length == 1) && data[0].trim().isEmpty()) {
+                continue;
+            }
+
+            try {
+                return parse(data);
+            } catch (RuntimeException e) {
+                report.addReject(line, e.toString());
+            }
+        }
+    }
+
+    /**
+     * @return Line number of the row last read, counting the header as line 1
+     */
+    int getLine() {
+        return line;
+    }
+
+    @Override
+    public void close() throws IOException {
+        csvReader.close();
+    }
+
+    private ProductModel parse(String[] data) {
+        ProductModel pm = new ProductModel();
+        pm.setItemNo(getString(data, itemNo));
+        pm.setBrand(getString(data, brand));
+
+        if (pm.getItemNo().isEmpty() && pm.getBrand().isEmpty()) {
+            throw new IllegalArgumentException("Varenummer og varemærke mangler");
+        }
+
+        pm.setLayers(getInt(data, layers));
+        pm.setPackageRolls(getInt(data, packageRolls));
+        pm.setRollSheets(getInt(data, rollSheets));
+        pm.setSheetWidth(getInt(data, sheetWidth));
+        pm.setSheetLength(getInt(data, sheetLength));
+        pm.setSheetLength_c(getInt(data, sheetLength_c));
+        pm.setRollLength(getFloat(data, rollLength));
+        pm.setRollLength_c(getInt(data, rollLength_c));
+        pm.setPackagePrice(getMoney(data, packagePrice, Money.PRICE_SCALE));
+        pm.setRollPrice(getMoney(data, rollPrice, Money.UNIT_PRICE_SCALE));
+        pm.setRollPrice_c(getInt(data, rollPrice_c));
+        pm.setPaperWeight(getFloat(data, paperWeight));
+        pm.setPaperWeight_c(getInt(data, paperWeight_c));
+        pm.setPackageWeight(getFloat(data, packageWeight));
+        pm.setPackageWeight_c(getInt(data, packageWeight_c));
+        pm.setRollWeight(getFloat(data, rollWeight));
+        pm.setRollWeight_c(getInt(data, rollWeight_c));
+        pm.setKiloPrice(getMoney(data, kiloPrice, Money.UNIT_PRICE_SCALE));
+        pm.setKiloPrice_c(getInt(data, kiloPrice_c));
+        pm.setMeterPrice(getMoney(data, meterPrice, Money.UNIT_PRICE_SCALE));
+        pm.setMeterPrice_c(getInt(data, meterPrice_c));
+        pm.setSheetPrice(getMoney(data, sheetPrice, Money.UNIT_PRICE_SCALE));
+        pm.setSheetPrice_c(getInt(data, sheetPrice_c));
+        pm.setSupplier(getString(data, supplier));
+        pm.setComments(getString(data, comments));
+
+        // Empty means now
+        String s = getString(data, timestamp);
+        pm.setTimestamp(s.isEmpty() ? null : getTimestamp(s));
+        return pm;
+    }
+
+    /**
+     * Parse a time stamp and write it in SQLite format, yyyy-MM-dd HH:mm:ss. Time stamps
+     * are compared as text and are part of the key of a price observation, so they must
+     * all have the same format. The time of day may be left out.
+     *
+     * @param s Time stamp as year-month-day or day-month-year
+     * @return Time stamp in SQLite format
+     */
+    private static String getTimestamp(String s) {
+        for (DateTimeFormatter format : TIMESTAMP_FORMATS) {
+            try {
+                return LocalDateTime.parse(s, format).format(TPDbAdapter.ObservationWriter.TIMESTAMP_FORMAT);
+            } catch (DateTimeParseException e) {
+                // Try the next format
+            }
+        }
+        throw new IllegalArgumentException("Ugyldigt tidsstempel: " + s);
+    }
+
+    private static DateTimeFormatter timestampFormat(String pattern) {
+        return new DateTimeFormatterBuilder().appendPattern(pattern)
+                .parseDefaulting(ChronoField.HOUR_OF_DAY, 0)
+                .parseDefaulting(ChronoField.MINUTE_OF_HOUR, 0)
+                .parseDefaulting(ChronoField.SECOND_OF_MINUTE, 0)
+                .toFormatter().withResolverStyle(ResolverStyle.STRICT);
+    }
+
+    private int column(String name) {
+        for (int i = 0; i < header.length; i++) {
+            if (header[i].trim().equalsIgnoreCase(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static String getString(String[] data, int index) {
+        if ((index < 0) || (index >= data.length)) {
+            return "";
+        }
+        return data[index].trim();
+    }
+
+    private static int getInt(String[] data, int index) {
+        String s = getString(data, index);
+        return s.isEmpty() ? 0 : Integer.parseInt(s);
+    }
+
+    private static float getFloat(String[] data, int index) {
+        String s = getString(data, index);
+        return s.isEmpty() ? 0 : Float.parseFloat(s);
+    }
+
+    /**
+     * Read an amount in kroner as a fixed-point amount
+     */
+    private static long getMoney(String[] data, int index, int scale) {
+        return Money.parse(getString(data, index), scale);
+    }
+}
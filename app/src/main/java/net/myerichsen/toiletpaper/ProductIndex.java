@@ -0,0 +1,419 @@
+/*
+ * Copyright (c) 2020. Michael Erichsen.
+ *
+ * The program is distributed under the terms of the GNU Affero General Public License v3.0
+ */
+
+package net.myerichsen.toiletpaper;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * In-memory prefix index of the distinct values of a product text column, e.g. the brands.
+ * <p>
+ * The index is held in sorted arrays. Each distinct value is stored once, in a slot with
+ * the sorted UIDs of the products that have it. A value has a key for each of its words,
+ * the rest of the value from that word, so "Lambi Classic" is found by both "lam" and
+ * "cla". The keys are a sorted array with the slot of each key alongside. Keys are folded
+ * like the full text index: lower case without diacritics, and with single spaces between
+ * words. A lookup is a binary search plus a walk of the keys that start with the prefix,
+ * so its cost follows the number of distinct values found, not the number of products,
+ * and there is no database access. The products are a third sorted array, from UID to
+ * slot. Saving or deleting a product changes the UIDs of its value, and only the first
+ * and last product of a value insert or remove its keys. A bulk change of the products
+ * drops the index, and it is built again by one sort.
+ * </p>
+ */
+public final class ProductIndex {
+    private static final int INITIAL_CAPACITY = 16;
+    // Sorted keys and the slot of each. Equal keys are in the order their values were added
+    private String[] keys;
+    private int[] keySlots;
+    private int keyCount;
+    // Distinct values by slot, with the sorted UIDs of their products. Free slots are null
+    private String[] values;
+    private int[][] slotUids;
+    private int[] slotSizes;
+    private int slotCount;
+    private int[] freeSlots;
+    private int freeCount;
+    // Products sorted by UID, and the slot of the value of each
+    private int[] uids;
+    private int[] uidSlots;
+    private int uidCount;
+
+    /**
+     * Build an index of products
+     *
+     * @param productUids Product UIDs
+     * @param texts       Column value of each product. Null values are not indexed
+     * @param count       Number of products
+     */
+    ProductIndex(final int[] productUids, String[] texts, int count) {
+        Integer[] order = new Integer[count];
+
+        for (int i = 0; i < count; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer a, Integer b) {
+                return Integer.compare(productUids[a], productUids[b]);
+            }
+        });
+
+        int capacity = Math.max(count, INITIAL_CAPACITY);
+        keys = new String[capacity];
+        keySlots = new int[capacity];
+        values = new String[capacity];
+        slotUids = new int[capacity][];
+        slotSizes = new int[capacity];
+        freeSlots = new int[INITIAL_CAPACITY];
+        uids = new int[capacity];
+        uidSlots = new int[capacity];
+        Map<String, Integer> slots = new HashMap<>();
+
+        // Products in UID order, so every UID is appended
+        for (int i = 0; i < count; i++) {
+            String text = texts[order[i]];
+            Integer slot = (text == null) ? null : slots.get(text);
+
+            if (slot == null) {
+                List<String> textKeys = keys(text);
+
+                if (textKeys.isEmpty()) {
+                    continue;
+                }
+                slot = newSlot(text);
+                slots.put(text, slot);
+
+                for (String key : textKeys) {
+                    appendKey(key, slot);
+                }
+            }
+            addUid(slot, productUids[order[i]]);
+            insertProduct(uidCount, productUids[order[i]], slot);
+        }
+        sortKeys();
+    }
+
+    /**
+     * Fold a text for matching: lower case, without diacritics and with single spaces
+     * between words
+     *
+     * @param text Text
+     * @return Folded text
+     */
+    public static String fold(String text) {
+        return Normalizer.normalize(text, Normalizer.Form.NFD).replaceAll("\\p{M}", "")
+                .toLowerCase(Locale.ROOT).replaceAll("[^\\p{L}\\p{N}]+", " ").trim();
+    }
+
+    /**
+     * @return The keys of a value, one starting at each word. The first is the whole value
+     */
+    private static List<String> keys(String value) {
+        List<String> keys = new ArrayList<>(2);
+
+        if (value == null) {
+            return keys;
+        }
+
+        String folded = fold(value);
+
+        if (folded.isEmpty()) {
+            return keys;
+        }
+        keys.add(folded);
+
+        for (int i = folded.indexOf(' '); i >= 0; i = folded.indexOf(' ', i + 1)) {
+            keys.add(folded.substring(i + 1));
+        }
+        return keys;
+    }
+
+    private static int grow(int length) {
+        return Math.max(length * 2, INITIAL_CAPACITY);
+    }
+
+    /**
+     * Find the distinct values with a word that starts with a text
+     *
+     * @param text  Search text
+     * @param limit Maximum number of values
+     * @return Values in the order of the matching keys
+     */
+    synchronized List<String> lookup(String text, int limit) {
+        String prefix = fold(text);
+        List<String> found = new ArrayList<>();
+
+        if (prefix.isEmpty()) {
+            return found;
+        }
+
+        // A value with a repeated word has more than one matching key
+        Set<String> distinct = new HashSet<>();
+
+        for (int i = lowerBound(prefix); (i < keyCount) && keys[i].startsWith(prefix); i++) {
+            if (found.size() == limit) {
+                return found;
+            }
+
+            String value = values[keySlots[i]];
+
+            if (distinct.add(value)) {
+                found.add(value);
+            }
+        }
+        return found;
+    }
+
+    /**
+     * @param value Column value
+     * @return UIDs of the products with the value, in ascending order
+     */
+    synchronized int[] productUids(String value) {
+        List<String> valueKeys = keys(value);
+        int slot = valueKeys.isEmpty() ? -1 : findSlot(value, valueKeys.get(0));
+        return (slot < 0) ? new int[0] : Arrays.copyOf(slotUids[slot], slotSizes[slot]);
+    }
+
+    /**
+     * Add a product, or bring it up to date
+     *
+     * @param uid   Product UID
+     * @param value Column value. Null removes the product
+     */
+    synchronized void put(int uid, String value) {
+        int p = Arrays.binarySearch(uids, 0, uidCount, uid);
+        int oldSlot = (p >= 0) ? uidSlots[p] : -1;
+
+        if ((oldSlot >= 0) && values[oldSlot].equals(value)) {
+            return;
+        }
+
+        if (oldSlot >= 0) {
+            removeUid(oldSlot, uid);
+
+            if (slotSizes[oldSlot] == 0) {
+                freeSlot(oldSlot);
+            }
+        }
+
+        List<String> valueKeys = keys(value);
+
+        if (valueKeys.isEmpty()) {
+            if (p >= 0) {
+                uidCount--;
+                System.arraycopy(uids, p + 1, uids, p, uidCount - p);
+                System.arraycopy(uidSlots, p + 1, uidSlots, p, uidCount - p);
+            }
+            return;
+        }
+
+        int slot = findSlot(value, valueKeys.get(0));
+
+        if (slot < 0) {
+            slot = newSlot(value);
+
+            for (String key : valueKeys) {
+                insertKey(key, slot);
+            }
+        }
+        addUid(slot, uid);
+
+        if (p >= 0) {
+            uidSlots[p] = slot;
+        } else {
+            insertProduct(-(p + 1), uid, slot);
+        }
+    }
+
+    /**
+     * Remove a product
+     *
+     * @param uid Product UID
+     */
+    synchronized void remove(int uid) {
+        put(uid, null);
+    }
+
+    /**
+     * @return Position of the first key not less than the key
+     */
+    private int lowerBound(String key) {
+        int low = 0;
+        int high = keyCount;
+
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+
+            if (keys[mid].compareTo(key) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * @param value    Column value
+     * @param wholeKey The first key of the value
+     * @return Slot of the value, or -1
+     */
+    private int findSlot(String value, String wholeKey) {
+        for (int i = lowerBound(wholeKey); (i < keyCount) && keys[i].equals(wholeKey); i++) {
+            if (values[keySlots[i]].equals(value)) {
+                return keySlots[i];
+            }
+        }
+        return -1;
+    }
+
+    private int newSlot(String value) {
+        int slot;
+
+        if (freeCount > 0) {
+            slot = freeSlots[--freeCount];
+        } else {
+            if (slotCount == values.length) {
+                int capacity = grow(slotCount);
+                values = Arrays.copyOf(values, capacity);
+                slotUids = Arrays.copyOf(slotUids, capacity);
+                slotSizes = Arrays.copyOf(slotSizes, capacity);
+            }
+            slot = slotCount++;
+        }
+        values[slot] = value;
+        slotUids[slot] = new int[1];
+        slotSizes[slot] = 0;
+        return slot;
+    }
+
+    /**
+     * Remove the keys of an empty slot and free it
+     */
+    private void freeSlot(int slot) {
+        for (String key : keys(values[slot])) {
+            int i = lowerBound(key);
+
+            while (keySlots[i] != slot) {
+                i++;
+            }
+            keyCount--;
+            System.arraycopy(keys, i + 1, keys, i, keyCount - i);
+            System.arraycopy(keySlots, i + 1, keySlots, i, keyCount - i);
+            keys[keyCount] = null;
+        }
+        values[slot] = null;
+        slotUids[slot] = null;
+
+        if (freeCount == freeSlots.length) {
+            freeSlots = Arrays.copyOf(freeSlots, grow(freeCount));
+        }
+        freeSlots[freeCount++] = slot;
+    }
+
+    private void addUid(int slot, int uid) {
+        int[] slotUid = slotUids[slot];
+        int size = slotSizes[slot];
+        int i = -(Arrays.binarySearch(slotUid, 0, size, uid) + 1);
+
+        if (size == slotUid.length) {
+            slotUid = Arrays.copyOf(slotUid, size * 2);
+            slotUids[slot] = slotUid;
+        }
+        System.arraycopy(slotUid, i, slotUid, i + 1, size - i);
+        slotUid[i] = uid;
+        slotSizes[slot] = size + 1;
+    }
+
+    private void removeUid(int slot, int uid) {
+        int[] slotUid = slotUids[slot];
+        int size = slotSizes[slot] - 1;
+        int i = Arrays.binarySearch(slotUid, 0, size + 1, uid);
+        System.arraycopy(slotUid, i + 1, slotUid, i, size - i);
+        slotSizes[slot] = size;
+    }
+
+    private void insertProduct(int i, int uid, int slot) {
+        if (uidCount == uids.length) {
+            uids = Arrays.copyOf(uids, grow(uidCount));
+            uidSlots = Arrays.copyOf(uidSlots, uids.length);
+        }
+        System.arraycopy(uids, i, uids, i + 1, uidCount - i);
+        System.arraycopy(uidSlots, i, uidSlots, i + 1, uidCount - i);
+        uids[i] = uid;
+        uidSlots[i] = slot;
+        uidCount++;
+    }
+
+    /**
+     * Insert a key after the equal keys, so it keeps the order its value was added in
+     */
+    private void insertKey(String key, int slot) {
+        int i = lowerBound(key);
+
+        while ((i < keyCount) && keys[i].equals(key)) {
+            i++;
+        }
+
+        if (keyCount == keys.length) {
+            keys = Arrays.copyOf(keys, grow(keyCount));
+            keySlots = Arrays.copyOf(keySlots, keys.length);
+        }
+        System.arraycopy(keys, i, keys, i + 1, keyCount - i);
+        System.arraycopy(keySlots, i, keySlots, i + 1, keyCount - i);
+        keys[i] = key;
+        keySlots[i] = slot;
+        keyCount++;
+    }
+
+    private void appendKey(String key, int slot) {
+        if (keyCount == keys.length) {
+            keys = Arrays.copyOf(keys, grow(keyCount));
+            keySlots = Arrays.copyOf(keySlots, keys.length);
+        }
+        keys[keyCount] = key;
+        keySlots[keyCount] = slot;
+        keyCount++;
+    }
+
+    /**
+     * Sort the appended keys. The sort is stable, so equal keys stay in the order their
+     * values were added in.
+     */
+    private void sortKeys() {
+        Integer[] order = new Integer[keyCount];
+
+        for (int i = 0; i < keyCount; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer a, Integer b) {
+                return keys[a].compareTo(keys[b]);
+            }
+        });
+
+        String[] sortedKeys = new String[keys.length];
+        int[] sortedSlots = new int[keys.length];
+
+        for (int i = 0; i < keyCount; i++) {
+            sortedKeys[i] = keys[order[i]];
+            sortedSlots[i] = keySlots[order[i]];
+        }
+        keys = sortedKeys;
+        keySlots = sortedSlots;
+    }
+}
@@ -6,26 +6,40 @@
 
 package net.myerichsen.toiletpaper;
 
-import android.content.ContentValues;
 import android.content.Context;
 import android.database.Cursor;
+import android.database.DatabaseUtils;
+import android.database.SQLException;
 import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteDoneException;
 import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteStatement;
 
 import com.opencsv.CSVReader;
-import com.opencsv.exceptions.CsvException;
+import com.opencsv.exceptions.CsvValidationException;
 
 import net.myerichsen.toiletpaper.ui.compare.CompareFragment;
 import net.myerichsen.toiletpaper.ui.products.ProductModel;
+import net.myerichsen.toiletpaper.ui.products.ProductSummary;
 import net.myerichsen.toiletpaper.ui.suppliers.SupplierModel;
 
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.Reader;
 import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
-import java.util.concurrent.TimeUnit;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Database helper for product and supplier tables
@@ -44,12 +58,24 @@ public class TPDbAdapter {
             TpDbHelper.SHEET_PRICE, TpDbHelper.SHEET_PRICE_C, TpDbHelper.SUPPLIER,
             TpDbHelper.COMMENTS, TpDbHelper.ITEM_NO, TpDbHelper.BRAND,
             TpDbHelper.TIME_STAMP};
+    private final String[] summaryColumns = {TpDbHelper.UID, TpDbHelper.ITEM_NO, TpDbHelper.BRAND,
+            TpDbHelper.SUPPLIER, TpDbHelper.PACKAGE_PRICE, TpDbHelper.KILO_PRICE, TpDbHelper.METER_PRICE,
+            TpDbHelper.TIME_STAMP};
+    // Package price and time stamp are those of the observation. The other columns are
+    // those of the current product row
+    private final String[] historyColumns = {TpDbHelper.TABLE_PRODUCT + "." + TpDbHelper.UID,
+            TpDbHelper.ITEM_NO, TpDbHelper.BRAND, TpDbHelper.SUPPLIER,
+            TpDbHelper.TABLE_PRICE + "." + TpDbHelper.PACKAGE_PRICE,
+            TpDbHelper.KILO_PRICE, TpDbHelper.METER_PRICE,
+            TpDbHelper.TABLE_PRICE + "." + TpDbHelper.TIME_STAMP};
+    private final String[] rankColumns = {TpDbHelper.UID, TpDbHelper.ITEM_NO, TpDbHelper.BRAND,
+            TpDbHelper.SUPPLIER, TpDbHelper.PAPER_WEIGHT, TpDbHelper.KILO_PRICE, TpDbHelper.METER_PRICE,
+            TpDbHelper.SHEET_PRICE};
     private final String[] sdColumns = {TpDbHelper.SUPPLIER,
             TpDbHelper.CHAIN, TpDbHelper.TIME_STAMP};
-    private final String[] countColumn = {"COUNT(*)"};
 
     public TPDbAdapter(Context context) {
-        tpDbHelper = new TpDbHelper(context);
+        tpDbHelper = TpDbHelper.getInstance(context);
     }
 
     /**
@@ -68,8 +94,9 @@ public class TPDbAdapter {
         Cursor cursor = db.query(TpDbHelper.TABLE_PRODUCT, pdColumns, selection, args, null, null, null);
 
         if (cursor.getCount() > 0) {
+            ProductRowMapper mapper = new ProductRowMapper(cursor);
             while (cursor.moveToNext()) {
-                lpm.add(populateProductModel(cursor));
+                lpm.add(mapper.map(cursor));
             }
         }
         cursor.close();
@@ -78,99 +105,298 @@ public class TPDbAdapter {
     }
 
     /**
-     * Select from product table with selection arguments ordered
+     * Get the latest product with an item number, e.g. a scanned EAN. Recently found
+     * products are served from a cache without a query.
+     *
+     * @param itemNo Item number
+     * @return The product with the newest observation, or null if there is none. The
+     * product may be shared and must not be changed
+     */
+    public ProductModel getLatestProduct(String itemNo) {
+        ProductModel pm = tpDbHelper.scanCache.get(itemNo);
+
+        if (pm != null) {
+            return pm;
+        }
+
+        long generation = tpDbHelper.scanCache.generation();
+        SQLiteDatabase db = tpDbHelper.getReadableDatabase();
+        // INDEX_PRODUCT_KEY leads with the item number, so only its suppliers are read
+        Cursor cursor = db.query(TpDbHelper.TABLE_PRODUCT, pdColumns, TpDbHelper.ITEM_NO + " = ?",
+                new String[]{itemNo}, null, null, TpDbHelper.TIME_STAMP + " DESC", "1");
+
+        if (cursor.moveToNext()) {
+            pm = new ProductRowMapper(cursor).map(cursor);
+            tpDbHelper.scanCache.put(itemNo, pm, generation);
+        }
+        cursor.close();
+
+        return pm;
+    }
+
+    /**
+     * Select product summaries with selection arguments ordered.
+     * Only the summary columns are fetched.
      *
      * @param selection   e.g. BRAND=?
      * @param argColumn   Selection argument column
      * @param orderColumn Column to order by
-     * @return List of product models
+     * @return List of product summaries
      */
-    public List<ProductModel> getProductModels(String selection, String argColumn, String orderColumn) {
-        List<ProductModel> lpm = new ArrayList<>();
-
+    public List<ProductSummary> getProductSummaries(String selection, String argColumn, String orderColumn) {
         SQLiteDatabase db = tpDbHelper.getReadableDatabase();
 
         String[] args = {argColumn};
-        Cursor cursor = db.query(TpDbHelper.TABLE_PRODUCT, pdColumns, selection, args, null, null, orderColumn);
+        Cursor cursor = db.query(TpDbHelper.TABLE_PRODUCT, summaryColumns, selection, args, null, null, orderColumn);
+        return readSummaries(cursor);
+    }
 
-        if (cursor.getCount() > 0) {
-            while (cursor.moveToNext()) {
-                lpm.add(populateProductModel(cursor));
-            }
+    /**
+     * Search products by words or word prefixes in their text. The search ignores case and
+     * diacritics, and each product is found once.
+     *
+     * @param column      ITEM_NO, BRAND, SUPPLIER or COMMENTS, or null for all of them
+     * @param text        Search text. Every word must match the start of a word in the product
+     * @param orderColumn Column to order by
+     * @return List of product summaries
+     */
+    public List<ProductSummary> searchProductSummaries(String column, String text, String orderColumn) {
+        if (column != null) {
+            checkSearchColumn(column);
         }
-        cursor.close();
 
-        return lpm;
+        String match = TpDbHelper.matchQuery(column, text);
+
+        if (match == null) {
+            return new ArrayList<>();
+        }
+        return getProductSummaries(TpDbHelper.SEARCH_SELECTION, match, orderColumn);
     }
 
     /**
-     * Select everything from product table with selection arguments ordered
+     * Get the distinct values of a text column that match a search text, for suggestions
+     * while typing. Item numbers and brands are looked up in memory, where the text must
+     * start a word of the value. The other columns are searched as in searchProductSummaries.
      *
-     * @param orderColumn Column to order by
-     * @return List of product models
+     * @param column ITEM_NO, BRAND, SUPPLIER or COMMENTS
+     * @param text   Search text
+     * @param limit  Maximum number of values
+     * @return Values in alphabetical order of the matching words
      */
-    public List<ProductModel> getProductModels(String orderColumn) {
-        List<ProductModel> lpm = new ArrayList<>();
+    public List<String> getSuggestions(String column, String text, int limit) {
+        checkSearchColumn(column);
 
-        SQLiteDatabase db = tpDbHelper.getReadableDatabase();
+        if (column.equals(TpDbHelper.ITEM_NO) || column.equals(TpDbHelper.BRAND)) {
+            return tpDbHelper.productIndex(column).lookup(text, limit);
+        }
 
-        Cursor cursor = db.query(TpDbHelper.TABLE_PRODUCT, pdColumns, null, null, null, null, orderColumn);
+        List<String> suggestions = new ArrayList<>();
+        String match = TpDbHelper.matchQuery(column, text);
 
-        if (cursor.getCount() > 0) {
-            while (cursor.moveToNext()) {
-                lpm.add(populateProductModel(cursor));
-            }
+        if (match == null) {
+            return suggestions;
+        }
+
+        SQLiteDatabase db = tpDbHelper.getReadableDatabase();
+        Cursor cursor = db.query(true, TpDbHelper.TABLE_PRODUCT, new String[]{column},
+                TpDbHelper.SEARCH_SELECTION, new String[]{match}, null, null, column,
+                Integer.toString(limit));
+
+        while (cursor.moveToNext()) {
+            suggestions.add(cursor.getString(0));
         }
         cursor.close();
+        return suggestions;
+    }
 
-        return lpm;
+    private static void checkSearchColumn(String column) {
+        if (!Arrays.asList(TpDbHelper.ITEM_NO, TpDbHelper.BRAND, TpDbHelper.SUPPLIER,
+                TpDbHelper.COMMENTS).contains(column)) {
+            throw new IllegalArgumentException("Ukendt søgekolonne: " + column);
+        }
     }
 
     /**
-     * Insert a product row
+     * Select all product summaries ordered
+     *
+     * @param orderColumn Column to order by
+     * @return List of product summaries
      */
-    public void insertData(ProductModel pm) {
-        SQLiteDatabase db = tpDbHelper.getWritableDatabase();
-        ContentValues contentValues = extractData(pm);
-        db.insert(TpDbHelper.TABLE_PRODUCT, null, contentValues);
+    public List<ProductSummary> getProductSummaries(String orderColumn) {
+        SQLiteDatabase db = tpDbHelper.getReadableDatabase();
+
+        Cursor cursor = db.query(TpDbHelper.TABLE_PRODUCT, summaryColumns, null, null, null, null, orderColumn);
+        return readSummaries(cursor);
     }
 
     /**
-     * Insert a supplier row
+     * Select one page of product summaries ordered by brand and UID. Keyset pagination:
+     * the page starts after the last row of the previous page, so the cost of a page
+     * does not grow with the distance from the start of the table. Products without a
+     * brand sort first.
+     *
+     * @param after    Last row of the previous page, null for the first page
+     * @param pageSize Maximum number of rows
+     * @return List of product summaries, shorter than pageSize on the last page
      */
-    public void insertData(SupplierModel sm) {
-        SQLiteDatabase db = tpDbHelper.getWritableDatabase();
-        ContentValues contentValues = extractData(sm);
-        db.insert(TpDbHelper.TABLE_SUPPLIER, null, contentValues);
+    public List<ProductSummary> getProductSummaryPage(ProductSummary after, int pageSize) {
+        SQLiteDatabase db = tpDbHelper.getReadableDatabase();
+        String order = TpDbHelper.BRAND + ", " + TpDbHelper.UID;
+        String limit = Integer.toString(pageSize);
+        Cursor cursor;
+
+        if (after == null) {
+            cursor = db.query(TpDbHelper.TABLE_PRODUCT, summaryColumns, null, null,
+                    null, null, order, limit);
+        } else if (after.brand == null) {
+            // A comparison with NULL is never true, so the rest of the products without a
+            // brand are read first, and then the first products with one
+            String selection = TpDbHelper.BRAND + " IS NULL AND " + TpDbHelper.UID + " > ?";
+            String[] args = {Integer.toString(after.uid)};
+            cursor = db.query(TpDbHelper.TABLE_PRODUCT, summaryColumns, selection, args,
+                    null, null, order, limit);
+            List<ProductSummary> page = readSummaries(cursor);
+
+            if (page.size() < pageSize) {
+                cursor = db.query(TpDbHelper.TABLE_PRODUCT, summaryColumns,
+                        TpDbHelper.BRAND + " IS NOT NULL", null, null, null, order,
+                        Integer.toString(pageSize - page.size()));
+                page.addAll(readSummaries(cursor));
+            }
+            return page;
+        } else {
+            // Written with a leading range on BRAND, so that INDEX_BRAND_UID serves both
+            // the seek and the order
+            String selection = TpDbHelper.BRAND + " >= ? AND (" + TpDbHelper.BRAND + " > ? OR " +
+                    TpDbHelper.UID + " > ?)";
+            String[] args = {after.brand, after.brand, Integer.toString(after.uid)};
+            cursor = db.query(TpDbHelper.TABLE_PRODUCT, summaryColumns, selection, args,
+                    null, null, order, limit);
+        }
+        return readSummaries(cursor);
     }
 
     /**
-     * Select all data from product table
+     * Select the price history of products in time order. Each product row is found through
+     * its own index, and its observations are read as a range of INDEX_PRICE_HISTORY.
      *
-     * @return List of columns in record
+     * @param selection Selection on the product table, e.g. ITEM_NO=?
+     * @param argColumn Selection argument column
+     * @return List of product summaries, one per price observation
      */
-    public List<ProductModel> getProductModels() {
-        List<ProductModel> lpm = new ArrayList<>();
-
+    public List<ProductSummary> getPriceHistory(String selection, String argColumn) {
         SQLiteDatabase db = tpDbHelper.getReadableDatabase();
 
-        Cursor cursor = db.query(TpDbHelper.TABLE_PRODUCT, pdColumns, null,
-                null, null, null, TpDbHelper.BRAND);
+        String[] args = {argColumn};
+        Cursor cursor = db.query(TpDbHelper.PRICE_HISTORY_JOIN, historyColumns, selection, args,
+                null, null, TpDbHelper.TABLE_PRICE + "." + TpDbHelper.TIME_STAMP);
+        return readSummaries(cursor);
+    }
+
+    /**
+     * Read and close a cursor over the summary columns
+     */
+    private static List<ProductSummary> readSummaries(Cursor cursor) {
+        List<ProductSummary> lps = new ArrayList<>(cursor.getCount());
 
+        // Columns are in summaryColumns order
         while (cursor.moveToNext()) {
-            lpm.add(populateProductModel(cursor));
+            lps.add(new ProductSummary(cursor.getInt(0), cursor.getString(1), cursor.getString(2),
+                    cursor.getString(3), cursor.getLong(4), cursor.getLong(5), cursor.getLong(6),
+                    cursor.getString(7)));
         }
         cursor.close();
-        return lpm;
+
+        return lps;
+    }
+
+    /**
+     * Save a price observation. The product is created or brought up to date, and the
+     * price is added to its price history. A second save with the same time stamp
+     * replaces the price observed at that time.
+     */
+    public void insertData(ProductModel pm) {
+        synchronized (tpDbHelper.writeLock) {
+            SQLiteDatabase db = tpDbHelper.getWritableDatabase();
+
+            long uid;
+
+            db.beginTransaction();
+            try {
+                uid = new ObservationWriter(tpDbHelper, db).save(pm);
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+            }
+
+            if (uid != ObservationWriter.SKIPPED) {
+                tpDbHelper.indexProduct(db, uid);
+                tpDbHelper.scanCache.remove(pm.getItemNo());
+            }
+        }
+    }
+
+    /**
+     * Insert a supplier row, or update the chain of an existing supplier
+     */
+    public void insertData(SupplierModel sm) {
+        synchronized (tpDbHelper.writeLock) {
+            SQLiteDatabase db = tpDbHelper.getWritableDatabase();
+            SQLiteStatement update = tpDbHelper.statement(db, TpDbHelper.UPDATE_SUPPLIER);
+            bindString(update, 1, sm.getChain());
+            bindString(update, 2, sm.getSupplier());
+
+            if (update.executeUpdateDelete() == 0) {
+                SQLiteStatement insert = tpDbHelper.statement(db, TpDbHelper.INSERT_SUPPLIER_ROW);
+                bindString(insert, 1, sm.getSupplier());
+                bindString(insert, 2, sm.getChain());
+                insert.executeInsert();
+            }
+        }
     }
 
     /**
      * Do an initial load
      */
     public void doInitialLoad() throws Exception {
+        doInitialLoad(null);
+    }
+
+    /**
+     * Do an initial load, reporting the number of rows inserted after each committed batch
+     *
+     * @param listener Progress listener, may be null
+     */
+    public void doInitialLoad(LoadProgressListener listener) throws Exception {
 //        deleteSupplier("*");
 //        deleteProduct();
-        tpDbHelper.loadInitialData();
+        tpDbHelper.loadInitialData(listener);
+    }
+
+    /**
+     * Fill in the derived fields of products saved before they were computed on save.
+     * Does nothing unless the job has been queued by a database upgrade. Runs for a while
+     * on a large table, so it must be called on a background thread.
+     *
+     * @return Number of products recomputed
+     */
+    public int recomputeDerivedFields() {
+        return tpDbHelper.recomputeDerivedFields(tpDbHelper.getWritableDatabase());
+    }
+
+    /**
+     * Import products from a CSV file, e.g. a supplier price list on external storage.
+     * Columns are mapped by header name. Invalid rows are skipped and listed in the report.
+     * If the product table is not empty, only new price observations are inserted.
+     *
+     * @param reader   CSV source with a header line
+     * @param listener Progress listener, may be null
+     * @return Import report
+     */
+    public ImportReport importProducts(Reader reader, LoadProgressListener listener) throws Exception {
+        SQLiteDatabase db = tpDbHelper.getWritableDatabase();
+        boolean delta = DatabaseUtils.queryNumEntries(db, TpDbHelper.TABLE_PRODUCT) > 0;
+        return tpDbHelper.loadProducts(db, reader, listener, delta);
     }
 
     /**
@@ -186,8 +412,9 @@ public class TPDbAdapter {
         Cursor cursor = db.query(TpDbHelper.TABLE_SUPPLIER, sdColumns, null,
                 null, null, null, TpDbHelper.SUPPLIER);
 
+        SupplierRowMapper mapper = new SupplierRowMapper(cursor);
         while (cursor.moveToNext()) {
-            lsm.add(populateSupplierModel(cursor));
+            lsm.add(mapper.map(cursor));
         }
 
         cursor.close();
@@ -195,116 +422,81 @@ public class TPDbAdapter {
     }
 
     /**
-     * Extract supplier data into content value object
+     * Bind product data to the positional parameters 1 to 28 of a compiled insert or update
+     * statement. The order must match TpDbHelper.INSERT_PRODUCT and TpDbHelper.UPDATE_PRODUCT.
      *
-     * @param sm Supplier model
-     * @return ContentValues
+     * @param statement Compiled statement
+     * @param pm        Product data
+     * @param timestamp Time stamp of the observation
      */
-    private ContentValues extractData(SupplierModel sm) {
-        ContentValues contentValues = new ContentValues();
-        contentValues.put(TpDbHelper.SUPPLIER, sm.getSupplier());
-        contentValues.put(TpDbHelper.CHAIN, sm.getChain());
-//        contentValues.put(TpDbHelper.TIME_STAMP, sm.getTimestamp());
-        return contentValues;
+    static void bindData(SQLiteStatement statement, ProductModel pm, String timestamp) {
+        statement.clearBindings();
+        statement.bindLong(1, pm.getLayers());
+        statement.bindLong(2, pm.getPackageRolls());
+        statement.bindLong(3, pm.getRollSheets());
+        statement.bindLong(4, pm.getSheetWidth());
+        statement.bindLong(5, pm.getSheetLength());
+        statement.bindLong(6, pm.getSheetLength_c());
+        statement.bindDouble(7, pm.getRollLength());
+        statement.bindLong(8, pm.getRollLength_c());
+        statement.bindLong(9, pm.getPackagePrice());
+        statement.bindLong(10, pm.getRollPrice());
+        statement.bindLong(11, pm.getRollPrice_c());
+        statement.bindDouble(12, pm.getPaperWeight());
+        statement.bindLong(13, pm.getPaperWeight_c());
+        statement.bindDouble(14, pm.getPackageWeight());
+        statement.bindLong(15, pm.getPackageWeight_c());
+        statement.bindDouble(16, pm.getRollWeight());
+        statement.bindLong(17, pm.getRollWeight_c());
+        statement.bindLong(18, pm.getKiloPrice());
+        statement.bindLong(19, pm.getKiloPrice_c());
+        statement.bindLong(20, pm.getMeterPrice());
+        statement.bindLong(21, pm.getMeterPrice_c());
+        statement.bindLong(22, pm.getSheetPrice());
+        statement.bindLong(23, pm.getSheetPrice_c());
+        bindString(statement, 24, pm.getSupplier());
+        bindString(statement, 25, pm.getComments());
+        bindString(statement, 26, pm.getItemNo());
+        bindString(statement, 27, pm.getBrand());
+        bindString(statement, 28, timestamp);
     }
 
     /**
-     * Extract product data into Content Value object
-     *
-     * @param pm Product data
-     * @return ContentValues
+     * Bind a string that may be null
      */
-    private ContentValues extractData(ProductModel pm) {
-        ContentValues contentValues = new ContentValues();
-        contentValues.put(TpDbHelper.LAYERS, pm.getLayers());
-        contentValues.put(TpDbHelper.PACKAGE_ROLLS, pm.getPackageRolls());
-        contentValues.put(TpDbHelper.ROLL_SHEETS, pm.getRollSheets());
-        contentValues.put(TpDbHelper.SHEET_WIDTH, pm.getSheetWidth());
-        contentValues.put(TpDbHelper.SHEET_LENGTH, pm.getSheetLength());
-        contentValues.put(TpDbHelper.SHEET_LENGTH_C, pm.getSheetLength_c());
-        contentValues.put(TpDbHelper.ROLL_LENGTH, pm.getRollLength());
-        contentValues.put(TpDbHelper.ROLL_LENGTH_C, pm.getRollLength_c());
-        contentValues.put(TpDbHelper.PACKAGE_PRICE, pm.getPackagePrice());
-        contentValues.put(TpDbHelper.ROLL_PRICE, pm.getRollPrice());
-        contentValues.put(TpDbHelper.ROLL_PRICE_C, pm.getRollPrice_c());
-        contentValues.put(TpDbHelper.PAPER_WEIGHT, pm.getPaperWeight());
-        contentValues.put(TpDbHelper.PAPER_WEIGHT_C, pm.getPaperWeight_c());
-        contentValues.put(TpDbHelper.PACKAGE_WEIGHT, pm.getPackageWeight());
-        contentValues.put(TpDbHelper.PACKAGE_WEIGHT_C, pm.getPackageWeight_c());
-        contentValues.put(TpDbHelper.ROLL_WEIGHT, pm.getRollWeight());
-        contentValues.put(TpDbHelper.ROLL_WEIGHT_C, pm.getRollWeight_c());
-        contentValues.put(TpDbHelper.KILO_PRICE, pm.getKiloPrice());
-        contentValues.put(TpDbHelper.KILO_PRICE_C, pm.getKiloPrice_c());
-        contentValues.put(TpDbHelper.METER_PRICE, pm.getMeterPrice());
-        contentValues.put(TpDbHelper.METER_PRICE_C, pm.getMeterPrice_c());
-        contentValues.put(TpDbHelper.SHEET_PRICE, pm.getSheetPrice());
-        contentValues.put(TpDbHelper.SHEET_PRICE_C, pm.getSheetPrice_c());
-        contentValues.put(TpDbHelper.SUPPLIER, pm.getSupplier());
-        contentValues.put(TpDbHelper.COMMENTS, pm.getComments());
-        contentValues.put(TpDbHelper.ITEM_NO, pm.getItemNo());
-        contentValues.put(TpDbHelper.BRAND, pm.getBrand());
-        return contentValues;
+    private static void bindString(SQLiteStatement statement, int index, String value) {
+        if (value == null) {
+            statement.bindNull(index);
+        } else {
+            statement.bindString(index, value);
+        }
     }
 
     /**
-     * Populate supplier data from database table
-     *
-     * @param cursor Database cursor
-     * @return Supplier data
+     * Delete a product and its price history
      */
-    private SupplierModel populateSupplierModel(Cursor cursor) {
-        SupplierModel sm = new SupplierModel();
-        sm.setSupplier(cursor.getString(cursor.getColumnIndex(TpDbHelper.SUPPLIER)));
-        sm.setChain(cursor.getString(cursor.getColumnIndex(TpDbHelper.CHAIN)));
-        sm.setTimestamp(cursor.getString(cursor.getColumnIndex(TpDbHelper.TIME_STAMP)));
-        return sm;
-    }
+    public void deleteProduct(int uid) throws Exception {
+        int rows;
 
-    /**
-     * Populate product data from database table
-     *
-     * @param cursor Database cursor
-     * @return product data
-     */
-    private ProductModel populateProductModel(Cursor cursor) {
-        ProductModel pm = new ProductModel();
-        pm.setUid(cursor.getInt(cursor.getColumnIndex(TpDbHelper.UID)));
-        pm.setLayers(cursor.getInt(cursor.getColumnIndex(TpDbHelper.LAYERS)));
-        pm.setPackageRolls(cursor.getInt(cursor.getColumnIndex(TpDbHelper.PACKAGE_ROLLS)));
-        pm.setRollSheets(cursor.getInt(cursor.getColumnIndex(TpDbHelper.ROLL_SHEETS)));
-        pm.setSheetWidth(cursor.getInt(cursor.getColumnIndex(TpDbHelper.SHEET_WIDTH)));
-        pm.setSheetLength(cursor.getInt(cursor.getColumnIndex(TpDbHelper.SHEET_LENGTH)));
-        pm.setSheetLength_c(cursor.getInt(cursor.getColumnIndex(TpDbHelper.SHEET_LENGTH_C)));
-        pm.setRollLength(cursor.getInt(cursor.getColumnIndex(TpDbHelper.ROLL_LENGTH)));
-        pm.setRollLength_c(cursor.getInt(cursor.getColumnIndex(TpDbHelper.ROLL_LENGTH_C)));
-        pm.setPackagePrice(cursor.getFloat(cursor.getColumnIndex(TpDbHelper.PACKAGE_PRICE)));
-        pm.setRollPrice(cursor.getFloat(cursor.getColumnIndex(TpDbHelper.ROLL_PRICE)));
-        pm.setRollPrice_c(cursor.getInt(cursor.getColumnIndex(TpDbHelper.ROLL_PRICE_C)));
-        pm.setPaperWeight(cursor.getFloat(cursor.getColumnIndex(TpDbHelper.PAPER_WEIGHT)));
-        pm.setPaperWeight_c(cursor.getInt(cursor.getColumnIndex(TpDbHelper.PAPER_WEIGHT_C)));
-        pm.setPackageWeight(cursor.getFloat(cursor.getColumnIndex(TpDbHelper.PACKAGE_WEIGHT)));
-        pm.setPackageWeight_c(cursor.getInt(cursor.getColumnIndex(TpDbHelper.PACKAGE_WEIGHT_C)));
-        pm.setRollWeight(cursor.getFloat(cursor.getColumnIndex(TpDbHelper.ROLL_WEIGHT)));
-        pm.setRollWeight_c(cursor.getInt(cursor.getColumnIndex(TpDbHelper.ROLL_WEIGHT_C)));
-        pm.setKiloPrice(cursor.getFloat(cursor.getColumnIndex(TpDbHelper.KILO_PRICE)));
-        pm.setKiloPrice_c(cursor.getInt(cursor.getColumnIndex(TpDbHelper.KILO_PRICE_C)));
-        pm.setMeterPrice(cursor.getFloat(cursor.getColumnIndex(TpDbHelper.METER_PRICE)));
-        pm.setMeterPrice_c(cursor.getInt(cursor.getColumnIndex(TpDbHelper.METER_PRICE_C)));
-        pm.setSheetPrice(cursor.getFloat(cursor.getColumnIndex(TpDbHelper.SHEET_PRICE)));
-        pm.setSheetPrice_c(cursor.getInt(cursor.getColumnIndex(TpDbHelper.SHEET_PRICE_C)));
-        pm.setSupplier(cursor.getString(cursor.getColumnIndex(TpDbHelper.SUPPLIER)));
-        pm.setComments(cursor.getString(cursor.getColumnIndex(TpDbHelper.COMMENTS)));
-        pm.setItemNo(cursor.getString(cursor.getColumnIndex(TpDbHelper.ITEM_NO)));
-        pm.setBrand(cursor.getString(cursor.getColumnIndex(TpDbHelper.BRAND)));
-        pm.setTimestamp(cursor.getString(cursor.getColumnIndex(TpDbHelper.TIME_STAMP)));
-        return pm;
-    }
+        synchronized (tpDbHelper.writeLock) {
+            SQLiteDatabase db = tpDbHelper.getWritableDatabase();
+            SQLiteStatement deletePrices = tpDbHelper.statement(db, TpDbHelper.DELETE_PRICES);
+            SQLiteStatement deleteProduct = tpDbHelper.statement(db, TpDbHelper.DELETE_PRODUCT);
+            deletePrices.bindLong(1, uid);
+            deleteProduct.bindLong(1, uid);
+
+            db.beginTransaction();
+            try {
+                deletePrices.executeUpdateDelete();
+                rows = deleteProduct.executeUpdateDelete();
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+            }
+            tpDbHelper.unindexProduct(uid);
+            tpDbHelper.scanCache.clear();
+        }
 
-    public void deleteProduct(int uid) throws Exception {
-        SQLiteDatabase db = tpDbHelper.getWritableDatabase();
-        String s = uid + "";
-        String[] whereArgs = {s};
-        int rows = db.delete(TpDbHelper.TABLE_PRODUCT, TpDbHelper.UID + " = ?", whereArgs);
         if (rows == 0)
             throw new Exception("Ingen produkter slettet med løbenummer " + uid);
     }
@@ -317,38 +509,162 @@ public class TPDbAdapter {
 // --Commented out by Inspection STOP (31-05-2020 12:07)
 
     public void deleteSupplier(String supplier) {
-        SQLiteDatabase db = tpDbHelper.getWritableDatabase();
-        String[] whereArgs = {supplier};
-        if (supplier.equals("*")) {
-            db.delete(TpDbHelper.TABLE_SUPPLIER, null, null);
-        } else {
-            db.delete(TpDbHelper.TABLE_SUPPLIER, TpDbHelper.SUPPLIER + " = ?", whereArgs);
+        synchronized (tpDbHelper.writeLock) {
+            SQLiteDatabase db = tpDbHelper.getWritableDatabase();
+
+            if (supplier.equals("*")) {
+                tpDbHelper.statement(db, TpDbHelper.DELETE_ALL_SUPPLIERS).executeUpdateDelete();
+            } else {
+                SQLiteStatement statement = tpDbHelper.statement(db, TpDbHelper.DELETE_SUPPLIER);
+                statement.bindString(1, supplier);
+                statement.executeUpdateDelete();
+            }
         }
     }
 
-    public List<ProductModel> getProductModelsSorted(String sortKey, String sortFilter) {
-        Cursor cursor;
-        List<ProductModel> lpm = new ArrayList<>();
+    /**
+     * Select one page of a ranking, best first: the heaviest paper, or the lowest unit price.
+     * Products where the metric is unknown, stored as zero, are not ranked. Each ranking is
+     * kept in order by its own partial index, with and without the supplier, which SQLite
+     * updates on every insert, update and delete. A page is read as a range of the index
+     * starting after the last row of the previous page, without sorting the table.
+     *
+     * @param sortKey    PAPER_WEIGHT, KILO_PRICE, METER_PRICE or SHEET_PRICE
+     * @param sortFilter Supplier, or CompareFragment.ALL
+     * @param after      Last product of the previous page, null for the first page
+     * @param pageSize   Maximum number of rows
+     * @return Products with the ranking columns, shorter than pageSize on the last page
+     */
+    public List<ProductModel> getRankingPage(String sortKey, String sortFilter, ProductModel after, int pageSize) {
         SQLiteDatabase db = tpDbHelper.getReadableDatabase();
+        StringBuilder selection = new StringBuilder(sortKey).append(" > 0");
+        List<String> args = new ArrayList<>(4);
 
-        if (sortFilter.equals(CompareFragment.ALL)) {
-            cursor = db.query(TpDbHelper.TABLE_PRODUCT, pdColumns, null,
-                    null, null, null, sortKey + " DESC");
-        } else {
-            String[] args = {sortFilter};
-            cursor = db.query(TpDbHelper.TABLE_PRODUCT, pdColumns, "SUPPLIER=?", args,
-                    null, null, sortKey + " DESC");
+        if (!sortFilter.equals(CompareFragment.ALL)) {
+            selection.append(" AND ").append(TpDbHelper.SUPPLIER).append(" = ?");
+            args.add(sortFilter);
         }
 
-        while (cursor.moveToNext()) {
-            lpm.add(populateProductModel(cursor));
+        if (after != null) {
+            // Written like the product pages, with a leading range on the metric
+            String value = rankValue(sortKey, after);
+            String beyond = TpDbHelper.isDescending(sortKey) ? "<" : ">";
+            selection.append(" AND ").append(sortKey).append(' ').append(beyond).append("= ? AND (")
+                    .append(sortKey).append(' ').append(beyond).append(" ? OR ")
+                    .append(TpDbHelper.UID).append(" > ?)");
+            args.add(value);
+            args.add(value);
+            args.add(Integer.toString(after.getUid()));
         }
 
+        Cursor cursor = db.query(TpDbHelper.TABLE_PRODUCT, rankColumns, selection.toString(),
+                args.toArray(new String[0]), null, null, TpDbHelper.rankOrder(sortKey),
+                Integer.toString(pageSize));
+        List<ProductModel> lpm = new ArrayList<>(cursor.getCount());
+        ProductRowMapper mapper = new ProductRowMapper(cursor);
+
+        while (cursor.moveToNext()) {
+            lpm.add(mapper.map(cursor));
+        }
         cursor.close();
 
         return lpm;
     }
 
+    /**
+     * Get the best products by a metric. The ranked metrics are read from their ranking
+     * index with a limit. Other metrics have no index, so their rows are streamed and only
+     * the best are kept in a bounded heap instead of sorting the whole table.
+     *
+     * @param sortKey    Metric column
+     * @param sortFilter Supplier, or CompareFragment.ALL
+     * @param count      Number of products wanted
+     * @return At most count products in rank order. Products where the metric is unknown
+     * are left out
+     */
+    public List<ProductModel> getTopProducts(String sortKey, String sortFilter, int count) {
+        if (TpDbHelper.isRanked(sortKey)) {
+            return getRankingPage(sortKey, sortFilter, null, count);
+        }
+
+        if (!Arrays.asList(pdColumns).contains(sortKey)) {
+            throw new IllegalArgumentException("Ukendt sorteringsnøgle: " + sortKey);
+        }
+
+        if (count <= 0) {
+            return new ArrayList<>();
+        }
+
+        SQLiteDatabase db = tpDbHelper.getReadableDatabase();
+        String selection = sortKey + " > 0";
+        String[] args = null;
+
+        if (!sortFilter.equals(CompareFragment.ALL)) {
+            selection += " AND " + TpDbHelper.SUPPLIER + " = ?";
+            args = new String[]{sortFilter};
+        }
+
+        String[] columns = Arrays.copyOf(rankColumns, rankColumns.length + 1);
+        columns[rankColumns.length] = sortKey;
+        final boolean descending = TpDbHelper.isDescending(sortKey);
+
+        // The worst product kept is at the head of the heap
+        PriorityQueue<RankedProduct> heap = new PriorityQueue<>(count + 1, new Comparator<RankedProduct>() {
+            @Override
+            public int compare(RankedProduct a, RankedProduct b) {
+                return b.compareTo(a, descending);
+            }
+        });
+        Cursor cursor = db.query(TpDbHelper.TABLE_PRODUCT, columns, selection, args,
+                null, null, null);
+        ProductRowMapper mapper = new ProductRowMapper(cursor);
+        int valueIndex = cursor.getColumnIndex(sortKey);
+        int uidIndex = cursor.getColumnIndex(TpDbHelper.UID);
+
+        while (cursor.moveToNext()) {
+            double value = cursor.getDouble(valueIndex);
+            int uid = cursor.getInt(uidIndex);
+
+            // Rows that would not make the list are skipped before they are mapped
+            if ((heap.size() == count) && !heap.peek().isWorseThan(value, uid, descending)) {
+                continue;
+            }
+            heap.add(new RankedProduct(value, mapper.map(cursor)));
+
+            if (heap.size() > count) {
+                heap.poll();
+            }
+        }
+        cursor.close();
+
+        // Polled worst first
+        ProductModel[] top = new ProductModel[heap.size()];
+
+        for (int i = top.length - 1; i >= 0; i--) {
+            top[i] = heap.poll().pm;
+        }
+        return Arrays.asList(top);
+    }
+
+    /**
+     * @return The ranked metric of a product, as a selection argument
+     */
+    private static String rankValue(String sortKey, ProductModel pm) {
+        switch (sortKey) {
+            case TpDbHelper.PAPER_WEIGHT:
+                // Exact, as the float is stored as this double
+                return Double.toString(pm.getPaperWeight());
+            case TpDbHelper.KILO_PRICE:
+                return Long.toString(pm.getKiloPrice());
+            case TpDbHelper.METER_PRICE:
+                return Long.toString(pm.getMeterPrice());
+            case TpDbHelper.SHEET_PRICE:
+                return Long.toString(pm.getSheetPrice());
+            default:
+                throw new IllegalArgumentException("Ukendt sorteringsnøgle: " + sortKey);
+        }
+    }
+
     public List<SupplierModel> getSupplierModels(String selection, String supplier) {
         List<SupplierModel> lsm = new ArrayList<>();
 
@@ -360,13 +676,398 @@ public class TPDbAdapter {
 
         if (cursor.getCount() > 0) {
             if (cursor.moveToNext()) {
-                lsm.add(populateSupplierModel(cursor));
+                lsm.add(new SupplierRowMapper(cursor).map(cursor));
             }
         }
         cursor.close();
         return lsm;
     }
 
+    /**
+     * A product and the metric it is ranked by
+     */
+    private static class RankedProduct {
+        private final double value;
+        private final ProductModel pm;
+
+        RankedProduct(double value, ProductModel pm) {
+            this.value = value;
+            this.pm = pm;
+        }
+
+        /**
+         * @return true if this ranks after a product with the given metric and UID
+         */
+        boolean isWorseThan(double otherValue, int otherUid, boolean descending) {
+            int order = Double.compare(value, otherValue);
+            order = descending ? -order : order;
+            return (order > 0) || ((order == 0) && (pm.getUid() > otherUid));
+        }
+
+        /**
+         * @return Negative if this ranks before the other product
+         */
+        int compareTo(RankedProduct other, boolean descending) {
+            if (isWorseThan(other.value, other.pm.getUid(), descending)) {
+                return 1;
+            }
+            return (pm.getUid() == other.pm.getUid()) ? 0 : -1;
+        }
+    }
+
+    /**
+     * Maps cursor rows to product data. Column indices are resolved once per cursor,
+     * so rows are decoded without name lookups. Columns missing from the projection
+     * keep their default values.
+     */
+    static final class ProductRowMapper {
+        private final int uid;
+        private final int layers;
+        private final int packageRolls;
+        private final int rollSheets;
+        private final int sheetWidth;
+        private final int sheetLength;
+        private final int sheetLength_c;
+        private final int rollLength;
+        private final int rollLength_c;
+        private final int packagePrice;
+        private final int rollPrice;
+        private final int rollPrice_c;
+        private final int paperWeight;
+        private final int paperWeight_c;
+        private final int packageWeight;
+        private final int packageWeight_c;
+        private final int rollWeight;
+        private final int rollWeight_c;
+        private final int kiloPrice;
+        private final int kiloPrice_c;
+        private final int meterPrice;
+        private final int meterPrice_c;
+        private final int sheetPrice;
+        private final int sheetPrice_c;
+        private final int supplier;
+        private final int comments;
+        private final int itemNo;
+        private final int brand;
+        private final int timestamp;
+
+        ProductRowMapper(Cursor cursor) {
+            uid = cursor.getColumnIndex(TpDbHelper.UID);
+            layers = cursor.getColumnIndex(TpDbHelper.LAYERS);
+            packageRolls = cursor.getColumnIndex(TpDbHelper.PACKAGE_ROLLS);
+            rollSheets = cursor.getColumnIndex(TpDbHelper.ROLL_SHEETS);
+            sheetWidth = cursor.getColumnIndex(TpDbHelper.SHEET_WIDTH);
+            sheetLength = cursor.getColumnIndex(TpDbHelper.SHEET_LENGTH);
+            sheetLength_c = cursor.getColumnIndex(TpDbHelper.SHEET_LENGTH_C);
+            rollLength = cursor.getColumnIndex(TpDbHelper.ROLL_LENGTH);
+            rollLength_c = cursor.getColumnIndex(TpDbHelper.ROLL_LENGTH_C);
+            packagePrice = cursor.getColumnIndex(TpDbHelper.PACKAGE_PRICE);
+            rollPrice = cursor.getColumnIndex(TpDbHelper.ROLL_PRICE);
+            rollPrice_c = cursor.getColumnIndex(TpDbHelper.ROLL_PRICE_C);
+            paperWeight = cursor.getColumnIndex(TpDbHelper.PAPER_WEIGHT);
+            paperWeight_c = cursor.getColumnIndex(TpDbHelper.PAPER_WEIGHT_C);
+            packageWeight = cursor.getColumnIndex(TpDbHelper.PACKAGE_WEIGHT);
+            packageWeight_c = cursor.getColumnIndex(TpDbHelper.PACKAGE_WEIGHT_C);
+            rollWeight = cursor.getColumnIndex(TpDbHelper.ROLL_WEIGHT);
+            rollWeight_c = cursor.getColumnIndex(TpDbHelper.ROLL_WEIGHT_C);
+            kiloPrice = cursor.getColumnIndex(TpDbHelper.KILO_PRICE);
+            kiloPrice_c = cursor.getColumnIndex(TpDbHelper.KILO_PRICE_C);
+            meterPrice = cursor.getColumnIndex(TpDbHelper.METER_PRICE);
+            meterPrice_c = cursor.getColumnIndex(TpDbHelper.METER_PRICE_C);
+            sheetPrice = cursor.getColumnIndex(TpDbHelper.SHEET_PRICE);
+            sheetPrice_c = cursor.getColumnIndex(TpDbHelper.SHEET_PRICE_C);
+            supplier = cursor.getColumnIndex(TpDbHelper.SUPPLIER);
+            comments = cursor.getColumnIndex(TpDbHelper.COMMENTS);
+            itemNo = cursor.getColumnIndex(TpDbHelper.ITEM_NO);
+            brand = cursor.getColumnIndex(TpDbHelper.BRAND);
+            timestamp = cursor.getColumnIndex(TpDbHelper.TIME_STAMP);
+        }
+
+        /**
+         * Populate product data from the current cursor row
+         *
+         * @param cursor Database cursor
+         * @return product data
+         */
+        ProductModel map(Cursor cursor) {
+            ProductModel pm = new ProductModel();
+            if (uid >= 0) pm.setUid(cursor.getInt(uid));
+            if (layers >= 0) pm.setLayers(cursor.getInt(layers));
+            if (packageRolls >= 0) pm.setPackageRolls(cursor.getInt(packageRolls));
+            if (rollSheets >= 0) pm.setRollSheets(cursor.getInt(rollSheets));
+            if (sheetWidth >= 0) pm.setSheetWidth(cursor.getInt(sheetWidth));
+            if (sheetLength >= 0) pm.setSheetLength(cursor.getInt(sheetLength));
+            if (sheetLength_c >= 0) pm.setSheetLength_c(cursor.getInt(sheetLength_c));
+            if (rollLength >= 0) pm.setRollLength(cursor.getFloat(rollLength));
+            if (rollLength_c >= 0) pm.setRollLength_c(cursor.getInt(rollLength_c));
+            if (packagePrice >= 0) pm.setPackagePrice(cursor.getLong(packagePrice));
+            if (rollPrice >= 0) pm.setRollPrice(cursor.getLong(rollPrice));
+            if (rollPrice_c >= 0) pm.setRollPrice_c(cursor.getInt(rollPrice_c));
+            if (paperWeight >= 0) pm.setPaperWeight(cursor.getFloat(paperWeight));
+            if (paperWeight_c >= 0) pm.setPaperWeight_c(cursor.getInt(paperWeight_c));
+            if (packageWeight >= 0) pm.setPackageWeight(cursor.getFloat(packageWeight));
+            if (packageWeight_c >= 0) pm.setPackageWeight_c(cursor.getInt(packageWeight_c));
+            if (rollWeight >= 0) pm.setRollWeight(cursor.getFloat(rollWeight));
+            if (rollWeight_c >= 0) pm.setRollWeight_c(cursor.getInt(rollWeight_c));
+            if (kiloPrice >= 0) pm.setKiloPrice(cursor.getLong(kiloPrice));
+            if (kiloPrice_c >= 0) pm.setKiloPrice_c(cursor.getInt(kiloPrice_c));
+            if (meterPrice >= 0) pm.setMeterPrice(cursor.getLong(meterPrice));
+            if (meterPrice_c >= 0) pm.setMeterPrice_c(cursor.getInt(meterPrice_c));
+            if (sheetPrice >= 0) pm.setSheetPrice(cursor.getLong(sheetPrice));
+            if (sheetPrice_c >= 0) pm.setSheetPrice_c(cursor.getInt(sheetPrice_c));
+            if (supplier >= 0) pm.setSupplier(cursor.getString(supplier));
+            if (comments >= 0) pm.setComments(cursor.getString(comments));
+            if (itemNo >= 0) pm.setItemNo(cursor.getString(itemNo));
+            if (brand >= 0) pm.setBrand(cursor.getString(brand));
+            if (timestamp >= 0) pm.setTimestamp(cursor.getString(timestamp));
+            return pm;
+        }
+    }
+
+    /**
+     * Maps cursor rows to supplier data with column indices resolved once per cursor
+     */
+    static final class SupplierRowMapper {
+        private final int supplier;
+        private final int chain;
+        private final int timestamp;
+
+        SupplierRowMapper(Cursor cursor) {
+            supplier = cursor.getColumnIndex(TpDbHelper.SUPPLIER);
+            chain = cursor.getColumnIndex(TpDbHelper.CHAIN);
+            timestamp = cursor.getColumnIndex(TpDbHelper.TIME_STAMP);
+        }
+
+        /**
+         * Populate supplier data from the current cursor row
+         *
+         * @param cursor Database cursor
+         * @return Supplier data
+         */
+        SupplierModel map(Cursor cursor) {
+            SupplierModel sm = new SupplierModel();
+            sm.setSupplier(cursor.getString(supplier));
+            sm.setChain(cursor.getString(chain));
+            sm.setTimestamp(cursor.getString(timestamp));
+            return sm;
+        }
+    }
+
+    /**
+     * Writes price observations. The product row for (ITEM_NO, SUPPLIER) is inserted or
+     * brought up to date, and the package price is appended to the price history.
+     * The statements come from the statement cache, so the write lock must be held.
+     */
+    static final class ObservationWriter {
+        /**
+         * Returned by write when the observation was already known
+         */
+        static final long SKIPPED = -1;
+        // Same format and time zone as CURRENT_TIMESTAMP
+        static final DateTimeFormatter TIMESTAMP_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+        private final SQLiteStatement selectUid;
+        private final SQLiteStatement selectPlaceholder;
+        private final SQLiteStatement selectPrice;
+        private final SQLiteStatement insertProduct;
+        private final SQLiteStatement updateProduct;
+        private final SQLiteStatement insertPrice;
+        private final SQLiteStatement updatePrice;
+        private final SQLiteStatement deletePrice;
+        private final SQLiteStatement deletePrices;
+        private final SQLiteStatement deleteProduct;
+
+        ObservationWriter(TpDbHelper helper, SQLiteDatabase db) {
+            selectUid = helper.statement(db, TpDbHelper.SELECT_PRODUCT_UID);
+            selectPlaceholder = helper.statement(db, TpDbHelper.SELECT_PLACEHOLDER_UID);
+            selectPrice = helper.statement(db, TpDbHelper.SELECT_PRODUCT_PRICE);
+            insertProduct = helper.statement(db, TpDbHelper.INSERT_PRODUCT);
+            updateProduct = helper.statement(db, TpDbHelper.UPDATE_PRODUCT);
+            insertPrice = helper.statement(db, TpDbHelper.INSERT_PRICE);
+            updatePrice = helper.statement(db, TpDbHelper.UPDATE_PRICE);
+            deletePrice = helper.statement(db, TpDbHelper.DELETE_PRICE);
+            deletePrices = helper.statement(db, TpDbHelper.DELETE_PRICES);
+            deleteProduct = helper.statement(db, TpDbHelper.DELETE_PRODUCT);
+        }
+
+        /**
+         * Write one observation. A product row is only updated by an observation at least
+         * as new as the one it holds, so rows loaded out of order keep the latest price.
+         * The derived fields are computed before the product is written.
+         * <p>
+         * An observation with a placeholder item number is always a new product, as
+         * different products share placeholders such as "?" at the same supplier.
+         * </p>
+         *
+         * @param pm             Product data. A null time stamp means now
+         * @param skipKnownPrice Skip an observation without time stamp, if the package price
+         *                       equals the current price of the product. Skip an observation
+         *                       with a placeholder item number, if a product with the same
+         *                       brand and package price is known at the supplier
+         * @return UID of the product, or SKIPPED
+         */
+        long write(ProductModel pm, boolean skipKnownPrice) {
+            return write(pm, skipKnownPrice, false);
+        }
+
+        /**
+         * Write one observation saved by the user. An observation already known replaces
+         * the package price at its time stamp, and the product row is updated.
+         *
+         * @param pm Product data. A null time stamp means now
+         * @return UID of the product, or SKIPPED
+         */
+        long save(ProductModel pm) {
+            return write(pm, false, true);
+        }
+
+        private long write(ProductModel pm, boolean skipKnownPrice, boolean replace) {
+            if (skipKnownPrice && isPlaceholder(pm.getItemNo()) && isKnownPlaceholder(pm)) {
+                return SKIPPED;
+            }
+
+            String timestamp = pm.getTimestamp() != null ? pm.getTimestamp() :
+                    LocalDateTime.now(ZoneOffset.UTC).format(TIMESTAMP_FORMAT);
+            long uid = findProduct(pm);
+            boolean known = uid != SKIPPED;
+            long priceUid = SKIPPED;
+            ProductCalculator.calculate(pm);
+
+            try {
+                if (!known) {
+                    bindData(insertProduct, pm, timestamp);
+                    uid = insertProduct.executeInsert();
+                } else if (skipKnownPrice && (pm.getTimestamp() == null) && isCurrentPrice(uid, pm)) {
+                    return SKIPPED;
+                }
+
+                insertPrice.clearBindings();
+                insertPrice.bindLong(1, uid);
+                insertPrice.bindLong(2, pm.getPackagePrice());
+                insertPrice.bindString(3, timestamp);
+                priceUid = insertPrice.executeInsert();
+
+                if (priceUid == -1) {
+                    if (!replace) {
+                        return SKIPPED;
+                    }
+
+                    // Rolled back with the save, if the product update fails
+                    updatePrice.bindLong(1, pm.getPackagePrice());
+                    updatePrice.bindLong(2, uid);
+                    updatePrice.bindString(3, timestamp);
+                    updatePrice.executeUpdateDelete();
+                }
+
+                if (known) {
+                    bindData(updateProduct, pm, timestamp);
+                    updateProduct.bindLong(29, uid);
+                    updateProduct.bindString(30, timestamp);
+                    updateProduct.executeUpdateDelete();
+                }
+                return uid;
+            } catch (SQLException e) {
+                undo(known ? SKIPPED : uid, priceUid);
+                throw e;
+            }
+        }
+
+        /**
+         * Undo the part of an observation that was written before a statement failed.
+         * A bulk load skips the row and commits the rest of the batch, so the row must
+         * not leave a product without its price or a price the product does not show.
+         *
+         * @param newUid   UID of a product inserted for the observation, or SKIPPED
+         * @param priceUid UID of the price inserted, or SKIPPED
+         */
+        private void undo(long newUid, long priceUid) {
+            if (newUid > 0) {
+                deletePrices.bindLong(1, newUid);
+                deletePrices.executeUpdateDelete();
+                deleteProduct.bindLong(1, newUid);
+                deleteProduct.executeUpdateDelete();
+            } else if (priceUid > 0) {
+                deletePrice.bindLong(1, priceUid);
+                deletePrice.executeUpdateDelete();
+            }
+        }
+
+        /**
+         * An item number without digits, such as "?" or "test", does not identify a product
+         */
+        static boolean isPlaceholder(String itemNo) {
+            if (itemNo == null) {
+                return true;
+            }
+
+            for (int i = 0; i < itemNo.length(); i++) {
+                if (Character.isDigit(itemNo.charAt(i))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * @return UID of the product with the item number at the supplier, or SKIPPED if
+         * there is none or the item number is a placeholder
+         */
+        private long findProduct(ProductModel pm) {
+            if (isPlaceholder(pm.getItemNo())) {
+                return SKIPPED;
+            }
+
+            bindString(selectUid, 1, pm.getItemNo());
+            bindString(selectUid, 2, pm.getSupplier());
+
+            try {
+                return selectUid.simpleQueryForLong();
+            } catch (SQLiteDoneException e) {
+                return SKIPPED;
+            }
+        }
+
+        /**
+         * Test if a product with the placeholder item number, brand and package price
+         * is known at the supplier
+         */
+        private boolean isKnownPlaceholder(ProductModel pm) {
+            bindString(selectPlaceholder, 1, pm.getItemNo());
+            bindString(selectPlaceholder, 2, pm.getSupplier());
+            bindString(selectPlaceholder, 3, pm.getBrand());
+            selectPlaceholder.bindLong(4, pm.getPackagePrice());
+
+            try {
+                selectPlaceholder.simpleQueryForLong();
+                return true;
+            } catch (SQLiteDoneException e) {
+                return false;
+            }
+        }
+
+        /**
+         * Test if the package price equals the current price of the product
+         */
+        private boolean isCurrentPrice(long uid, ProductModel pm) {
+            selectPrice.bindLong(1, uid);
+
+            try {
+                return selectPrice.simpleQueryForLong() == pm.getPackagePrice();
+            } catch (SQLiteDoneException e) {
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Callback for progress reporting during the initial load
+     */
+    public interface LoadProgressListener {
+        /**
+         * @param rows Number of rows committed so far
+         */
+        void onProgress(int rows);
+    }
+
     /**
      * Inner helper class
      */
@@ -404,7 +1105,16 @@ public class TPDbAdapter {
         private static final String TIME_STAMP = "TIME_STAMP";
         private static final String TABLE_SUPPLIER = "TABLE_SUPPLIER";
         private static final String CHAIN = "CHAIN";
-        private static final int DATABASE_Version = 5;    // Database Version
+        private static final String TABLE_PRICE = "TABLE_PRICE";
+        private static final String PRODUCT_UID = "PRODUCT_UID";
+        private static final String INDEX_PRODUCT_KEY = "INDEX_PRODUCT_KEY";
+        private static final String INDEX_PRICE_HISTORY = "INDEX_PRICE_HISTORY";
+        private static final String TABLE_JOB = "TABLE_JOB";
+        private static final String JOB = "JOB";
+        private static final String LAST_UID = "LAST_UID";
+        static final String RECOMPUTE_JOB = "RECOMPUTE_DERIVED";
+        private static final String TABLE_SEARCH = "TABLE_SEARCH";
+        private static final int DATABASE_Version = 13;    // Database Version
         private static final String CREATE_PRODUCT_TABLE = "CREATE TABLE IF NOT EXISTS " + TABLE_PRODUCT +
                 " (" + UID + " INTEGER PRIMARY KEY AUTOINCREMENT, " +
                 LAYERS + " INTEGER, " +
@@ -415,8 +1125,8 @@ public class TPDbAdapter {
                 SHEET_LENGTH_C + " INTEGER, " +
                 ROLL_LENGTH + " NUMERIC, " +
                 ROLL_LENGTH_C + " INTEGER, " +
-                PACKAGE_PRICE + " NUMERIC, " +
-                ROLL_PRICE + " NUMERIC, " +
+                PACKAGE_PRICE + " INTEGER, " +
+                ROLL_PRICE + " INTEGER, " +
                 ROLL_PRICE_C + " INTEGER, " +
                 PAPER_WEIGHT + " NUMERIC, " +
                 PAPER_WEIGHT_C + " INTEGER, " +
@@ -424,11 +1134,11 @@ public class TPDbAdapter {
                 PACKAGE_WEIGHT_C + " INTEGER, " +
                 ROLL_WEIGHT + " NUMERIC, " +
                 ROLL_WEIGHT_C + " INTEGER, " +
-                KILO_PRICE + " NUMERIC, " +
+                KILO_PRICE + " INTEGER, " +
                 KILO_PRICE_C + " INTEGER, " +
-                METER_PRICE + " NUMERIC, " +
+                METER_PRICE + " INTEGER, " +
                 METER_PRICE_C + " INTEGER, " +
-                SHEET_PRICE + " NUMERIC, " +
+                SHEET_PRICE + " INTEGER, " +
                 SHEET_PRICE_C + " INTEGER, " +
                 SUPPLIER + " TEXT, " +
                 COMMENTS + " TEXT, " +
@@ -436,143 +1146,693 @@ public class TPDbAdapter {
                 BRAND + " TEXT, " +
                 TIME_STAMP + " TIMESTAMP DEFAULT CURRENT_TIMESTAMP);";
 
+        // Append-only price history. The supplier is part of the product key, so an observation
+        // only needs the product, the price and the time
+        private static final String CREATE_PRICE_TABLE = "CREATE TABLE IF NOT EXISTS " + TABLE_PRICE +
+                " (" + UID + " INTEGER PRIMARY KEY, " +
+                PRODUCT_UID + " INTEGER NOT NULL, " +
+                PACKAGE_PRICE + " INTEGER, " +
+                TIME_STAMP + " TIMESTAMP DEFAULT CURRENT_TIMESTAMP);";
+
         private static final String DROP_PRODUCT_TABLE = "DROP TABLE IF EXISTS " + TABLE_PRODUCT;
+        private static final String DROP_PRICE_TABLE = "DROP TABLE IF EXISTS " + TABLE_PRICE;
         private static final String CREATE_SUPPLIER_TABLE = "CREATE TABLE IF NOT EXISTS " + TABLE_SUPPLIER +
                 " (" + SUPPLIER + " TEXT PRIMARY KEY, " +
                 CHAIN + " TEXT, " +
                 TIME_STAMP + " TIMESTAMP DEFAULT CURRENT_TIMESTAMP);";
 
         private static final String DROP_SUPPLIER_TABLE = "DROP TABLE IF EXISTS " + TABLE_SUPPLIER;
+        // Queued maintenance jobs, each with the UID of the last product it has done
+        private static final String CREATE_JOB_TABLE = "CREATE TABLE IF NOT EXISTS " + TABLE_JOB +
+                " (" + JOB + " TEXT PRIMARY KEY, " +
+                LAST_UID + " INTEGER NOT NULL);";
+        private static final String DROP_JOB_TABLE = "DROP TABLE IF EXISTS " + TABLE_JOB;
+        // Full text index of the product text columns. The text is kept in TABLE_PRODUCT only,
+        // and the triggers keep the index in step with it. Tokens are folded to lower case
+        // without diacritics, and prefixes of two and three characters are indexed
+        private static final String CREATE_SEARCH_TABLE = "CREATE VIRTUAL TABLE IF NOT EXISTS " + TABLE_SEARCH +
+                " USING fts4(content=\"" + TABLE_PRODUCT + "\", " + ITEM_NO + ", " + BRAND + ", " +
+                SUPPLIER + ", " + COMMENTS + ", tokenize=unicode61, prefix=\"2,3\")";
+        private static final String DROP_SEARCH_TABLE = "DROP TABLE IF EXISTS " + TABLE_SEARCH;
+        // Only a change of the text columns touches the index, not a new price
+        private static final String SEARCH_TEXT_CHANGED = " WHEN old." + ITEM_NO + " IS NOT new." + ITEM_NO +
+                " OR old." + BRAND + " IS NOT new." + BRAND + " OR old." + SUPPLIER + " IS NOT new." + SUPPLIER +
+                " OR old." + COMMENTS + " IS NOT new." + COMMENTS;
+        private static final String INSERT_SEARCH_ROW = " INSERT INTO " + TABLE_SEARCH + " (docid, " + ITEM_NO + ", " +
+                BRAND + ", " + SUPPLIER + ", " + COMMENTS + ") VALUES (new." + UID + ", new." + ITEM_NO +
+                ", new." + BRAND + ", new." + SUPPLIER + ", new." + COMMENTS + "); END";
+        private static final String DELETE_SEARCH_ROW = " DELETE FROM " + TABLE_SEARCH +
+                " WHERE docid = old." + UID + "; END";
+        private static final String[] CREATE_SEARCH_TRIGGERS = {
+                "CREATE TRIGGER IF NOT EXISTS TRIGGER_SEARCH_INSERT AFTER INSERT ON " + TABLE_PRODUCT +
+                        " BEGIN" + INSERT_SEARCH_ROW,
+                "CREATE TRIGGER IF NOT EXISTS TRIGGER_SEARCH_UPDATE_BEFORE BEFORE UPDATE ON " + TABLE_PRODUCT +
+                        SEARCH_TEXT_CHANGED + " BEGIN" + DELETE_SEARCH_ROW,
+                "CREATE TRIGGER IF NOT EXISTS TRIGGER_SEARCH_UPDATE_AFTER AFTER UPDATE ON " + TABLE_PRODUCT +
+                        SEARCH_TEXT_CHANGED + " BEGIN" + INSERT_SEARCH_ROW,
+                "CREATE TRIGGER IF NOT EXISTS TRIGGER_SEARCH_DELETE BEFORE DELETE ON " + TABLE_PRODUCT +
+                        " BEGIN" + DELETE_SEARCH_ROW};
+        // Products with a search index match, as a selection on TABLE_PRODUCT
+        private static final String SEARCH_SELECTION = UID + " IN (SELECT docid FROM " + TABLE_SEARCH +
+                " WHERE " + TABLE_SEARCH + " MATCH ?)";
+        private static final String INSERT_PRODUCT_COLUMNS = " INTO " + TABLE_PRODUCT +
+                " (" + LAYERS + ", " + PACKAGE_ROLLS + ", " + ROLL_SHEETS + ", " + SHEET_WIDTH + ", " +
+                SHEET_LENGTH + ", " + SHEET_LENGTH_C + ", " + ROLL_LENGTH + ", " + ROLL_LENGTH_C + ", " +
+                PACKAGE_PRICE + ", " + ROLL_PRICE + ", " + ROLL_PRICE_C + ", " +
+                PAPER_WEIGHT + ", " + PAPER_WEIGHT_C + ", " + PACKAGE_WEIGHT + ", " + PACKAGE_WEIGHT_C + ", " +
+                ROLL_WEIGHT + ", " + ROLL_WEIGHT_C + ", " + KILO_PRICE + ", " + KILO_PRICE_C + ", " +
+                METER_PRICE + ", " + METER_PRICE_C + ", " + SHEET_PRICE + ", " + SHEET_PRICE_C + ", " +
+                SUPPLIER + ", " + COMMENTS + ", " + ITEM_NO + ", " + BRAND + ", " + TIME_STAMP + ")" +
+                " VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+        static final String INSERT_PRODUCT = "INSERT" + INSERT_PRODUCT_COLUMNS;
+        // Same column order as INSERT_PRODUCT, followed by the UID and the observation time stamp
+        private static final String UPDATE_PRODUCT = "UPDATE " + TABLE_PRODUCT + " SET " +
+                LAYERS + " = ?, " + PACKAGE_ROLLS + " = ?, " + ROLL_SHEETS + " = ?, " + SHEET_WIDTH + " = ?, " +
+                SHEET_LENGTH + " = ?, " + SHEET_LENGTH_C + " = ?, " + ROLL_LENGTH + " = ?, " +
+                ROLL_LENGTH_C + " = ?, " + PACKAGE_PRICE + " = ?, " + ROLL_PRICE + " = ?, " +
+                ROLL_PRICE_C + " = ?, " + PAPER_WEIGHT + " = ?, " + PAPER_WEIGHT_C + " = ?, " +
+                PACKAGE_WEIGHT + " = ?, " + PACKAGE_WEIGHT_C + " = ?, " + ROLL_WEIGHT + " = ?, " +
+                ROLL_WEIGHT_C + " = ?, " + KILO_PRICE + " = ?, " + KILO_PRICE_C + " = ?, " +
+                METER_PRICE + " = ?, " + METER_PRICE_C + " = ?, " + SHEET_PRICE + " = ?, " +
+                SHEET_PRICE_C + " = ?, " + SUPPLIER + " = ?, " + COMMENTS + " = ?, " + ITEM_NO + " = ?, " +
+                BRAND + " = ?, " + TIME_STAMP + " = ? WHERE " + UID + " = ? AND " + TIME_STAMP + " <= ?";
+        // IS, so a product without supplier is found again
+        private static final String SELECT_PRODUCT_UID = "SELECT " + UID + " FROM " + TABLE_PRODUCT +
+                " WHERE " + ITEM_NO + " IS ? AND " + SUPPLIER + " IS ?";
+        private static final String SELECT_PLACEHOLDER_UID = SELECT_PRODUCT_UID + " AND " + BRAND +
+                " IS ? AND " + PACKAGE_PRICE + " = ? LIMIT 1";
+        private static final String SELECT_PRODUCT_PRICE = "SELECT " + PACKAGE_PRICE + " FROM " + TABLE_PRODUCT +
+                " WHERE " + UID + " = ?";
+        // Observations already known by (PRODUCT_UID, TIME_STAMP) are skipped
+        private static final String INSERT_PRICE = "INSERT OR IGNORE INTO " + TABLE_PRICE +
+                " (" + PRODUCT_UID + ", " + PACKAGE_PRICE + ", " + TIME_STAMP + ") VALUES (?, ?, ?)";
+        private static final String UPDATE_PRICE = "UPDATE " + TABLE_PRICE + " SET " + PACKAGE_PRICE +
+                " = ? WHERE " + PRODUCT_UID + " = ? AND " + TIME_STAMP + " = ?";
+        private static final String PRICE_HISTORY_JOIN = TABLE_PRODUCT + " JOIN " + TABLE_PRICE + " ON " +
+                TABLE_PRICE + "." + PRODUCT_UID + " = " + TABLE_PRODUCT + "." + UID;
+        // Products by item number and supplier. Not unique, as products with a placeholder
+        // item number share it
+        private static final String CREATE_PRODUCT_KEY_INDEX = "CREATE INDEX IF NOT EXISTS " +
+                INDEX_PRODUCT_KEY + " ON " + TABLE_PRODUCT + " (" + ITEM_NO + ", " + SUPPLIER + ")";
+        // Unique observations, and the price history of a product as one range
+        private static final String CREATE_PRICE_HISTORY_INDEX = "CREATE UNIQUE INDEX IF NOT EXISTS " +
+                INDEX_PRICE_HISTORY + " ON " + TABLE_PRICE + " (" + PRODUCT_UID + ", " + TIME_STAMP + ")";
+        // Secondary indexes for the access paths of the screens. Text searches use TABLE_SEARCH
+        private static final String[] CREATE_INDEXES = {
+                "CREATE INDEX IF NOT EXISTS INDEX_BRAND ON " + TABLE_PRODUCT +
+                        " (" + BRAND + ", " + TIME_STAMP + ")",
+                // Rankings of the compare screens, in rankOrder. Products where the metric
+                // is unknown are left out
+                "CREATE INDEX IF NOT EXISTS INDEX_RANK_PAPER_WEIGHT ON " + TABLE_PRODUCT +
+                        " (" + PAPER_WEIGHT + " DESC, " + UID + ") WHERE " + PAPER_WEIGHT + " > 0",
+                "CREATE INDEX IF NOT EXISTS INDEX_RANK_KILO_PRICE ON " + TABLE_PRODUCT +
+                        " (" + KILO_PRICE + ", " + UID + ") WHERE " + KILO_PRICE + " > 0",
+                "CREATE INDEX IF NOT EXISTS INDEX_RANK_METER_PRICE ON " + TABLE_PRODUCT +
+                        " (" + METER_PRICE + ", " + UID + ") WHERE " + METER_PRICE + " > 0",
+                "CREATE INDEX IF NOT EXISTS INDEX_RANK_SHEET_PRICE ON " + TABLE_PRODUCT +
+                        " (" + SHEET_PRICE + ", " + UID + ") WHERE " + SHEET_PRICE + " > 0",
+                "CREATE INDEX IF NOT EXISTS INDEX_RANK_SUPPLIER_PAPER_WEIGHT ON " + TABLE_PRODUCT +
+                        " (" + SUPPLIER + ", " + PAPER_WEIGHT + " DESC, " + UID + ") WHERE " + PAPER_WEIGHT + " > 0",
+                "CREATE INDEX IF NOT EXISTS INDEX_RANK_SUPPLIER_KILO_PRICE ON " + TABLE_PRODUCT +
+                        " (" + SUPPLIER + ", " + KILO_PRICE + ", " + UID + ") WHERE " + KILO_PRICE + " > 0",
+                "CREATE INDEX IF NOT EXISTS INDEX_RANK_SUPPLIER_METER_PRICE ON " + TABLE_PRODUCT +
+                        " (" + SUPPLIER + ", " + METER_PRICE + ", " + UID + ") WHERE " + METER_PRICE + " > 0",
+                "CREATE INDEX IF NOT EXISTS INDEX_RANK_SUPPLIER_SHEET_PRICE ON " + TABLE_PRODUCT +
+                        " (" + SUPPLIER + ", " + SHEET_PRICE + ", " + UID + ") WHERE " + SHEET_PRICE + " > 0",
+                "CREATE INDEX IF NOT EXISTS INDEX_BRAND_UID ON " + TABLE_PRODUCT +
+                        " (" + BRAND + ", " + UID + ")"};
+        private static final String INSERT_SUPPLIER = "INSERT OR IGNORE INTO " + TABLE_SUPPLIER +
+                " (" + SUPPLIER + ", " + CHAIN + ") VALUES (?, ?)";
+        private static final String INSERT_SUPPLIER_ROW = "INSERT INTO " + TABLE_SUPPLIER +
+                " (" + SUPPLIER + ", " + CHAIN + ") VALUES (?, ?)";
+        private static final String UPDATE_SUPPLIER = "UPDATE " + TABLE_SUPPLIER + " SET " + CHAIN + " = ?, " +
+                TIME_STAMP + " = CURRENT_TIMESTAMP WHERE " + SUPPLIER + " = ?";
+        private static final String DELETE_SUPPLIER = "DELETE FROM " + TABLE_SUPPLIER + " WHERE " + SUPPLIER + " = ?";
+        private static final String DELETE_ALL_SUPPLIERS = "DELETE FROM " + TABLE_SUPPLIER;
+        private static final String DELETE_PRODUCT = "DELETE FROM " + TABLE_PRODUCT + " WHERE " + UID + " = ?";
+        private static final String DELETE_PRICES = "DELETE FROM " + TABLE_PRICE + " WHERE " + PRODUCT_UID + " = ?";
+        private static final String DELETE_PRICE = "DELETE FROM " + TABLE_PRICE + " WHERE " + UID + " = ?";
+        private static final String SELECT_JOB = "SELECT " + LAST_UID + " FROM " + TABLE_JOB + " WHERE " + JOB + " = ?";
+        private static final String UPDATE_JOB = "UPDATE " + TABLE_JOB + " SET " + LAST_UID + " = ? WHERE " + JOB + " = ?";
+        private static final String DELETE_JOB = "DELETE FROM " + TABLE_JOB + " WHERE " + JOB + " = ?";
+        // The inputs and results of ProductCalculator
+        private static final String[] DERIVATION_COLUMNS = {UID, PACKAGE_ROLLS, ROLL_SHEETS, SHEET_WIDTH,
+                SHEET_LENGTH, SHEET_LENGTH_C, ROLL_LENGTH, ROLL_LENGTH_C, PACKAGE_WEIGHT, PACKAGE_WEIGHT_C,
+                ROLL_WEIGHT, ROLL_WEIGHT_C, PAPER_WEIGHT, PAPER_WEIGHT_C, PACKAGE_PRICE, ROLL_PRICE,
+                ROLL_PRICE_C, KILO_PRICE, KILO_PRICE_C, METER_PRICE, METER_PRICE_C, SHEET_PRICE, SHEET_PRICE_C};
+        private static final String UPDATE_DERIVED = "UPDATE " + TABLE_PRODUCT + " SET " +
+                SHEET_LENGTH + " = ?, " + SHEET_LENGTH_C + " = ?, " + ROLL_LENGTH + " = ?, " +
+                ROLL_LENGTH_C + " = ?, " + PACKAGE_WEIGHT + " = ?, " + PACKAGE_WEIGHT_C + " = ?, " +
+                ROLL_WEIGHT + " = ?, " + ROLL_WEIGHT_C + " = ?, " + PAPER_WEIGHT + " = ?, " +
+                PAPER_WEIGHT_C + " = ?, " + ROLL_PRICE + " = ?, " + ROLL_PRICE_C + " = ?, " +
+                KILO_PRICE + " = ?, " + KILO_PRICE_C + " = ?, " + METER_PRICE + " = ?, " +
+                METER_PRICE_C + " = ?, " + SHEET_PRICE + " = ?, " + SHEET_PRICE_C + " = ? WHERE " + UID + " = ?";
+        private static final long NO_JOB = -1;
+        private static final int BATCH_SIZE = 500;
+        // Compiled statements kept per connection
+        private static final int SQL_CACHE_SIZE = 50;
+        // Page cache of the primary connection in KiB, used by imports and migrations
+        private static final int CACHE_SIZE_KIB = 4096;
+        private static final int SCAN_CACHE_SIZE = 100;
+        private static TpDbHelper instance;
+        /**
+         * Held by every write. SQLite allows one writer at a time anyway, and a cached
+         * statement must not be bound by two threads at once.
+         */
+        final Object writeLock = new Object();
         private final Context context;
-        private static final long timeout = 1;
+        // Compiled statements of statementDb by SQL
+        private final Map<String, SQLiteStatement> statements = new HashMap<>();
+        // In-memory indexes by column, built on first use and changed under writeLock
+        private final Map<String, ProductIndex> productIndexes = new ConcurrentHashMap<>();
+        // Latest products of recently scanned item numbers
+        final ProductCache scanCache = new ProductCache(SCAN_CACHE_SIZE);
+        private SQLiteDatabase statementDb;
+        private int batchSize = BATCH_SIZE;
 
         TpDbHelper(Context context) {
             super(context, DATABASE_NAME, null, DATABASE_Version);
             this.context = context;
+            // Readers do not block behind writers, and may run concurrently during imports
+            setWriteAheadLoggingEnabled(true);
+        }
+
+        /**
+         * Get the process wide helper. The database is opened once and kept open,
+         * instead of once per screen.
+         *
+         * @param context Any context. Only the application context is kept
+         * @return Shared helper
+         */
+        static synchronized TpDbHelper getInstance(Context context) {
+            if (instance == null) {
+                instance = new TpDbHelper(context.getApplicationContext());
+            }
+            return instance;
+        }
+
+        /**
+         * Close and forget the shared helper. Tests get a new application context per test.
+         */
+        static synchronized void resetInstance() {
+            if (instance != null) {
+                instance.close();
+                instance = null;
+            }
+        }
+
+        /**
+         * Get a compiled statement, compiling it on first use. The statements are held
+         * for the open database and closed with it. The caller must hold writeLock, and
+         * must bind every parameter before executing, as the previous bindings remain.
+         *
+         * @param db  Open database
+         * @param sql Statement with positional parameters
+         * @return Compiled statement
+         */
+        SQLiteStatement statement(SQLiteDatabase db, String sql) {
+            if (db != statementDb) {
+                closeStatements();
+                statementDb = db;
+            }
+
+            SQLiteStatement statement = statements.get(sql);
+
+            if (statement == null) {
+                statement = db.compileStatement(sql);
+                statements.put(sql, statement);
+            }
+            return statement;
+        }
+
+        private void closeStatements() {
+            for (SQLiteStatement statement : statements.values()) {
+                statement.close();
+            }
+            statements.clear();
+            statementDb = null;
+        }
+
+        /**
+         * Get the in-memory index of a column, building it on first use. The first call
+         * reads the whole column, so it must be made on a background thread.
+         *
+         * @param column ITEM_NO or BRAND
+         * @return Index of the column
+         */
+        ProductIndex productIndex(String column) {
+            ProductIndex index = productIndexes.get(column);
+
+            if (index != null) {
+                return index;
+            }
+
+            // Built under the write lock, so no save is missed between the read and the put
+            synchronized (writeLock) {
+                index = productIndexes.get(column);
+
+                if (index == null) {
+                    Cursor cursor = getReadableDatabase().query(TABLE_PRODUCT, new String[]{UID, column},
+                            null, null, null, null, null);
+                    int[] uids = new int[cursor.getCount()];
+                    String[] texts = new String[uids.length];
+
+                    for (int i = 0; cursor.moveToNext(); i++) {
+                        uids[i] = cursor.getInt(0);
+                        texts[i] = cursor.getString(1);
+                    }
+                    cursor.close();
+
+                    index = new ProductIndex(uids, texts, uids.length);
+                    productIndexes.put(column, index);
+                }
+            }
+            return index;
+        }
+
+        /**
+         * Bring the in-memory indexes up to date after a product was saved. The caller
+         * must hold writeLock.
+         *
+         * @param db  Open database
+         * @param uid Product UID
+         */
+        void indexProduct(SQLiteDatabase db, long uid) {
+            for (Map.Entry<String, ProductIndex> entry : productIndexes.entrySet()) {
+                // The product row holds the latest observation, which may not be the one saved
+                SQLiteStatement select = statement(db, "SELECT " + entry.getKey() + " FROM " +
+                        TABLE_PRODUCT + " WHERE " + UID + " = ?");
+                select.bindLong(1, uid);
+                entry.getValue().put((int) uid, select.simpleQueryForString());
+            }
+        }
+
+        /**
+         * Remove a product from the in-memory indexes. The caller must hold writeLock.
+         *
+         * @param uid Product UID
+         */
+        void unindexProduct(int uid) {
+            for (ProductIndex index : productIndexes.values()) {
+                index.remove(uid);
+            }
+        }
+
+        /**
+         * Close the cached statements and the database
+         */
+        @Override
+        public void close() {
+            // Not synchronized on the helper, so the lock order is always writeLock first
+            synchronized (writeLock) {
+                closeStatements();
+            }
+            super.close();
+        }
+
+        @Override
+        public void onConfigure(SQLiteDatabase db) {
+            super.onConfigure(db);
+            db.setMaxSqlCacheSize(SQL_CACHE_SIZE);
+            db.execSQL("PRAGMA cache_size = -" + CACHE_SIZE_KIB);
         }
 
         public void onCreate(SQLiteDatabase db) {
             db.execSQL(CREATE_SUPPLIER_TABLE);
             db.execSQL(CREATE_PRODUCT_TABLE);
+            db.execSQL(CREATE_PRICE_TABLE);
+            db.execSQL(CREATE_JOB_TABLE);
+            db.execSQL(CREATE_SEARCH_TABLE);
+            db.execSQL(CREATE_PRODUCT_KEY_INDEX);
+            db.execSQL(CREATE_PRICE_HISTORY_INDEX);
+            createIndexes(db);
+
+            for (String sql : CREATE_SEARCH_TRIGGERS) {
+                db.execSQL(sql);
+            }
         }
 
+        /**
+         * Upgrade the schema without losing data. Databases older than version 5 are recreated.
+         */
         @Override
         public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
-            db.execSQL(DROP_PRODUCT_TABLE);
-            db.execSQL(DROP_SUPPLIER_TABLE);
-            onCreate(db);
+            if (oldVersion < DbMigration.FIRST_VERSION) {
+                db.execSQL(DROP_SEARCH_TABLE);
+                db.execSQL(DROP_JOB_TABLE);
+                db.execSQL(DROP_PRICE_TABLE);
+                db.execSQL(DROP_PRODUCT_TABLE);
+                db.execSQL(DROP_SUPPLIER_TABLE);
+                onCreate(db);
+                return;
+            }
+
+            DbMigration.migrate(db, oldVersion, newVersion);
+        }
+
+        /**
+         * Heavier paper ranks first, while the prices rank lowest first
+         *
+         * @param sortKey Ranked metric
+         * @return true if the ranking is in descending order
+         */
+        static boolean isDescending(String sortKey) {
+            return sortKey.equals(PAPER_WEIGHT);
+        }
+
+        /**
+         * Build a full text query where every word of the search text is a prefix
+         *
+         * @param column Column to search, or null for all text columns
+         * @param text   Search text
+         * @return Query for SEARCH_SELECTION, or null if the text has no words
+         */
+        static String matchQuery(String column, String text) {
+            StringBuilder sb = new StringBuilder();
+
+            // Split like the unicode61 tokenizer, so the syntax characters of MATCH never pass.
+            // Lower case, so that no word is read as an operator such as OR
+            for (String word : text.split("[^\\p{L}\\p{N}]+")) {
+                if (word.isEmpty()) {
+                    continue;
+                }
+
+                if (sb.length() > 0) {
+                    sb.append(' ');
+                }
+
+                if (column != null) {
+                    sb.append(column).append(':');
+                }
+                sb.append(word.toLowerCase(Locale.ROOT)).append('*');
+            }
+            return (sb.length() == 0) ? null : sb.toString();
         }
 
-        private void loadInitialData() throws Exception {
-            TPDbAdapter adapter = new TPDbAdapter(context);
+        /**
+         * @param sortKey Metric
+         * @return true if the metric has ranking indexes
+         */
+        static boolean isRanked(String sortKey) {
+            switch (sortKey) {
+                case PAPER_WEIGHT:
+                case KILO_PRICE:
+                case METER_PRICE:
+                case SHEET_PRICE:
+                    return true;
+                default:
+                    return false;
+            }
+        }
+
+        /**
+         * @param sortKey Ranked metric
+         * @return Order by clause of the ranking, matching its index
+         */
+        static String rankOrder(String sortKey) {
+            return sortKey + (isDescending(sortKey) ? " DESC, " : ", ") + UID;
+        }
+
+        private void createIndexes(SQLiteDatabase db) {
+            for (String sql : CREATE_INDEXES) {
+                db.execSQL(sql);
+            }
+        }
+
+        /**
+         * Set the number of rows committed per transaction during a bulk load
+         *
+         * @param batchSize Rows per transaction
+         */
+        void setBatchSize(int batchSize) {
+            if (batchSize < 1) {
+                throw new IllegalArgumentException("Batch size must be positive: " + batchSize);
+            }
+            this.batchSize = batchSize;
+        }
+
+        /**
+         * Load the prefabricated suppliers and products. Suppliers already present are kept.
+         * If the product table is not empty, only new price observations are inserted.
+         */
+        private void loadInitialData(LoadProgressListener listener) throws Exception {
             SQLiteDatabase db = getWritableDatabase();
 
             onCreate(db);
 
-            Cursor cursor = db.query(TABLE_SUPPLIER, adapter.countColumn, null,
-                    null, null, null, null, null);
+            try (Reader reader = openAsset("suppliers.csv")) {
+                loadSuppliers(db, reader);
+            }
+
+            try (Reader reader = openAsset("products.csv")) {
+                loadProducts(db, reader, listener, DatabaseUtils.queryNumEntries(db, TABLE_PRODUCT) > 0);
+            }
+        }
+
+        private Reader openAsset(String fileName) throws IOException {
+            InputStream is = context.getAssets().open(fileName);
+            return new InputStreamReader(is, StandardCharsets.UTF_8);
+        }
+
+        /**
+         * Bulk load products from CSV through the cached statements.
+         * The file is streamed one row at a time and rows are committed in transactions
+         * of batchSize rows. Rows that cannot be parsed or inserted are reported and skipped.
+         * <p>
+         * Each row is a price observation. A row is skipped if the observation
+         * (ITEM_NO, SUPPLIER, TIME_STAMP) exists. In delta mode a row without a time stamp is
+         * also skipped if its package price equals the current price of the item number at
+         * the supplier. A row with a placeholder item number is a new product, except in delta
+         * mode, where it is skipped if the supplier has a product with the same item number,
+         * brand and package price.
+         * </p>
+         *
+         * @param db       Writable database
+         * @param reader   CSV source with a header line
+         * @param listener Progress listener, may be null
+         * @param delta    Delta mode
+         * @return Import report
+         */
+        ImportReport loadProducts(SQLiteDatabase db, Reader reader, LoadProgressListener listener,
+                                  boolean delta) throws IOException, CsvValidationException {
+            synchronized (writeLock) {
+                // Rebuilt on next use, which is faster than changing them row by row
+                productIndexes.clear();
+
+                try {
+                    return loadProductsLocked(db, reader, listener, delta);
+                } finally {
+                    // Also drops products read while the import was running
+                    scanCache.clear();
+                }
+            }
+        }
 
-            if (cursor.getCount() > 0) {
-                if (cursor.moveToNext()) {
-                    int count = cursor.getInt(cursor.getColumnIndex("COUNT(*)"));
+        private ImportReport loadProductsLocked(SQLiteDatabase db, Reader reader, LoadProgressListener listener,
+                                                boolean delta) throws IOException, CsvValidationException {
+            ImportReport report = new ImportReport();
+            ProductCsvReader csvReader = new ProductCsvReader(reader, report);
+            ObservationWriter writer = new ObservationWriter(this, db);
+            ProductModel pm;
 
-                    if (count == 0) {
-                        loadSuppliers(adapter);
-                    } else {
-                        throw new Exception("Butikstabel ikke indsat. Der er allerede " + count + " butikker");
+            db.beginTransaction();
+            try {
+                while ((pm = csvReader.readNext()) != null) {
+                    try {
+                        if (writer.write(pm, delta) == ObservationWriter.SKIPPED) {
+                            report.addSkipped();
+                            continue;
+                        }
+                    } catch (SQLException e) {
+                        report.addReject(csvReader.getLine(), e.getMessage());
+                        continue;
+                    }
+                    report.addRow();
+
+                    if (report.getRows() % batchSize == 0) {
+                        db.setTransactionSuccessful();
+                        db.endTransaction();
+
+                        if (listener != null) {
+                            listener.onProgress(report.getRows());
+                        }
+
+                        db.beginTransaction();
                     }
                 }
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+                csvReader.close();
             }
-            cursor.close();
 
-            cursor = db.query(TABLE_PRODUCT, adapter.countColumn, null,
-                    null, null, null, null, null);
-            if (cursor.getCount() > 0) {
-                if (cursor.moveToNext()) {
-                    int count = cursor.getInt(cursor.getColumnIndex("COUNT(*)"));
+            if (listener != null) {
+                listener.onProgress(report.getRows());
+            }
 
-                    if (count == 0) {
-                        loadProducts(adapter);
-                    } else {
-                        throw new Exception("Produkttabel ikke indsat. Der er allerede " + count + " produkter");
+            return report;
+        }
+
+        /**
+         * Recompute the derived fields of all products, if the job is queued in TABLE_JOB.
+         * Products are read in UID order, batchSize at a time. Each batch is written in one
+         * transaction together with the UID of its last product, so a job stopped by the app
+         * being killed resumes after the last committed batch. The write lock is released
+         * between batches, so saves from the screens are not held up for the whole table.
+         *
+         * @param db Writable database
+         * @return Number of products recomputed
+         */
+        int recomputeDerivedFields(SQLiteDatabase db) {
+            List<ProductModel> batch = new ArrayList<>(batchSize);
+            int rows = 0;
+
+            while (true) {
+                synchronized (writeLock) {
+                    long lastUid = findJob(db, RECOMPUTE_JOB);
+
+                    if (lastUid == NO_JOB) {
+                        return rows;
+                    }
+
+                    db.beginTransaction();
+                    try {
+                        readBatch(db, lastUid, batch);
+
+                        SQLiteStatement update = statement(db, UPDATE_DERIVED);
+                        for (ProductModel pm : batch) {
+                            ProductCalculator.calculate(pm);
+                            bindDerived(update, pm);
+                            update.executeUpdateDelete();
+                            lastUid = pm.getUid();
+                        }
+
+                        if (batch.size() < batchSize) {
+                            SQLiteStatement delete = statement(db, DELETE_JOB);
+                            delete.bindString(1, RECOMPUTE_JOB);
+                            delete.executeUpdateDelete();
+                        } else {
+                            SQLiteStatement updateJob = statement(db, UPDATE_JOB);
+                            updateJob.bindLong(1, lastUid);
+                            updateJob.bindString(2, RECOMPUTE_JOB);
+                            updateJob.executeUpdateDelete();
+                        }
+                        db.setTransactionSuccessful();
+                    } finally {
+                        db.endTransaction();
                     }
+                    rows += batch.size();
+                    scanCache.clear();
                 }
             }
-            cursor.close();
         }
 
         /**
-         * @param adapter The database adapter
+         * @return UID of the last product done by the job, or NO_JOB if it is not queued
          */
-        private void loadProducts(TPDbAdapter adapter) {
+        private long findJob(SQLiteDatabase db, String job) {
+            SQLiteStatement select = statement(db, SELECT_JOB);
+            select.bindString(1, job);
+
             try {
-                InputStream is = context.getAssets().open("products.csv");
-                InputStreamReader reader = new InputStreamReader(is, StandardCharsets.UTF_8);
-                CSVReader csvreader = new CSVReader(reader);
-                List<String[]> csv = csvreader.readAll();
-                ProductModel pm;
-                String[] data;
-
-                for (int i = 1; i < csv.size(); i++) {
-                    data = csv.get(i);
-                    pm = new ProductModel(
-                            data[0].trim(),
-                            data[1].trim(),
-                            Integer.parseInt(data[2].trim()),
-                            Integer.parseInt(data[3].trim()),
-                            Integer.parseInt(data[4].trim()),
-                            Integer.parseInt(data[5].trim()),
-                            Integer.parseInt(data[6].trim()),
-                            Integer.parseInt(data[7].trim()),
-                            Float.parseFloat(data[8].trim()),
-                            Integer.parseInt(data[9].trim()),
-                            Float.parseFloat(data[10].trim()),
-                            Float.parseFloat(data[11].trim()),
-                            Integer.parseInt(data[12].trim()),
-                            Float.parseFloat(data[13].trim()),
-                            Integer.parseInt(data[14].trim()),
-                            Float.parseFloat(data[15].trim()),
-                            Integer.parseInt(data[16].trim()),
-                            Float.parseFloat(data[17].trim()),
-                            Integer.parseInt(data[18].trim()),
-                            Float.parseFloat(data[19].trim()),
-                            Integer.parseInt(data[20].trim()),
-                            Float.parseFloat(data[21].trim()),
-                            Integer.parseInt(data[22].trim()),
-                            Float.parseFloat(data[23].trim()),
-                            Integer.parseInt(data[24].trim()),
-                            data[25].trim(),
-                            data[26]);
-                    adapter.insertData(pm);
-                    TimeUnit.SECONDS.sleep(timeout);
-                }
+                return select.simpleQueryForLong();
+            } catch (SQLiteDoneException e) {
+                return NO_JOB;
+            }
+        }
+
+        private void readBatch(SQLiteDatabase db, long afterUid, List<ProductModel> batch) {
+            String[] args = {Long.toString(afterUid)};
+            Cursor cursor = db.query(TABLE_PRODUCT, DERIVATION_COLUMNS, UID + " > ?", args,
+                    null, null, UID, Integer.toString(batchSize));
+            ProductRowMapper mapper = new ProductRowMapper(cursor);
 
-            } catch (IOException | InterruptedException | CsvException e) {
-                e.printStackTrace();
+            batch.clear();
+            while (cursor.moveToNext()) {
+                batch.add(mapper.map(cursor));
             }
+            cursor.close();
         }
 
-        private void loadSuppliers(TPDbAdapter adapter) {
-            try {
-                InputStream is = context.getAssets().open("suppliers.csv");
-                InputStreamReader reader = new InputStreamReader(is, StandardCharsets.UTF_8);
-                CSVReader csvreader = new CSVReader(reader);
-                List<String[]> csv = csvreader.readAll();
-                SupplierModel sm;
-                String[] data;
-
-                for (int i = 1; i < csv.size(); i++) {
-                    data = csv.get(i);
-                    sm = new SupplierModel(
-                            data[0].trim(),
-                            data[1].trim());
-                    adapter.insertData(sm);
-                    TimeUnit.SECONDS.sleep(timeout);
-                }
+        /**
+         * Bind the derived fields in UPDATE_DERIVED order, followed by the UID
+         */
+        private static void bindDerived(SQLiteStatement statement, ProductModel pm) {
+            statement.bindLong(1, pm.getSheetLength());
+            statement.bindLong(2, pm.getSheetLength_c());
+            statement.bindDouble(3, pm.getRollLength());
+            statement.bindLong(4, pm.getRollLength_c());
+            statement.bindDouble(5, pm.getPackageWeight());
+            statement.bindLong(6, pm.getPackageWeight_c());
+            statement.bindDouble(7, pm.getRollWeight());
+            statement.bindLong(8, pm.getRollWeight_c());
+            statement.bindDouble(9, pm.getPaperWeight());
+            statement.bindLong(10, pm.getPaperWeight_c());
+            statement.bindLong(11, pm.getRollPrice());
+            statement.bindLong(12, pm.getRollPrice_c());
+            statement.bindLong(13, pm.getKiloPrice());
+            statement.bindLong(14, pm.getKiloPrice_c());
+            statement.bindLong(15, pm.getMeterPrice());
+            statement.bindLong(16, pm.getMeterPrice_c());
+            statement.bindLong(17, pm.getSheetPrice());
+            statement.bindLong(18, pm.getSheetPrice_c());
+            statement.bindLong(19, pm.getUid());
+        }
 
-            } catch (IOException | InterruptedException | CsvException e) {
-                e.printStackTrace();
+        /**
+         * Bulk load suppliers from CSV in a single transaction.
+         * Suppliers already in the table are kept unchanged and counted as skipped.
+         * Rows without both supplier and chain are reported and skipped.
+         *
+         * @param db     Writable database
+         * @param reader CSV source with a header line
+         * @return Import report
+         */
+        ImportReport loadSuppliers(SQLiteDatabase db, Reader reader) throws IOException, CsvValidationException {
+            ImportReport report = new ImportReport();
+            CSVReader csvreader = new CSVReader(reader);
+            String[] data;
+            // Line numbers count the header as line 1
+            int line = 1;
+
+            // Skip the header line
+            csvreader.readNext();
+
+            synchronized (writeLock) {
+                SQLiteStatement statement = statement(db, INSERT_SUPPLIER);
+
+                db.beginTransaction();
+                try {
+                    while ((data = csvreader.readNext()) != null) {
+                        line++;
+
+                        // Skip blank lines
+                        if ((data.length == 1) && data[0].trim().isEmpty()) {
+                            continue;
+                        }
+
+                        if (data.length < 2) {
+                            report.addReject(line, "Leverandør eller kæde mangler");
+                            continue;
+                        }
+
+                        statement.bindString(1, data[0].trim());
+                        statement.bindString(2, data[1].trim());
+
+                        // INSERT OR IGNORE returns -1 for a supplier already present
+                        if (statement.executeInsert() == -1) {
+                            report.addSkipped();
+                        } else {
+                            report.addRow();
+                        }
+                    }
+                    db.setTransactionSuccessful();
+                } finally {
+                    db.endTransaction();
+                }
             }
+
+            return report;
         }
     }
 }
@@ -0,0 +1,193 @@
+/*
+ * Copyright (c) 2020. Michael Erichsen.
+ *
+ * The program is distributed under the terms of the GNU Affero General Public License v3.0
+ */
+
+package net.myerichsen.toiletpaper;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+
+import androidx.annotation.NonNull;
+import androidx.lifecycle.Lifecycle;
+import androidx.lifecycle.LifecycleEventObserver;
+import androidx.lifecycle.LifecycleOwner;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Runs database calls on a small background pool and delivers the results on the
+ * UI thread. All screens go through this class instead of calling TPDbAdapter directly.
+ * <p>
+ * Queries are cancelled when their lifecycle owner is destroyed. Updates always run to
+ * completion, so data entered by the user is not lost by leaving the screen, but their
+ * result is only delivered while the owner is alive.
+ * </p>
+ */
+public class TPRepository {
+    // Readers run concurrently thanks to WAL. More threads only queue on the writer lock
+    private static final int THREADS = 2;
+    private static final int QUEUE_CAPACITY = 64;
+    private static TPRepository instance;
+    private final TPDbAdapter adapter;
+    private final ExecutorService executor;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    TPRepository(TPDbAdapter adapter, ExecutorService executor) {
+        this.adapter = adapter;
+        this.executor = executor;
+    }
+
+    /**
+     * Get the process wide repository
+     *
+     * @param context Any context. Only the application context is kept
+     * @return Shared repository
+     */
+    public static synchronized TPRepository getInstance(Context context) {
+        if (instance == null) {
+            instance = new TPRepository(new TPDbAdapter(context.getApplicationContext()), newExecutor());
+        }
+        return instance;
+    }
+
+    private static ExecutorService newExecutor() {
+        ThreadFactory threadFactory = new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+
+            @Override
+            public Thread newThread(@NonNull final Runnable r) {
+                Runnable background = new Runnable() {
+                    @Override
+                    public void run() {
+                        Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                        r.run();
+                    }
+                };
+                return new Thread(background, "TPRepository-" + count.incrementAndGet());
+            }
+        };
+
+        return new ThreadPoolExecutor(THREADS, THREADS, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<Runnable>(QUEUE_CAPACITY), threadFactory);
+    }
+
+    /**
+     * Run a read in the background. The read is cancelled when the owner is destroyed.
+     *
+     * @param owner    Lifecycle owner, normally the view lifecycle owner of a fragment
+     * @param call     Database call
+     * @param callback Receives the result on the UI thread
+     * @param <T>      Result type
+     * @return Future of the result
+     */
+    public <T> Future<T> query(LifecycleOwner owner, DbCall<T> call, DbCallback<T> callback) {
+        return submit(owner, call, callback, true);
+    }
+
+    /**
+     * Run a write in the background. The write completes even if the owner is destroyed.
+     *
+     * @param owner    Lifecycle owner, normally the view lifecycle owner of a fragment
+     * @param call     Database call
+     * @param callback Receives the result on the UI thread, if the owner is still alive
+     * @param <T>      Result type
+     * @return Future of the result
+     */
+    public <T> Future<T> update(LifecycleOwner owner, DbCall<T> call, DbCallback<T> callback) {
+        return submit(owner, call, callback, false);
+    }
+
+    private <T> Future<T> submit(final LifecycleOwner owner, final DbCall<T> call,
+                                 final DbCallback<T> callback, final boolean cancelOnDestroy) {
+        final Lifecycle lifecycle = owner.getLifecycle();
+        final AtomicReference<FutureTask<T>> taskHolder = new AtomicReference<>();
+
+        final LifecycleEventObserver observer = new LifecycleEventObserver() {
+            @Override
+            public void onStateChanged(@NonNull LifecycleOwner source, @NonNull Lifecycle.Event event) {
+                if ((event == Lifecycle.Event.ON_DESTROY) && cancelOnDestroy) {
+                    taskHolder.get().cancel(false);
+                }
+            }
+        };
+
+        final FutureTask<T> task = new FutureTask<T>(new Callable<T>() {
+            @Override
+            public T call() throws Exception {
+                return call.call(adapter);
+            }
+        }) {
+            @Override
+            protected void done() {
+                mainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        lifecycle.removeObserver(observer);
+                        deliver(lifecycle, taskHolder.get(), callback);
+                    }
+                });
+            }
+        };
+        taskHolder.set(task);
+        lifecycle.addObserver(observer);
+
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException e) {
+            task.cancel(false);
+            lifecycle.removeObserver(observer);
+            callback.onError(e);
+        }
+        return task;
+    }
+
+    private static <T> void deliver(Lifecycle lifecycle, FutureTask<T> task, DbCallback<T> callback) {
+        if (task.isCancelled() || (lifecycle.getCurrentState() == Lifecycle.State.DESTROYED)) {
+            return;
+        }
+
+        try {
+            callback.onResult(task.get());
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            callback.onError(cause instanceof Exception ? (Exception) cause : e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * A call to the database, run on a background thread
+     *
+     * @param <T> Result type
+     */
+    public interface DbCall<T> {
+        T call(TPDbAdapter adapter) throws Exception;
+    }
+
+    /**
+     * Result of a database call, delivered on the UI thread
+     *
+     * @param <T> Result type
+     */
+    public interface DbCallback<T> {
+        void onResult(T result);
+
+        void onError(Exception e);
+    }
+}
@@ -9,6 +9,7 @@ import android.view.MenuItem;
 import android.view.View;
 import android.view.ViewGroup;
 import android.widget.LinearLayout;
+import android.widget.ScrollView;
 import android.widget.TableLayout;
 import android.widget.TableRow;
 import android.widget.TextView;
@@ -20,8 +21,10 @@ import androidx.navigation.Navigation;
 
 import com.google.android.material.snackbar.Snackbar;
 
+import net.myerichsen.toiletpaper.Money;
 import net.myerichsen.toiletpaper.R;
 import net.myerichsen.toiletpaper.TPDbAdapter;
+import net.myerichsen.toiletpaper.TPRepository;
 import net.myerichsen.toiletpaper.ui.products.ProductModel;
 
 import java.util.List;
@@ -34,16 +37,21 @@ import java.util.Objects;
  */
 
 /**
- * Display a sorted product list for compare
+ * Display a product ranking for compare. The ranking is read page by page while scrolling.
  */
 public class CompareDetailsFragment extends Fragment {
     private static final String SORT_KEY = "sortKey";
     private static final String SORT_FILTER = "sortFilter";
+    private static final int PAGE_SIZE = 50;
     private final TableRow.LayoutParams llp = new TableRow.LayoutParams(LinearLayout.LayoutParams.WRAP_CONTENT, LinearLayout.LayoutParams.WRAP_CONTENT);
     private String sortKey;
     private String sortFilter;
     private Context context;
     private View root;
+    private TableLayout tableLayout;
+    private ProductModel lastProduct;
+    private boolean loading;
+    private boolean endReached;
 
     /**
      * Required empty public constructor
@@ -87,8 +95,6 @@ public class CompareDetailsFragment extends Fragment {
         super.onViewCreated(view, savedInstanceState);
 
         context = getContext();
-        TPDbAdapter adapter = new TPDbAdapter(context);
-
         if (getArguments() != null) {
             sortKey = getArguments().getString(SORT_KEY);
             sortFilter = getArguments().getString(SORT_FILTER);
@@ -124,16 +130,63 @@ public class CompareDetailsFragment extends Fragment {
         tableRow.addView(addCell("Uid"));
         tableLayout.addView(tableRow);
 
-        List<ProductModel> lpm;
+        this.tableLayout = tableLayout;
+        loadNextPage();
+
+        // Read the next page while the end of the table is still a screen away
+        final ScrollView scrollView = root.findViewById(R.id.compareScrollView);
+        scrollView.setOnScrollChangeListener(new View.OnScrollChangeListener() {
+            @Override
+            public void onScrollChange(View v, int scrollX, int scrollY, int oldScrollX, int oldScrollY) {
+                int remaining = tableLayout.getBottom() - scrollY - scrollView.getHeight();
 
-        try {
-            lpm = adapter.getProductModelsSorted(sortKey, sortFilter);
-        } catch (Exception e) {
-            Snackbar.make(root.findViewById(android.R.id.content), Objects.requireNonNull(e.getMessage()), Snackbar.LENGTH_LONG).show();
+                if (remaining < scrollView.getHeight()) {
+                    loadNextPage();
+                }
+            }
+        });
+    }
+
+    /**
+     * Read the next page of the ranking, unless a read is running or the last page has been read
+     */
+    private void loadNextPage() {
+        if (loading || endReached) {
             return;
         }
 
-        if (lpm.size() == 0) {
+        final ProductModel after = lastProduct;
+        loading = true;
+
+        TPRepository.getInstance(context).query(getViewLifecycleOwner(), new TPRepository.DbCall<List<ProductModel>>() {
+            @Override
+            public List<ProductModel> call(TPDbAdapter adapter) {
+                return adapter.getRankingPage(sortKey, sortFilter, after, PAGE_SIZE);
+            }
+        }, new TPRepository.DbCallback<List<ProductModel>>() {
+            @Override
+            public void onResult(List<ProductModel> lpm) {
+                loading = false;
+                endReached = lpm.size() < PAGE_SIZE;
+                showProducts(lpm);
+            }
+
+            @Override
+            public void onError(Exception e) {
+                loading = false;
+                endReached = true;
+                Snackbar.make(root.findViewById(android.R.id.content), String.valueOf(e.getMessage()), Snackbar.LENGTH_LONG).show();
+            }
+        });
+    }
+
+    /**
+     * Add a row for each product
+     */
+    private void showProducts(List<ProductModel> lpm) {
+        TableRow tableRow;
+
+        if ((lastProduct == null) && (lpm.size() == 0)) {
             try {
                 Snackbar.make(root.findViewById(android.R.id.content), R.string.no_products_found, Snackbar.LENGTH_LONG).show();
             } catch (Exception e) {
@@ -152,13 +205,13 @@ public class CompareDetailsFragment extends Fragment {
                     tableRow.addView(addCell(Float.toString(pd.getPaperWeight())));
                     break;
                 case "KILO_PRICE":
-                    tableRow.addView(addCell(Float.toString(pd.getKiloPrice())));
+                    tableRow.addView(addCell(Money.format(pd.getKiloPrice(), Money.UNIT_PRICE_SCALE)));
                     break;
                 case "METER_PRICE":
-                    tableRow.addView(addCell(Float.toString(pd.getMeterPrice())));
+                    tableRow.addView(addCell(Money.format(pd.getMeterPrice(), Money.UNIT_PRICE_SCALE)));
                     break;
                 case "SHEET_PRICE":
-                    tableRow.addView(addCell(Float.toString(pd.getSheetPrice())));
+                    tableRow.addView(addCell(Money.format(pd.getSheetPrice(), Money.UNIT_PRICE_SCALE)));
                     break;
                 default:
                     Snackbar.make(root.findViewById(android.R.id.content),
@@ -172,6 +225,7 @@ public class CompareDetailsFragment extends Fragment {
             tableRow.setClickable(true);
             tableRow.setOnClickListener(tableRowOnclickListener());
             tableLayout.addView(tableRow);
+            lastProduct = pd;
         }
     }
 
@@ -29,6 +29,7 @@ import com.google.android.material.snackbar.Snackbar;
 
 import net.myerichsen.toiletpaper.R;
 import net.myerichsen.toiletpaper.TPDbAdapter;
+import net.myerichsen.toiletpaper.TPRepository;
 import net.myerichsen.toiletpaper.ui.suppliers.SupplierModel;
 
 import java.util.ArrayList;
@@ -71,8 +72,7 @@ public class CompareFragment extends Fragment {
         super.onViewCreated(view, savedInstanceState);
 
         Context context = getContext();
-        TPDbAdapter adapter = new TPDbAdapter(context);
-        View snackView = requireActivity().findViewById(android.R.id.content);
+        final View snackView = requireActivity().findViewById(android.R.id.content);
         preferences = PreferenceManager.getDefaultSharedPreferences(Objects.requireNonNull(context));
         float fontSize = Float.parseFloat(preferences.getString("fontsize", "24"));
         sortKey = preferences.getString("sortkey", "KILO_PRICE");
@@ -87,34 +87,37 @@ public class CompareFragment extends Fragment {
 
         Spinner filterSpinner = view.findViewById(R.id.filterSpinner);
 
-        List<SupplierModel> lsm = new ArrayList<>();
         ArrayList<String> supplierArrayList = new ArrayList<>();
         supplierArrayList.add(ALL);
 
-        boolean goOn = true;
-
-        try {
-            lsm = adapter.getSupplierModels();
-        } catch (Exception e) {
-            Snackbar.make(snackView, Objects.requireNonNull(e.getMessage()), Snackbar.LENGTH_LONG).show();
-            goOn = false;
-        }
+        final ArrayAdapter<String> supplierArrayAdapter = new ArrayAdapter<>(Objects.requireNonNull(context), android.R.layout.simple_spinner_item, supplierArrayList);
+        supplierArrayAdapter.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
+        filterSpinner.setAdapter(supplierArrayAdapter);
+        filterSpinner.setOnItemSelectedListener(filterSpinnerOnItemSelectedListener());
 
-        if ((goOn) && (lsm.size() == 0)) {
-            Snackbar.make(snackView, R.string.empty_table, Snackbar.LENGTH_LONG).show();
-            goOn = false;
-        }
+        TPRepository.getInstance(context).query(getViewLifecycleOwner(), new TPRepository.DbCall<List<SupplierModel>>() {
+            @Override
+            public List<SupplierModel> call(TPDbAdapter adapter) {
+                return adapter.getSupplierModels();
+            }
+        }, new TPRepository.DbCallback<List<SupplierModel>>() {
+            @Override
+            public void onResult(List<SupplierModel> lsm) {
+                if (lsm.size() == 0) {
+                    Snackbar.make(snackView, R.string.empty_table, Snackbar.LENGTH_LONG).show();
+                    return;
+                }
 
-        if (goOn) {
-            for (int i = 0; i < lsm.size(); i++) {
-                supplierArrayList.add(lsm.get(i).getSupplier());
+                for (int i = 0; i < lsm.size(); i++) {
+                    supplierArrayAdapter.add(lsm.get(i).getSupplier());
+                }
             }
-        }
 
-        ArrayAdapter<String> supplierArrayAdapter = new ArrayAdapter<>(Objects.requireNonNull(context), android.R.layout.simple_spinner_item, supplierArrayList);
-        supplierArrayAdapter.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
-        filterSpinner.setAdapter(supplierArrayAdapter);
-        filterSpinner.setOnItemSelectedListener(filterSpinnerOnItemSelectedListener());
+            @Override
+            public void onError(Exception e) {
+                Snackbar.make(snackView, String.valueOf(e.getMessage()), Snackbar.LENGTH_LONG).show();
+            }
+        });
 
         RadioGroup rg = view.findViewById(R.id.sortKeyRadioGroup);
         rg.setOnCheckedChangeListener(radioGroupOnCheckedChangeListener());
@@ -21,7 +21,11 @@ import androidx.recyclerview.widget.GridLayoutManager;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
+import com.google.android.material.snackbar.Snackbar;
+
 import net.myerichsen.toiletpaper.R;
+import net.myerichsen.toiletpaper.TPDbAdapter;
+import net.myerichsen.toiletpaper.TPRepository;
 import net.myerichsen.toiletpaper.ui.compare.CompareModel.CompareItem;
 
 import java.util.Objects;
@@ -97,16 +101,31 @@ public class CompareListFragment extends Fragment {
 
         // Set the adapter
         if (view instanceof RecyclerView) {
-            RecyclerView recyclerView = (RecyclerView) view;
-            Context context = view.getContext();
+            final RecyclerView recyclerView = (RecyclerView) view;
+            final Context context = view.getContext();
 
             if (mColumnCount <= 1) {
                 recyclerView.setLayoutManager(new LinearLayoutManager(context));
             } else {
                 recyclerView.setLayoutManager(new GridLayoutManager(context, mColumnCount));
             }
-            CompareModel compareModel = new CompareModel(context, sortFilter, sortKey);
-            recyclerView.setAdapter(new CompareRecyclerViewAdapter(compareModel.ITEMS, mListener));
+            TPRepository.getInstance(context).query(getViewLifecycleOwner(), new TPRepository.DbCall<CompareModel>() {
+                @Override
+                public CompareModel call(TPDbAdapter adapter) {
+                    return new CompareModel(context, adapter, sortFilter, sortKey);
+                }
+            }, new TPRepository.DbCallback<CompareModel>() {
+                @Override
+                public void onResult(CompareModel model) {
+                    recyclerView.setAdapter(new CompareRecyclerViewAdapter(model.ITEMS, mListener));
+                }
+
+                @Override
+                public void onError(Exception e) {
+                    Snackbar.make(requireActivity().findViewById(android.R.id.content),
+                            String.valueOf(e.getMessage()), Snackbar.LENGTH_LONG).show();
+                }
+            });
         }
         hideSoftKeyboard(requireActivity());
     }
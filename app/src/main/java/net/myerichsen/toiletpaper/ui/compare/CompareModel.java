@@ -8,56 +8,55 @@ package net.myerichsen.toiletpaper.ui.compare;
 
 import android.content.Context;
 
+import net.myerichsen.toiletpaper.Money;
 import net.myerichsen.toiletpaper.R;
 import net.myerichsen.toiletpaper.TPDbAdapter;
 import net.myerichsen.toiletpaper.ui.products.ProductModel;
 
-import java.text.DecimalFormat;
 import java.util.ArrayList;
 import java.util.List;
 
-import static java.math.RoundingMode.HALF_UP;
-
 /**
  * Helper class for providing content for user interfaces created by
  * Android template wizards.
  */
 public class CompareModel {
+    /**
+     * The list shows the best buys only. The rest of a ranking is in the details screen
+     */
+    private static final int TOP_COUNT = 100;
 
     /**
      * An array of Compare items.
      */
     public List<CompareItem> ITEMS;
 
-    public CompareModel(Context context, String sortFilter, String sortKey) {
+    /**
+     * Read the best products in sort order. Runs on a background thread.
+     */
+    public CompareModel(Context context, TPDbAdapter adapter, String sortFilter, String sortKey) {
         if (sortFilter == null)
             return;
 
         ITEMS = new ArrayList<>();
 
-        TPDbAdapter adapter = new TPDbAdapter(context);
-
-        List<ProductModel> lpm;
-        if ((sortFilter.equals(CompareFragment.ALL))) {
-            lpm = adapter.getProductModels(sortKey);
-        } else {
-            lpm = adapter.getProductModels("SUPPLIER=?", sortFilter, sortKey);
-        }
-
         // Header
         addItem(new CompareItem(context.getString(R.string.item_no), context.getString(R.string.brand),
                 context.getString(R.string.kilo_price), context.getString(R.string.meter_price),
                 0, ""));
 
-        DecimalFormat df = new DecimalFormat("#.##");
-        df.setRoundingMode(HALF_UP);
-
-        for (ProductModel pm : lpm) {
-            addItem(new CompareItem(pm.getItemNo(), pm.getBrand(), df.format(pm.getKiloPrice()),
-                    df.format(pm.getMeterPrice()), pm.getUid(), sortFilter));
+        // Only the top of the ranking is read. Unit prices are shown to the øre
+        for (ProductModel pm : adapter.getTopProducts(sortKey, sortFilter, TOP_COUNT)) {
+            addItem(new CompareItem(pm.getItemNo(), pm.getBrand(), formatPrice(pm.getKiloPrice()),
+                    formatPrice(pm.getMeterPrice()), pm.getUid(), sortFilter));
         }
     }
 
+    private static String formatPrice(long unitPrice) {
+        return Money.format(Money.round(unitPrice, Money.UNIT_PRICE_SCALE, Money.PRICE_SCALE),
+                Money.PRICE_SCALE);
+    }
+
     private void addItem(CompareItem item) {
         ITEMS.add(item);
     }
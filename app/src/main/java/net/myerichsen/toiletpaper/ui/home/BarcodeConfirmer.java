@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) 2020. Michael Erichsen.
+ *
+ * The program is distributed under the terms of the GNU Affero General Public License v3.0
+ */
+
+package net.myerichsen.toiletpaper.ui.home;
+
+/**
+ * Confirms a scanned code before it is used.
+ * <p>
+ * The detector reports a code for every frame in which it sees one, and a single frame
+ * may be misread. A code is accepted when it has been read in a number of consecutive
+ * frames. After that every frame is dropped, so one scan gives one result. Frames are
+ * fed from the detector thread.
+ * </p>
+ */
+class BarcodeConfirmer {
+    private final int frames;
+    private String candidate;
+    private int count;
+    private boolean confirmed;
+
+    /**
+     * Constructor
+     *
+     * @param frames Number of consecutive frames that must read the same code
+     */
+    BarcodeConfirmer(int frames) {
+        this.frames = frames;
+    }
+
+    /**
+     * Feed the code read in a frame
+     *
+     * @param code Code read, or null if the frame had none
+     * @return The code when it is confirmed by this frame, otherwise null
+     */
+    synchronized String onFrame(String code) {
+        if (confirmed) {
+            return null;
+        }
+
+        if ((code == null) || !code.equals(candidate)) {
+            candidate = code;
+            count = (code == null) ? 0 : 1;
+        } else {
+            count++;
+        }
+
+        if ((candidate != null) && (count >= frames)) {
+            confirmed = true;
+            return candidate;
+        }
+        return null;
+    }
+
+    /**
+     * @return true when a code has been confirmed and later frames are dropped
+     */
+    synchronized boolean isConfirmed() {
+        return confirmed;
+    }
+}
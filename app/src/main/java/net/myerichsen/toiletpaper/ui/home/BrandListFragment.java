@@ -8,6 +8,8 @@ import android.view.View;
 import android.view.ViewGroup;
 import android.view.inputmethod.InputMethodManager;
 
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import androidx.fragment.app.Fragment;
 import androidx.recyclerview.widget.GridLayoutManager;
 import androidx.recyclerview.widget.LinearLayoutManager;
@@ -16,6 +18,8 @@ import androidx.recyclerview.widget.RecyclerView;
 import com.google.android.material.snackbar.Snackbar;
 
 import net.myerichsen.toiletpaper.R;
+import net.myerichsen.toiletpaper.TPDbAdapter;
+import net.myerichsen.toiletpaper.TPRepository;
 import net.myerichsen.toiletpaper.ui.home.BrandModel.BrandItem;
 
 import java.util.Objects;
@@ -83,9 +87,8 @@ public class BrandListFragment extends Fragment {
     public View onCreateView(LayoutInflater inflater, ViewGroup container,
                              Bundle savedInstanceState) {
         View root = inflater.inflate(R.layout.fragment_brand_list, container, false);
-        View snackView = requireActivity().findViewById(android.R.id.content);
 
-        // Set the adapter
+        // Set the layout manager. The adapter is set when the brands have been read
         if (root instanceof RecyclerView) {
             Context context = root.getContext();
             RecyclerView recyclerView = (RecyclerView) root;
@@ -94,26 +97,53 @@ public class BrandListFragment extends Fragment {
             } else {
                 recyclerView.setLayoutManager(new GridLayoutManager(context, mColumnCount));
             }
-            BrandModel brandModel = new BrandModel(context, brand);
-            if (brandModel.ITEMS.size() == 0) {
-                Snackbar.make(snackView,
-                        R.string.brand_not_found, Snackbar.LENGTH_LONG).show();
-                requireActivity().onBackPressed();
-                return null;
-            } else if (brandModel.ITEMS.size() == 1) {
-                Bundle result = new Bundle();
-                result.putString(BRAND, brandModel.ITEMS.get(0).brand);
-                requireActivity().getSupportFragmentManager().setFragmentResult("brandRequestKey", result);
-                requireActivity().onBackPressed();
-                return null;
-            }
-            recyclerView.setAdapter(new BrandRecyclerViewAdapter(brandModel.ITEMS, fbListener));
         }
         hideSoftKeyboard(requireActivity());
 
         return root;
     }
 
+    @Override
+    public void onViewCreated(@NonNull View view, @Nullable Bundle savedInstanceState) {
+        super.onViewCreated(view, savedInstanceState);
+
+        if (!(view instanceof RecyclerView)) {
+            return;
+        }
+
+        final RecyclerView recyclerView = (RecyclerView) view;
+        final View snackView = requireActivity().findViewById(android.R.id.content);
+
+        TPRepository.getInstance(requireContext()).query(getViewLifecycleOwner(), new TPRepository.DbCall<BrandModel>() {
+            @Override
+            public BrandModel call(TPDbAdapter adapter) {
+                return new BrandModel(adapter, brand);
+            }
+        }, new TPRepository.DbCallback<BrandModel>() {
+            @Override
+            public void onResult(BrandModel brandModel) {
+                if (brandModel.ITEMS.size() == 0) {
+                    Snackbar.make(snackView,
+                            R.string.brand_not_found, Snackbar.LENGTH_LONG).show();
+                    requireActivity().onBackPressed();
+                    return;
+                } else if (brandModel.ITEMS.size() == 1) {
+                    Bundle result = new Bundle();
+                    result.putString(BRAND, brandModel.ITEMS.get(0).brand);
+                    requireActivity().getSupportFragmentManager().setFragmentResult("brandRequestKey", result);
+                    requireActivity().onBackPressed();
+                    return;
+                }
+                recyclerView.setAdapter(new BrandRecyclerViewAdapter(brandModel.ITEMS, fbListener));
+            }
+
+            @Override
+            public void onError(Exception e) {
+                Snackbar.make(snackView, String.valueOf(e.getMessage()), Snackbar.LENGTH_LONG).show();
+            }
+        });
+    }
+
 //    @Override
 //    public void onViewCreated(@NonNull View view, @Nullable Bundle savedInstanceState) {
 //        super.onViewCreated(view, savedInstanceState);
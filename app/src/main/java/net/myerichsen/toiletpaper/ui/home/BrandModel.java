@@ -6,10 +6,8 @@
 
 package net.myerichsen.toiletpaper.ui.home;
 
-import android.content.Context;
-
 import net.myerichsen.toiletpaper.TPDbAdapter;
-import net.myerichsen.toiletpaper.ui.products.ProductModel;
+import net.myerichsen.toiletpaper.ui.products.ProductSummary;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -26,29 +24,24 @@ public class BrandModel {
      */
     public final List<BrandItem> ITEMS;
 
-    public BrandModel(Context context, String brand) {
+    /**
+     * Search the brands. Runs on a background thread.
+     */
+    public BrandModel(TPDbAdapter adapter, String brand) {
         ITEMS = new ArrayList<>();
 
-        TPDbAdapter adapter = new TPDbAdapter(context);
-
-        List<ProductModel> lpm;
+        List<ProductSummary> lps;
         if ((brand != null) && (!brand.equals(""))) {
-
-            if (!(brand).endsWith("%")) {
-                brand += "%";
-            }
-
-            lpm = adapter.getProductModels("BRAND LIKE ?", brand, "TIME_STAMP");
+            // Prefix search in the full text index
+            lps = adapter.searchProductSummaries("BRAND", brand, "TIME_STAMP");
         } else return;
 
-        if (lpm.size() == 0) {
+        if (lps.size() == 0) {
             return;
         }
 
-        for (ProductModel pm : lpm) {
-            addItem(new BrandItem(pm.getItemNo(),
-                    pm.getBrand(), pm.getSupplier(),
-                    pm.getTimestamp()));
+        for (ProductSummary ps : lps) {
+            addItem(new BrandItem(ps.itemNo, ps.brand, ps.supplier, ps.timestamp));
         }
     }
 
@@ -33,8 +33,11 @@ import androidx.preference.PreferenceManager;
 import com.google.android.material.snackbar.Snackbar;
 import com.google.android.material.textfield.TextInputEditText;
 
+import net.myerichsen.toiletpaper.Money;
+import net.myerichsen.toiletpaper.ProductCalculator;
 import net.myerichsen.toiletpaper.R;
 import net.myerichsen.toiletpaper.TPDbAdapter;
+import net.myerichsen.toiletpaper.TPRepository;
 import net.myerichsen.toiletpaper.ui.products.ProductModel;
 import net.myerichsen.toiletpaper.ui.suppliers.SupplierModel;
 
@@ -58,12 +61,14 @@ public class HomeFragment extends Fragment {
     public static final String BRAND = "brand";
     public static final String ITEM_NO = "itemNo";
 
-    private TPDbAdapter adapter;
+    private TPRepository repository;
     private Activity activity;
     private View snackView;
 
     private TextInputEditText itemNoEditText;
     private TextInputEditText brandEditText;
+    private SearchSuggester itemNoSuggester;
+    private SearchSuggester brandSuggester;
     private Spinner layersSpinner;
     private TextInputEditText packageRollsEditText;
     private TextInputEditText rollSheetsEditText;
@@ -173,53 +178,53 @@ public class HomeFragment extends Fragment {
         ((Button) view.findViewById(R.id.sheetPriceCheckBox)).setTextSize(fontSize);
         ((TextInputEditText) view.findViewById(R.id.sheetWidthEditText)).setTextSize(fontSize);
 
-        adapter = new TPDbAdapter(context);
+        repository = TPRepository.getInstance(context);
         pm = new ProductModel();
 
         // Item no
         itemNoEditText = view.findViewById(R.id.itemNoEditText);
+        itemNoSuggester = new SearchSuggester(getViewLifecycleOwner(), repository, itemNoEditText, "ITEM_NO");
 
         // Brand
         brandEditText = view.findViewById(R.id.brandEditText);
+        brandSuggester = new SearchSuggester(getViewLifecycleOwner(), repository, brandEditText, "BRAND");
 
         // Suppliers
         suppliersSpinner = view.findViewById(R.id.suppliersSpinner);
 
-        List<SupplierModel> lsm = new ArrayList<>();
-        ArrayList<String> supplierArrayList = new ArrayList<>();
-
-        boolean goOn = true;
-        int spinnerIndex = 0;
-
-        try {
-            lsm = adapter.getSupplierModels();
-        } catch (Exception e) {
-            goOn = false;
-        }
-
-        if ((goOn) && (lsm.size() == 0)) {
-            goOn = false;
-        }
+        final ArrayAdapter<String> supplierArrayAdapter = new ArrayAdapter<>(context, android.R.layout.simple_spinner_item, new ArrayList<String>());
+        supplierArrayAdapter.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
+        suppliersSpinner.setAdapter(supplierArrayAdapter);
+        suppliersSpinner.setOnItemSelectedListener(getSpinnerListener());
 
-        if (goOn) {
-            String item;
-            String defaultSupplier = preferences.getString("defaultsupplier", "");
+        final String defaultSupplier = preferences.getString("defaultsupplier", "");
+        repository.query(getViewLifecycleOwner(), new TPRepository.DbCall<List<SupplierModel>>() {
+            @Override
+            public List<SupplierModel> call(TPDbAdapter adapter) {
+                return adapter.getSupplierModels();
+            }
+        }, new TPRepository.DbCallback<List<SupplierModel>>() {
+            @Override
+            public void onResult(List<SupplierModel> lsm) {
+                int spinnerIndex = 0;
+                String item;
 
-            for (int i = 0; i < lsm.size(); i++) {
-                item = lsm.get(i).getSupplier();
-                supplierArrayList.add(item);
+                for (int i = 0; i < lsm.size(); i++) {
+                    item = lsm.get(i).getSupplier();
+                    supplierArrayAdapter.add(item);
 
-                if (item.equals(defaultSupplier)) {
-                    spinnerIndex = i;
+                    if (item.equals(defaultSupplier)) {
+                        spinnerIndex = i;
+                    }
                 }
+                suppliersSpinner.setSelection(spinnerIndex);
             }
-        }
 
-        ArrayAdapter<String> supplierArrayAdapter = new ArrayAdapter<>(context, android.R.layout.simple_spinner_item, supplierArrayList);
-        supplierArrayAdapter.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
-        suppliersSpinner.setAdapter(supplierArrayAdapter);
-        suppliersSpinner.setSelection(spinnerIndex);
-        suppliersSpinner.setOnItemSelectedListener(getSpinnerListener());
+            @Override
+            public void onError(Exception e) {
+                // The spinner is left empty, as before
+            }
+        });
 
         // Layers
         layersSpinner = view.findViewById(R.id.layersSpinner);
@@ -469,6 +474,13 @@ public class HomeFragment extends Fragment {
         pricerunnerBtn.setOnClickListener(priceRunnerOnClickListener());
     }
 
+    @Override
+    public void onDestroyView() {
+        itemNoSuggester.cancel();
+        brandSuggester.cancel();
+        super.onDestroyView();
+    }
+
     private View.OnClickListener googleOnClickListener() {
         return new View.OnClickListener() {
             @Override
@@ -505,8 +517,14 @@ public class HomeFragment extends Fragment {
             public void onClick(View v) {
                 hideSoftKeyboard(activity);
                 String message = getString(R.string.calculation_failed);
-                if (calculate()) {
-                    message = getString(R.string.calculation_suceeded);
+
+                try {
+                    if (calculate()) {
+                        message = getString(R.string.calculation_suceeded);
+                    }
+                } catch (NumberFormatException e) {
+                    // The form is left as the user entered it
+                    message = String.valueOf(e.getMessage());
                 }
                 Snackbar.make(snackView, message, Snackbar.LENGTH_LONG).show();
             }
@@ -531,12 +549,33 @@ public class HomeFragment extends Fragment {
 
                 try {
                     pm = populateProductModelFromLayout();
-                    adapter.insertData(pm);
-                    Snackbar.make(snackView, Objects.requireNonNull(getString(R.string.home_fragment_save_message)),
-                            Snackbar.LENGTH_LONG).show();
                 } catch (Exception e) {
                     Snackbar.make(snackView, Objects.requireNonNull(e.getMessage()), Snackbar.LENGTH_LONG).show();
+                    return;
                 }
+
+                final ProductModel saved = pm;
+                repository.update(getViewLifecycleOwner(), new TPRepository.DbCall<Void>() {
+                    @Override
+                    public Void call(TPDbAdapter adapter) {
+                        adapter.insertData(saved);
+                        return null;
+                    }
+                }, new TPRepository.DbCallback<Void>() {
+                    @Override
+                    public void onResult(Void result) {
+                        // The saved product may be a new suggestion
+                        itemNoSuggester.invalidate();
+                        brandSuggester.invalidate();
+                        Snackbar.make(snackView, Objects.requireNonNull(getString(R.string.home_fragment_save_message)),
+                                Snackbar.LENGTH_LONG).show();
+                    }
+
+                    @Override
+                    public void onError(Exception e) {
+                        Snackbar.make(snackView, String.valueOf(e.getMessage()), Snackbar.LENGTH_LONG).show();
+                    }
+                });
             }
         };
     }
@@ -595,18 +634,20 @@ public class HomeFragment extends Fragment {
             sheetLengthCheckBox.setChecked(pm.getSheetLength_c() != 0);
             rollLengthEditText.setText(String.valueOf(pm.getRollLength()));
             rollLengthCheckBox.setChecked(pm.getRollLength_c() != 0);
-            packagePriceEditText.setText(String.valueOf(pm.getPackagePrice()));
-            rollPriceEditText.setText(String.valueOf(pm.getRollPrice()));
+            packagePriceEditText.setText(Money.format(pm.getPackagePrice(), Money.PRICE_SCALE));
+            rollPriceEditText.setText(Money.format(pm.getRollPrice(), Money.UNIT_PRICE_SCALE));
             rollPriceCheckBox.setChecked(pm.getRollPrice_c() != 0);
             paperWeightEditText.setText(String.valueOf(pm.getPaperWeight()));
             paperWeightCheckBox.setChecked(pm.getPaperWeight_c() != 0);
             packageWeightEditText.setText(String.valueOf(pm.getPackageWeight()));
             packageWeightCheckBox.setChecked(pm.getPackageWeight_c() != 0);
-            kiloPriceEditText.setText(String.valueOf(pm.getKiloPrice()));
+            rollWeightEditText.setText(String.valueOf(pm.getRollWeight()));
+            rollWeightCheckBox.setChecked(pm.getRollWeight_c() != 0);
+            kiloPriceEditText.setText(Money.format(pm.getKiloPrice(), Money.UNIT_PRICE_SCALE));
             kiloPriceCheckBox.setChecked(pm.getKiloPrice_c() != 0);
-            meterPriceEditText.setText(String.valueOf(pm.getMeterPrice()));
+            meterPriceEditText.setText(Money.format(pm.getMeterPrice(), Money.UNIT_PRICE_SCALE));
             meterPriceCheckBox.setChecked(pm.getMeterPrice_c() != 0);
-            sheetPriceEditText.setText(String.valueOf(pm.getSheetPrice()));
+            sheetPriceEditText.setText(Money.format(pm.getSheetPrice(), Money.UNIT_PRICE_SCALE));
             sheetPriceCheckBox.setChecked(pm.getSheetPrice_c() != 0);
             suppliersSpinner.setSelection(getIndex(suppliersSpinner, String.valueOf(pm.getSupplier())));
             commentEditText.setText(pm.getComments());
@@ -651,6 +692,10 @@ public class HomeFragment extends Fragment {
         }
     }
 
+    private long getMoneyFromLayout(TextInputEditText et, int scale) {
+        return Money.parse(Objects.requireNonNull(et.getText()).toString(), scale);
+    }
+
     private int getIntFromLayout(Spinner spinner) {
         return Integer.parseInt((String) spinner.getSelectedItem());
     }
@@ -663,40 +708,40 @@ public class HomeFragment extends Fragment {
         return (String) spinner.getSelectedItem();
     }
 
+    /**
+     * @return Product model with the values of the form
+     * @throws NumberFormatException if a number field can not be parsed
+     */
     private ProductModel populateProductModelFromLayout() {
         ProductModel pm = new ProductModel();
 
-        try {
-            pm.setItemNo(getStringFromLayout(itemNoEditText));
-            pm.setBrand(getStringFromLayout(brandEditText));
-            pm.setLayers(getIntFromLayout(layersSpinner));
-            pm.setPackageRolls(getIntFromLayout(packageRollsEditText));
-            pm.setRollSheets(getIntFromLayout(rollSheetsEditText));
-            pm.setSheetWidth(getIntFromLayout(sheetWidthEditText));
-            pm.setSheetLength(getIntFromLayout(sheetLengthEditText));
-            pm.setSheetLength_c(getIntFromLayout(sheetLengthCheckBox));
-            pm.setRollLength(getFloatFromLayout(rollLengthEditText));
-            pm.setRollLength_c(getIntFromLayout(rollLengthCheckBox));
-            pm.setPackagePrice(getFloatFromLayout(packagePriceEditText));
-            pm.setRollPrice(getFloatFromLayout(rollPriceEditText));
-            pm.setRollPrice_c(getIntFromLayout(rollPriceCheckBox));
-            pm.setPaperWeight(getFloatFromLayout(paperWeightEditText));
-            pm.setPaperWeight_c(getIntFromLayout(paperWeightCheckBox));
-            pm.setPackageWeight(getFloatFromLayout(packageWeightEditText));
-            pm.setPackageWeight_c(getIntFromLayout(packageWeightCheckBox));
-            pm.setRollWeight(getFloatFromLayout(rollWeightEditText));
-            pm.setRollWeight_c(getIntFromLayout(rollWeightCheckBox));
-            pm.setKiloPrice(getFloatFromLayout(kiloPriceEditText));
-            pm.setKiloPrice_c(getIntFromLayout(kiloPriceCheckBox));
-            pm.setMeterPrice(getFloatFromLayout(meterPriceEditText));
-            pm.setMeterPrice_c(getIntFromLayout(meterPriceCheckBox));
-            pm.setSheetPrice(getFloatFromLayout(sheetPriceEditText));
-            pm.setSheetPrice_c(getIntFromLayout(sheetPriceCheckBox));
-            pm.setSupplier(getStringFromLayout(suppliersSpinner));
-            pm.setComments(getStringFromLayout(commentEditText));
-        } catch (Exception e) {
-            Snackbar.make(snackView, Objects.requireNonNull(e.getMessage()), Snackbar.LENGTH_LONG).show();
-        }
+        pm.setItemNo(getStringFromLayout(itemNoEditText));
+        pm.setBrand(getStringFromLayout(brandEditText));
+        pm.setLayers(getIntFromLayout(layersSpinner));
+        pm.setPackageRolls(getIntFromLayout(packageRollsEditText));
+        pm.setRollSheets(getIntFromLayout(rollSheetsEditText));
+        pm.setSheetWidth(getIntFromLayout(sheetWidthEditText));
+        pm.setSheetLength(getIntFromLayout(sheetLengthEditText));
+        pm.setSheetLength_c(getIntFromLayout(sheetLengthCheckBox));
+        pm.setRollLength(getFloatFromLayout(rollLengthEditText));
+        pm.setRollLength_c(getIntFromLayout(rollLengthCheckBox));
+        pm.setPackagePrice(getMoneyFromLayout(packagePriceEditText, Money.PRICE_SCALE));
+        pm.setRollPrice(getMoneyFromLayout(rollPriceEditText, Money.UNIT_PRICE_SCALE));
+        pm.setRollPrice_c(getIntFromLayout(rollPriceCheckBox));
+        pm.setPaperWeight(getFloatFromLayout(paperWeightEditText));
+        pm.setPaperWeight_c(getIntFromLayout(paperWeightCheckBox));
+        pm.setPackageWeight(getFloatFromLayout(packageWeightEditText));
+        pm.setPackageWeight_c(getIntFromLayout(packageWeightCheckBox));
+        pm.setRollWeight(getFloatFromLayout(rollWeightEditText));
+        pm.setRollWeight_c(getIntFromLayout(rollWeightCheckBox));
+        pm.setKiloPrice(getMoneyFromLayout(kiloPriceEditText, Money.UNIT_PRICE_SCALE));
+        pm.setKiloPrice_c(getIntFromLayout(kiloPriceCheckBox));
+        pm.setMeterPrice(getMoneyFromLayout(meterPriceEditText, Money.UNIT_PRICE_SCALE));
+        pm.setMeterPrice_c(getIntFromLayout(meterPriceCheckBox));
+        pm.setSheetPrice(getMoneyFromLayout(sheetPriceEditText, Money.UNIT_PRICE_SCALE));
+        pm.setSheetPrice_c(getIntFromLayout(sheetPriceCheckBox));
+        pm.setSupplier(getStringFromLayout(suppliersSpinner));
+        pm.setComments(getStringFromLayout(commentEditText));
 
         return pm;
     }
@@ -724,22 +769,32 @@ public class HomeFragment extends Fragment {
              */
             @Override
             public void onFragmentResult(@NonNull String itemNoRequestKey, @NonNull Bundle bundle) {
-                String result = bundle.getString(ITEM_NO);
+                final String result = bundle.getString(ITEM_NO);
 
-                try {
-                    List<ProductModel> lpm = adapter.getProductModels("ITEM_NO=?", result);
-
-                    if (lpm.size() == 0) {
-                        itemNoEditText.setText(result);
-                        populateLayoutFromProductModel(new ProductModel());
-                        Snackbar.make(snackView,
-                                R.string.itemno_not_found, Snackbar.LENGTH_LONG).show();
-                    } else {
-                        populateLayoutFromProductModel(lpm.get(0));
+                // Normally already in the cache, as the scanner starts the lookup
+                repository.query(getViewLifecycleOwner(), new TPRepository.DbCall<ProductModel>() {
+                    @Override
+                    public ProductModel call(TPDbAdapter adapter) {
+                        return adapter.getLatestProduct(result);
                     }
-                } catch (Exception e) {
-                    Snackbar.make(snackView, Objects.requireNonNull(e.getMessage()), Snackbar.LENGTH_LONG).show();
-                }
+                }, new TPRepository.DbCallback<ProductModel>() {
+                    @Override
+                    public void onResult(ProductModel latest) {
+                        if (latest == null) {
+                            itemNoEditText.setText(result);
+                            populateLayoutFromProductModel(new ProductModel());
+                            Snackbar.make(snackView,
+                                    R.string.itemno_not_found, Snackbar.LENGTH_LONG).show();
+                        } else {
+                            populateLayoutFromProductModel(latest);
+                        }
+                    }
+
+                    @Override
+                    public void onError(Exception e) {
+                        Snackbar.make(snackView, String.valueOf(e.getMessage()), Snackbar.LENGTH_LONG).show();
+                    }
+                });
             }
         };
     }
@@ -755,20 +810,29 @@ public class HomeFragment extends Fragment {
              */
             @Override
             public void onFragmentResult(@NonNull String brandRequestKey, @NonNull Bundle bundle) {
-                String result = bundle.getString(BRAND);
+                final String result = bundle.getString(BRAND);
 
-                try {
-                    List<ProductModel> lpm = adapter.getProductModels("BRAND=?", result);
+                repository.query(getViewLifecycleOwner(), new TPRepository.DbCall<List<ProductModel>>() {
+                    @Override
+                    public List<ProductModel> call(TPDbAdapter adapter) {
+                        return adapter.getProductModels("BRAND=?", result);
+                    }
+                }, new TPRepository.DbCallback<List<ProductModel>>() {
+                    @Override
+                    public void onResult(List<ProductModel> lpm) {
+                        if (lpm.size() == 0) {
+                            Snackbar.make(snackView,
+                                    R.string.brand_not_found, Snackbar.LENGTH_LONG).show();
+                        } else {
+                            populateLayoutFromProductModel(lpm.get(0));
+                        }
+                    }
 
-                    if (lpm.size() == 0) {
-                        Snackbar.make(snackView,
-                                R.string.brand_not_found, Snackbar.LENGTH_LONG).show();
-                    } else {
-                        populateLayoutFromProductModel(lpm.get(0));
+                    @Override
+                    public void onError(Exception e) {
+                        Snackbar.make(snackView, String.valueOf(e.getMessage()), Snackbar.LENGTH_LONG).show();
                     }
-                } catch (Exception e) {
-                    Snackbar.make(snackView, Objects.requireNonNull(e.getMessage()), Snackbar.LENGTH_LONG).show();
-                }
+                });
             }
         };
     }
@@ -779,187 +843,69 @@ public class HomeFragment extends Fragment {
     }
 
     /**
-     * Calculate all calculable fields
+     * Calculate all calculable fields. The form is read into a product model, the
+     * calculator fills in the derived fields, and only those fields are written back, so
+     * the values entered by the user are left as they are.
+     *
+     * @return true if any field was computed
+     * @throws NumberFormatException if a number field can not be parsed. The form is not changed
      */
     private boolean calculate() {
-        // Sheet length = roll length / sheets pet roll
-        boolean fSheetLength = false;
-        try {
-            fSheetLength = divide(rollLengthEditText,
-                    rollSheetsEditText,
-                    sheetLengthEditText, sheetLengthCheckBox, 1000);
-        } catch (Exception ignored) {
-        }
-        if (!fSheetLength) {
-            sheetLengthEditText.setText("0");
-            sheetLengthCheckBox.setChecked(false);
-        }
-
-        // Roll length = sheet length * sheets per roll
-        boolean fRollLength = false;
-        try {
-            fRollLength = multiply(sheetLengthEditText, rollSheetsEditText,
-                    rollLengthEditText, rollLengthCheckBox, 1000);
-        } catch (Exception ignored) {
-        }
-        if (!fRollLength) {
-            rollLengthEditText.setText("0.0");
-            rollLengthCheckBox.setChecked(false);
-        }
+        ProductModel pm = populateProductModelFromLayout();
+        boolean computed = ProductCalculator.calculate(pm);
+        populateDerivedFieldsFromProductModel(pm);
+        return computed;
+    }
 
-        // Price per roll = price per package / rolls per package
-        boolean fRollPrice = false;
-        try {
-            fRollPrice = divide(packagePriceEditText, packageRollsEditText,
-                    rollPriceEditText, rollPriceCheckBox, 1);
-        } catch (Exception ignored) {
-        }
-        if (!fRollPrice) {
-            rollPriceEditText.setText("0.0");
-            rollPriceCheckBox.setChecked(false);
+    /**
+     * Write the derived fields back to the form. A field is written if it is computed now,
+     * or was computed before and may have been cleared. The check boxes still show the
+     * fields computed before.
+     */
+    private void populateDerivedFieldsFromProductModel(ProductModel pm) {
+        if ((pm.getSheetLength_c() != 0) || sheetLengthCheckBox.isChecked()) {
+            sheetLengthEditText.setText(String.valueOf(pm.getSheetLength()));
+            sheetLengthCheckBox.setChecked(pm.getSheetLength_c() != 0);
         }
 
-//        /**
-//         * Package weight 1088 g
-//         * Roll weigth = 1088 /  packagerolls 8 = 136 g
-//         * Sheet weight = 136 / rollsheets 255 = 0,5333... g
-//         *
-//         * Sheet area = sheet length 125 * sheet width 97 = 12125 mm2
-//         * Sheets per m2 = 1 / 12125 * 1000000 = 82,47
-//         *
-//         * g per m2 = 0,533.. * 82,47 = 44 g per m2
-//         */
-
-        boolean fRollWeight = false;
-        try {
-            fRollWeight = divide(packageWeightEditText, packageRollsEditText, rollWeightEditText,
-                    rollWeightCheckBox, 1000);
-        } catch (Exception ignored) {
-        }
-        if (!fRollWeight) {
-            rollWeightEditText.setText("0.0");
-            rollWeightCheckBox.setChecked(false);
+        if ((pm.getRollLength_c() != 0) || rollLengthCheckBox.isChecked()) {
+            rollLengthEditText.setText(String.valueOf(pm.getRollLength()));
+            rollLengthCheckBox.setChecked(pm.getRollLength_c() != 0);
         }
 
-        boolean fMeterPrice = false;
-        try {
-            fMeterPrice = divide(packagePriceEditText,
-                    packageRollsEditText,
-                    rollLengthEditText,
-                    meterPriceEditText, meterPriceCheckBox, 1);
-        } catch (Exception ignored) {
-        }
-        if (!fMeterPrice) {
-            meterPriceEditText.setText("0.0");
-            meterPriceCheckBox.setChecked(false);
+        if ((pm.getPackageWeight_c() != 0) || packageWeightCheckBox.isChecked()) {
+            packageWeightEditText.setText(String.valueOf(pm.getPackageWeight()));
+            packageWeightCheckBox.setChecked(pm.getPackageWeight_c() != 0);
         }
 
-        boolean fSheetPrice = false;
-        try {
-            fSheetPrice = divide(packagePriceEditText,
-                    packageRollsEditText,
-                    rollSheetsEditText,
-                    sheetPriceEditText, sheetPriceCheckBox, 1);
-        } catch (Exception ignored) {
+        if ((pm.getRollWeight_c() != 0) || rollWeightCheckBox.isChecked()) {
+            rollWeightEditText.setText(String.valueOf(pm.getRollWeight()));
+            rollWeightCheckBox.setChecked(pm.getRollWeight_c() != 0);
         }
-        if (!fSheetPrice) {
-            sheetPriceEditText.setText("0.0");
-            sheetPriceCheckBox.setChecked(false);
-        }
-
-        return fSheetLength | fSheetPrice | fRollPrice | fMeterPrice | fSheetPrice | fRollLength;
-    }
 
-    private boolean multiply(TextInputEditText multiplicand, TextInputEditText multiplier, TextInputEditText product, CheckBox cb, @SuppressWarnings("SameParameterValue") int precision) {
-        String s1, s2;
-        String s3;
-
-        if ((cb != null) && !(cb.isChecked())) {
-            s3 = Objects.requireNonNull(product.getText()).toString();
-
-            if ((!s3.isEmpty()) && (Integer.parseInt(s3) > 0)) {
-                return false;
-            }
-        }
-
-        // Then test for zero values
-        s1 = Objects.requireNonNull(multiplicand.getText()).toString();
-        if ((s1.isEmpty()) || (s1.equals("0"))) {
-            return false;
-        }
-        s2 = Objects.requireNonNull(multiplier.getText()).toString();
-        if ((s2.isEmpty()) || (s2.equals("0"))) {
-            return false;
+        if ((pm.getPaperWeight_c() != 0) || paperWeightCheckBox.isChecked()) {
+            paperWeightEditText.setText(String.valueOf(pm.getPaperWeight()));
+            paperWeightCheckBox.setChecked(pm.getPaperWeight_c() != 0);
         }
 
-        // Now do the calculation
-        float i3 = Float.parseFloat(s1) * Float.parseFloat(s2) / precision;
-        product.setText(String.valueOf(i3));
-        Objects.requireNonNull(cb).setChecked(true);
-        return true;
-    }
-
-    private boolean divide(TextInputEditText dividend, TextInputEditText divisor, TextInputEditText quotient, CheckBox cb, int precision) {
-        String s1, s2;
-        String s3;
-
-        if ((cb != null) && !(cb.isChecked())) {
-            s3 = Objects.requireNonNull(quotient.getText()).toString();
-
-            if ((!s3.isEmpty()) && (Float.parseFloat(s3) > 0)) {
-                return false;
-            }
+        if ((pm.getRollPrice_c() != 0) || rollPriceCheckBox.isChecked()) {
+            rollPriceEditText.setText(Money.format(pm.getRollPrice(), Money.UNIT_PRICE_SCALE));
+            rollPriceCheckBox.setChecked(pm.getRollPrice_c() != 0);
         }
 
-        // Then test for zero values
-        s1 = Objects.requireNonNull(dividend.getText()).toString();
-        if ((s1.isEmpty()) || (s1.equals("0") || (s1.equals("0.0")))) {
-            return false;
-        }
-        s2 = Objects.requireNonNull(divisor.getText()).toString();
-        if ((s2.isEmpty()) || (s2.equals("0") || (s2.equals("0.0")))) {
-            return false;
+        if ((pm.getKiloPrice_c() != 0) || kiloPriceCheckBox.isChecked()) {
+            kiloPriceEditText.setText(Money.format(pm.getKiloPrice(), Money.UNIT_PRICE_SCALE));
+            kiloPriceCheckBox.setChecked(pm.getKiloPrice_c() != 0);
         }
 
-        // Now do the calculation
-        float i3 = Float.parseFloat(s1) * precision / Float.parseFloat(s2);
-        quotient.setText(String.valueOf(i3));
-        Objects.requireNonNull(cb).setChecked(true);
-        return true;
-    }
-
-    private boolean divide(TextInputEditText dividend,
-                           TextInputEditText divisor,
-                           TextInputEditText divisor2,
-                           TextInputEditText quotient, CheckBox cb, @SuppressWarnings("SameParameterValue") int precision) {
-        String s1, s2, s3, s4;
-
-        if ((cb != null) && !(cb.isChecked())) {
-            s4 = Objects.requireNonNull(quotient.getText()).toString();
-
-            if ((!s4.isEmpty()) && (Float.parseFloat(s4) > 0)) {
-                return false;
-            }
+        if ((pm.getMeterPrice_c() != 0) || meterPriceCheckBox.isChecked()) {
+            meterPriceEditText.setText(Money.format(pm.getMeterPrice(), Money.UNIT_PRICE_SCALE));
+            meterPriceCheckBox.setChecked(pm.getMeterPrice_c() != 0);
         }
 
-        // Then test for zero values
-        s1 = Objects.requireNonNull(dividend.getText()).toString();
-        if ((s1.isEmpty()) || (s1.equals("0") || (s1.equals("0.0")))) {
-            return false;
-        }
-        s2 = Objects.requireNonNull(divisor.getText()).toString();
-        if ((s2.isEmpty()) || (s2.equals("0") || (s2.equals("0.0")))) {
-            return false;
-        }
-        s3 = Objects.requireNonNull(divisor2.getText()).toString();
-        if ((s3.isEmpty()) || (s3.equals("0") || (s3.equals("0.0")))) {
-            return false;
+        if ((pm.getSheetPrice_c() != 0) || sheetPriceCheckBox.isChecked()) {
+            sheetPriceEditText.setText(Money.format(pm.getSheetPrice(), Money.UNIT_PRICE_SCALE));
+            sheetPriceCheckBox.setChecked(pm.getSheetPrice_c() != 0);
         }
-
-        // Now do the calculation
-        float fq = Float.parseFloat(s1) * precision / Float.parseFloat(s2) / Float.parseFloat(s3);
-        quotient.setText(String.valueOf(fq));
-        Objects.requireNonNull(cb).setChecked(true);
-        return true;
     }
 }
@@ -23,6 +23,8 @@ import androidx.recyclerview.widget.RecyclerView;
 import com.google.android.material.snackbar.Snackbar;
 
 import net.myerichsen.toiletpaper.R;
+import net.myerichsen.toiletpaper.TPDbAdapter;
+import net.myerichsen.toiletpaper.TPRepository;
 import net.myerichsen.toiletpaper.ui.home.ItemNoModel.ItemNoItem;
 
 import java.util.Objects;
@@ -104,31 +106,45 @@ public class ItemNoListFragment extends Fragment {
         super.onViewCreated(view, savedInstanceState);
 
         Context context = getContext();
-        View snackView = requireActivity().findViewById(android.R.id.content);
+        final View snackView = requireActivity().findViewById(android.R.id.content);
 
         // Set the adapter
         if (view instanceof RecyclerView) {
-            RecyclerView recyclerView = (RecyclerView) view;
+            final RecyclerView recyclerView = (RecyclerView) view;
             if (mColumnCount <= 1) {
                 recyclerView.setLayoutManager(new LinearLayoutManager(context));
             } else {
                 recyclerView.setLayoutManager(new GridLayoutManager(context, mColumnCount));
             }
 
-            ItemNoModel itemNoModel = new ItemNoModel(context, itemNo);
-            if (itemNoModel.ITEMS.size() == 0) {
-                Snackbar.make(snackView,
-                        R.string.itemno_not_found, Snackbar.LENGTH_LONG).show();
-                requireActivity().onBackPressed();
-                return;
-            } else if (itemNoModel.ITEMS.size() == 1) {
-                Bundle result = new Bundle();
-                result.putString(ITEM_NO, itemNoModel.ITEMS.get(0).itemNo);
-                requireActivity().getSupportFragmentManager().setFragmentResult("itemNoRequestKey", result);
-                requireActivity().onBackPressed();
-                return;
-            }
-            recyclerView.setAdapter(new ItemNoRecyclerViewAdapter(itemNoModel.ITEMS, fiListener));
+            TPRepository.getInstance(requireContext()).query(getViewLifecycleOwner(), new TPRepository.DbCall<ItemNoModel>() {
+                @Override
+                public ItemNoModel call(TPDbAdapter adapter) {
+                    return new ItemNoModel(adapter, itemNo);
+                }
+            }, new TPRepository.DbCallback<ItemNoModel>() {
+                @Override
+                public void onResult(ItemNoModel itemNoModel) {
+                    if (itemNoModel.ITEMS.size() == 0) {
+                        Snackbar.make(snackView,
+                                R.string.itemno_not_found, Snackbar.LENGTH_LONG).show();
+                        requireActivity().onBackPressed();
+                        return;
+                    } else if (itemNoModel.ITEMS.size() == 1) {
+                        Bundle result = new Bundle();
+                        result.putString(ITEM_NO, itemNoModel.ITEMS.get(0).itemNo);
+                        requireActivity().getSupportFragmentManager().setFragmentResult("itemNoRequestKey", result);
+                        requireActivity().onBackPressed();
+                        return;
+                    }
+                    recyclerView.setAdapter(new ItemNoRecyclerViewAdapter(itemNoModel.ITEMS, fiListener));
+                }
+
+                @Override
+                public void onError(Exception e) {
+                    Snackbar.make(snackView, String.valueOf(e.getMessage()), Snackbar.LENGTH_LONG).show();
+                }
+            });
         }
         hideSoftKeyboard(requireActivity());
 
@@ -6,10 +6,8 @@
 
 package net.myerichsen.toiletpaper.ui.home;
 
-import android.content.Context;
-
 import net.myerichsen.toiletpaper.TPDbAdapter;
-import net.myerichsen.toiletpaper.ui.products.ProductModel;
+import net.myerichsen.toiletpaper.ui.products.ProductSummary;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -25,29 +23,24 @@ public class ItemNoModel {
      */
     public final List<ItemNoItem> ITEMS;
 
-    public ItemNoModel(Context context, String itemNo) {
+    /**
+     * Search the item numbers. Runs on a background thread.
+     */
+    public ItemNoModel(TPDbAdapter adapter, String itemNo) {
         ITEMS = new ArrayList<>();
 
-        TPDbAdapter adapter = new TPDbAdapter(context);
-
-        List<ProductModel> lpm;
+        List<ProductSummary> lps;
         if ((itemNo != null) && (!itemNo.equals(""))) {
-
-            if (!(itemNo).endsWith("%")) {
-                itemNo += "%";
-            }
-
-            lpm = adapter.getProductModels("ITEM_NO LIKE ?", itemNo, "TIME_STAMP");
+            // Prefix search in the full text index
+            lps = adapter.searchProductSummaries("ITEM_NO", itemNo, "TIME_STAMP");
         } else return;
 
-        if (lpm.size() == 0) {
+        if (lps.size() == 0) {
             return;
         }
 
-        for (ProductModel pm : lpm) {
-            addItem(new ItemNoItem(pm.getItemNo(),
-                    pm.getBrand(), pm.getSupplier(),
-                    pm.getTimestamp()));
+        for (ProductSummary ps : lps) {
+            addItem(new ItemNoItem(ps.itemNo, ps.brand, ps.supplier, ps.timestamp));
         }
     }
 
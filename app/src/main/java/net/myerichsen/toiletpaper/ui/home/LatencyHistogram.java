@@ -0,0 +1,68 @@
+/*
+ * Copyright (c) 2020. Michael Erichsen.
+ *
+ * The program is distributed under the terms of the GNU Affero General Public License v3.0
+ */
+
+package net.myerichsen.toiletpaper.ui.home;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Histogram of latencies in power-of-two millisecond buckets, for tuning in debug builds.
+ * Recording is a few array operations and allocates nothing.
+ */
+class LatencyHistogram {
+    // Upper bounds in ms of all buckets but the last, which has no bound
+    private static final long[] BOUNDS = {1, 2, 4, 8, 16, 32, 64, 128, 256, 512};
+    private final long[] counts = new long[BOUNDS.length + 1];
+    private long total;
+    private long maxNanos;
+
+    /**
+     * @param nanos Latency of one event
+     */
+    synchronized void record(long nanos) {
+        int bucket = 0;
+
+        while ((bucket < BOUNDS.length) && (nanos > BOUNDS[bucket] * 1000000)) {
+            bucket++;
+        }
+        counts[bucket]++;
+        total++;
+        maxNanos = Math.max(maxNanos, nanos);
+    }
+
+    /**
+     * @return Number of events recorded
+     */
+    synchronized long count() {
+        return total;
+    }
+
+    /**
+     * @param fraction e.g. 0.9 for the 90th percentile
+     * @return Upper bound in ms of the bucket holding the percentile, or -1 if it is
+     * in the last bucket or nothing is recorded
+     */
+    synchronized long percentile(double fraction) {
+        long rank = (long) Math.ceil(fraction * total);
+        long seen = 0;
+
+        for (int i = 0; i < BOUNDS.length; i++) {
+            seen += counts[i];
+
+            if ((total > 0) && (seen >= rank)) {
+                return BOUNDS[i];
+            }
+        }
+        return -1;
+    }
+
+    @NonNull
+    @Override
+    public synchronized String toString() {
+        return "n=" + total + ", p50<=" + percentile(0.5) + " ms, p90<=" + percentile(0.9) +
+                " ms, p99<=" + percentile(0.99) + " ms, max=" + (maxNanos / 1000000) + " ms";
+    }
+}
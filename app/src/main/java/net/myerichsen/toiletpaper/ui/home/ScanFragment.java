@@ -8,10 +8,12 @@ package net.myerichsen.toiletpaper.ui.home;
 
 import android.Manifest;
 import android.content.Context;
+import android.content.SharedPreferences;
 import android.content.pm.PackageManager;
 import android.media.AudioManager;
 import android.media.ToneGenerator;
 import android.os.Bundle;
+import android.util.Log;
 import android.util.SparseArray;
 import android.view.LayoutInflater;
 import android.view.SurfaceHolder;
@@ -24,26 +26,37 @@ import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.core.app.ActivityCompat;
 import androidx.fragment.app.Fragment;
+import androidx.fragment.app.FragmentActivity;
+import androidx.preference.PreferenceManager;
 
 import com.google.android.gms.vision.CameraSource;
 import com.google.android.gms.vision.Detector;
 import com.google.android.gms.vision.barcode.Barcode;
 import com.google.android.gms.vision.barcode.BarcodeDetector;
 
+import net.myerichsen.toiletpaper.BuildConfig;
 import net.myerichsen.toiletpaper.R;
+import net.myerichsen.toiletpaper.TPDbAdapter;
+import net.myerichsen.toiletpaper.TPRepository;
+import net.myerichsen.toiletpaper.ui.products.ProductModel;
 
 import java.io.IOException;
 
 import static net.myerichsen.toiletpaper.ui.home.HomeFragment.ITEM_NO;
 
 public class ScanFragment extends Fragment {
+    private static final String TAG = "ScanFragment";
     private static final int REQUEST_CAMERA_PERMISSION = 201;
+    // A code must be read in this many consecutive frames
+    private static final int CONFIRM_FRAMES = 3;
     private Context context;
     private SurfaceView surfaceView;
     private CameraSource cameraSource;
     private ToneGenerator toneGen1;
+    private final BarcodeConfirmer confirmer = new BarcodeConfirmer(CONFIRM_FRAMES);
+    // Decode times, in debug builds only
+    private LatencyHistogram histogram;
     private TextView barcodeText;
-    private String barcodeData;
 
     /**
      * Mandatory empty constructor for the fragment manager to instantiate the
@@ -88,18 +101,36 @@ public class ScanFragment extends Fragment {
     }
 
     private void initialiseDetectorsAndSources() {
+        SharedPreferences preferences = PreferenceManager.getDefaultSharedPreferences(context);
+        ScanProfile profile = ScanProfile.forName(preferences.getString("scanprofile", ScanProfile.RETAIL));
+
         BarcodeDetector barcodeDetector = new BarcodeDetector.Builder(context)
-                .setBarcodeFormats(Barcode.ALL_FORMATS)
+                .setBarcodeFormats(profile.formats)
                 .build();
+        Detector<Barcode> detector = barcodeDetector;
+
+        if (BuildConfig.DEBUG) {
+            histogram = new LatencyHistogram();
+            detector = new TimedDetector<>(barcodeDetector, histogram);
+        }
 
-        cameraSource = new CameraSource.Builder(context, barcodeDetector)
-                .setRequestedPreviewSize(1920, 1080)
+        cameraSource = new CameraSource.Builder(context, detector)
+                .setRequestedPreviewSize(profile.previewWidth, profile.previewHeight)
+                .setRequestedFps(profile.fps)
                 .setAutoFocusEnabled(true) //you should add this feature
                 .build();
 
         surfaceView.getHolder().addCallback(surfaceHolderCallBack());
 
-        barcodeDetector.setProcessor(barcodeDetections());
+        detector.setProcessor(barcodeDetections());
+    }
+
+    @Override
+    public void onDestroyView() {
+        if (histogram != null) {
+            Log.d(TAG, "Decode time per frame: " + histogram);
+        }
+        super.onDestroyView();
     }
 
     private SurfaceHolder.Callback surfaceHolderCallBack() {
@@ -138,35 +169,79 @@ public class ScanFragment extends Fragment {
 
             @Override
             public void receiveDetections(Detector.Detections<Barcode> detections) {
-                final SparseArray<Barcode> barcodes = detections.getDetectedItems();
+                // Frames after the confirmed code are dropped here, on the detector thread
+                if (confirmer.isConfirmed()) {
+                    return;
+                }
+
+                SparseArray<Barcode> barcodes = detections.getDetectedItems();
+                String code = null;
+
                 if (barcodes.size() != 0) {
-                    barcodeText.post(new Runnable() {
+                    Barcode barcode = barcodes.valueAt(0);
+                    code = (barcode.email != null) ? barcode.email.address : barcode.displayValue;
+                }
+
+                final String confirmed = confirmer.onFrame(code);
 
+                if (confirmed != null) {
+                    barcodeText.post(new Runnable() {
                         @Override
                         public void run() {
-                            if (barcodes.valueAt(0).email != null) {
-                                barcodeText.removeCallbacks(null);
-                                barcodeData = barcodes.valueAt(0).email.address;
-                                barcodeText.setText(barcodeData);
-                                toneGen1.startTone(ToneGenerator.TONE_CDMA_PIP, 150);
-                            } else {
-                                barcodeData = barcodes.valueAt(0).displayValue;
-                                barcodeText.setText(barcodeData);
-                                toneGen1.startTone(ToneGenerator.TONE_CDMA_PIP, 150);
-                            }
-                            Bundle result = new Bundle();
-                            result.putString(ITEM_NO, barcodeData);
-                            try {
-                                requireActivity().getSupportFragmentManager().setFragmentResult("itemNoRequestKey", result);
-                                requireActivity().onBackPressed();
-                            } catch (Exception e) {
-                                e.printStackTrace();
-                            }
+                            onBarcodeConfirmed(confirmed);
                         }
                     });
-
                 }
             }
         };
     }
+
+    /**
+     * Return a confirmed code to the screen that started the scan. Runs once per scan.
+     */
+    private void onBarcodeConfirmed(String barcodeData) {
+        // Nothing more to decode
+        cameraSource.stop();
+        barcodeText.setText(barcodeData);
+        toneGen1.startTone(ToneGenerator.TONE_CDMA_PIP, 150);
+
+        Bundle result = new Bundle();
+        result.putString(ITEM_NO, barcodeData);
+        try {
+            // Throws if the fragment has been detached in the meantime
+            FragmentActivity activity = requireActivity();
+
+            // Start looking the product up while the home screen is brought back
+            prefetchProduct(activity, barcodeData);
+            activity.getSupportFragmentManager().setFragmentResult("itemNoRequestKey", result);
+            activity.onBackPressed();
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Read the scanned product into the cache of TPDbAdapter. The lookup is owned by the
+     * activity, so it is not cancelled when this fragment is popped.
+     *
+     * @param activity Activity of the fragment
+     * @param itemNo   Scanned item number
+     */
+    private void prefetchProduct(FragmentActivity activity, final String itemNo) {
+        TPRepository.getInstance(activity).query(activity, new TPRepository.DbCall<ProductModel>() {
+            @Override
+            public ProductModel call(TPDbAdapter adapter) {
+                return adapter.getLatestProduct(itemNo);
+            }
+        }, new TPRepository.DbCallback<ProductModel>() {
+            @Override
+            public void onResult(ProductModel pm) {
+            }
+
+            @Override
+            public void onError(Exception e) {
+                // The home screen looks the product up again
+            }
+        });
+    }
 }
@@ -0,0 +1,46 @@
+/*
+ * Copyright (c) 2020. Michael Erichsen.
+ *
+ * The program is distributed under the terms of the GNU Affero General Public License v3.0
+ */
+
+package net.myerichsen.toiletpaper.ui.home;
+
+import com.google.android.gms.vision.barcode.Barcode;
+
+/**
+ * Decoder settings of the scan screen, chosen by the "scanprofile" preference.
+ * <p>
+ * Every barcode format the detector looks for and every pixel of the preview costs decode
+ * time and battery. Retail packages carry EAN or UPC codes, which are readable at a lower
+ * resolution, so the retail profile is the default. The full profile also reads QR and
+ * other codes at full HD, as the scan screen always did.
+ * </p>
+ */
+final class ScanProfile {
+    static final String RETAIL = "retail";
+    static final String ALL = "all";
+    final int formats;
+    final int previewWidth;
+    final int previewHeight;
+    final float fps;
+
+    private ScanProfile(int formats, int previewWidth, int previewHeight, float fps) {
+        this.formats = formats;
+        this.previewWidth = previewWidth;
+        this.previewHeight = previewHeight;
+        this.fps = fps;
+    }
+
+    /**
+     * @param name Value of the preference
+     * @return The profile. Unknown values give the retail profile
+     */
+    static ScanProfile forName(String name) {
+        if (ALL.equals(name)) {
+            return new ScanProfile(Barcode.ALL_FORMATS, 1920, 1080, 30.0f);
+        }
+        return new ScanProfile(Barcode.EAN_13 | Barcode.EAN_8 | Barcode.UPC_A | Barcode.UPC_E,
+                1280, 720, 15.0f);
+    }
+}
@@ -0,0 +1,186 @@
+/*
+ * Copyright (c) 2020. Michael Erichsen.
+ *
+ * The program is distributed under the terms of the GNU Affero General Public License v3.0
+ */
+
+package net.myerichsen.toiletpaper.ui.home;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.text.Editable;
+import android.text.TextWatcher;
+import android.view.View;
+import android.widget.AdapterView;
+import android.widget.ArrayAdapter;
+import android.widget.EditText;
+import android.widget.ListPopupWindow;
+
+import androidx.lifecycle.LifecycleOwner;
+
+import net.myerichsen.toiletpaper.TPDbAdapter;
+import net.myerichsen.toiletpaper.TPRepository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Future;
+
+/**
+ * Search-as-you-type suggestions in a dropdown below a text field.
+ * <p>
+ * The search waits until typing pauses, so a burst of keystrokes costs one query. A new
+ * keystroke cancels the query still waiting for a thread, and a result for a text that
+ * has since changed is dropped. Texts searched before are served from a SuggestionCache
+ * without a query.
+ * </p>
+ */
+class SearchSuggester {
+    private static final long DEBOUNCE_MILLIS = 250;
+    private static final int LIMIT = 20;
+    private static final int CACHE_CAPACITY = 64;
+    private final LifecycleOwner owner;
+    private final TPRepository repository;
+    private final EditText editText;
+    private final String column;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final SuggestionCache cache = new SuggestionCache(LIMIT, CACHE_CAPACITY);
+    private final ArrayAdapter<String> arrayAdapter;
+    private final ListPopupWindow popup;
+    private Future<List<String>> pending;
+    private boolean selecting;
+
+    private final Runnable search = new Runnable() {
+        @Override
+        public void run() {
+            query(editText.getText().toString());
+        }
+    };
+
+    /**
+     * Constructor. Starts watching the text field.
+     *
+     * @param owner      Lifecycle owner, normally the view lifecycle owner of the fragment
+     * @param repository Repository to search
+     * @param editText   Text field
+     * @param column     Product column to suggest, ITEM_NO or BRAND
+     */
+    SearchSuggester(LifecycleOwner owner, TPRepository repository, EditText editText, String column) {
+        this.owner = owner;
+        this.repository = repository;
+        this.editText = editText;
+        this.column = column;
+
+        arrayAdapter = new ArrayAdapter<>(editText.getContext(),
+                android.R.layout.simple_dropdown_item_1line, new ArrayList<String>());
+        popup = new ListPopupWindow(editText.getContext());
+        popup.setAnchorView(editText);
+        popup.setAdapter(arrayAdapter);
+        popup.setOnItemClickListener(new AdapterView.OnItemClickListener() {
+            @Override
+            public void onItemClick(AdapterView<?> parent, View view, int position, long id) {
+                String suggestion = arrayAdapter.getItem(position);
+
+                // Setting the text must not start a new search
+                selecting = true;
+                SearchSuggester.this.editText.setText(suggestion);
+                SearchSuggester.this.editText.setSelection(SearchSuggester.this.editText.length());
+                selecting = false;
+                popup.dismiss();
+            }
+        });
+
+        editText.addTextChangedListener(new TextWatcher() {
+            @Override
+            public void beforeTextChanged(CharSequence s, int start, int count, int after) {
+            }
+
+            @Override
+            public void onTextChanged(CharSequence s, int start, int before, int count) {
+            }
+
+            @Override
+            public void afterTextChanged(Editable s) {
+                if (!selecting && SearchSuggester.this.editText.hasFocus()) {
+                    onTextTyped(s.toString());
+                }
+            }
+        });
+    }
+
+    /**
+     * Stop searching and hide the dropdown, e.g. when the view is destroyed
+     */
+    void cancel() {
+        handler.removeCallbacks(search);
+        cancelPending();
+        popup.dismiss();
+    }
+
+    /**
+     * Forget the cached suggestions, after the products have changed
+     */
+    void invalidate() {
+        cache.clear();
+    }
+
+    private void onTextTyped(String text) {
+        handler.removeCallbacks(search);
+        cancelPending();
+
+        if (text.trim().isEmpty()) {
+            popup.dismiss();
+            return;
+        }
+
+        List<String> cached = cache.get(text);
+
+        if (cached != null) {
+            show(cached);
+        } else {
+            handler.postDelayed(search, DEBOUNCE_MILLIS);
+        }
+    }
+
+    private void query(final String text) {
+        pending = repository.query(owner, new TPRepository.DbCall<List<String>>() {
+            @Override
+            public List<String> call(TPDbAdapter adapter) {
+                return adapter.getSuggestions(column, text, LIMIT);
+            }
+        }, new TPRepository.DbCallback<List<String>>() {
+            @Override
+            public void onResult(List<String> suggestions) {
+                cache.put(text, suggestions);
+
+                // Only the result for the text now in the field is shown
+                if (text.equals(editText.getText().toString())) {
+                    show(suggestions);
+                }
+            }
+
+            @Override
+            public void onError(Exception e) {
+                // Suggestions are a convenience. The search buttons still work
+                popup.dismiss();
+            }
+        });
+    }
+
+    private void cancelPending() {
+        if (pending != null) {
+            pending.cancel(false);
+            pending = null;
+        }
+    }
+
+    private void show(List<String> suggestions) {
+        arrayAdapter.clear();
+        arrayAdapter.addAll(suggestions);
+
+        if (suggestions.isEmpty()) {
+            popup.dismiss();
+        } else if (editText.hasFocus()) {
+            popup.show();
+        }
+    }
+}
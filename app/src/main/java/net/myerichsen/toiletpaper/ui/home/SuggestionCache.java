@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) 2020. Michael Erichsen.
+ *
+ * The program is distributed under the terms of the GNU Affero General Public License v3.0
+ */
+
+package net.myerichsen.toiletpaper.ui.home;
+
+import net.myerichsen.toiletpaper.ProductIndex;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * In-memory cache of search suggestions by search text.
+ * <p>
+ * A text typed again is served from the cache. A text that extends a cached text is also
+ * served from the cache if that result was complete, i.e. shorter than the limit, as its
+ * suggestions can only be a subset. Matching follows the product index: the text must
+ * start at a word of the suggestion, ignoring case and diacritics. The least
+ * recently used texts are evicted first. Used on the UI thread only.
+ * </p>
+ */
+class SuggestionCache {
+    private final int limit;
+    private final Map<String, List<String>> cache;
+
+    /**
+     * Constructor
+     *
+     * @param limit    Maximum number of suggestions per search
+     * @param capacity Maximum number of search texts cached
+     */
+    SuggestionCache(int limit, final int capacity) {
+        this.limit = limit;
+        this.cache = new LinkedHashMap<String, List<String>>(capacity + 1, 1.0f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, List<String>> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * @param text Search text
+     * @return Cached suggestions, or null if the database must be searched
+     */
+    List<String> get(String text) {
+        String key = ProductIndex.fold(text);
+        List<String> suggestions = cache.get(key);
+
+        if (suggestions != null) {
+            return suggestions;
+        }
+
+        // The longest cached prefix with a complete result
+        for (int end = key.length() - 1; end > 0; end--) {
+            List<String> shorter = cache.get(key.substring(0, end));
+
+            if ((shorter != null) && (shorter.size() < limit)) {
+                suggestions = filter(shorter, key);
+                cache.put(key, suggestions);
+                return suggestions;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @param text        Search text
+     * @param suggestions Suggestions found in the database
+     */
+    void put(String text, List<String> suggestions) {
+        cache.put(ProductIndex.fold(text), suggestions);
+    }
+
+    /**
+     * Forget all suggestions, e.g. after a product has been saved
+     */
+    void clear() {
+        cache.clear();
+    }
+
+    private static List<String> filter(List<String> suggestions, String key) {
+        String wordStart = " " + key;
+        List<String> filtered = new ArrayList<>();
+
+        for (String suggestion : suggestions) {
+            if ((" " + ProductIndex.fold(suggestion)).contains(wordStart)) {
+                filtered.add(suggestion);
+            }
+        }
+        return filtered;
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright (c) 2020. Michael Erichsen.
+ *
+ * The program is distributed under the terms of the GNU Affero General Public License v3.0
+ */
+
+package net.myerichsen.toiletpaper.ui.home;
+
+import android.util.SparseArray;
+
+import com.google.android.gms.vision.Detector;
+import com.google.android.gms.vision.Frame;
+
+/**
+ * Detector that records the decode time of every frame of another detector. Used in
+ * debug builds only.
+ *
+ * @param <T> Detected item type
+ */
+class TimedDetector<T> extends Detector<T> {
+    private final Detector<T> detector;
+    private final LatencyHistogram histogram;
+
+    /**
+     * Constructor
+     *
+     * @param detector  Detector doing the work
+     * @param histogram Receives the decode time of each frame
+     */
+    TimedDetector(Detector<T> detector, LatencyHistogram histogram) {
+        this.detector = detector;
+        this.histogram = histogram;
+    }
+
+    @Override
+    public SparseArray<T> detect(Frame frame) {
+        long start = System.nanoTime();
+        SparseArray<T> items = detector.detect(frame);
+        histogram.record(System.nanoTime() - start);
+        return items;
+    }
+
+    @Override
+    public boolean isOperational() {
+        return detector.isOperational();
+    }
+
+    @Override
+    public boolean setFocus(int id) {
+        return detector.setFocus(id);
+    }
+
+    @Override
+    public void release() {
+        detector.release();
+        super.release();
+    }
+}
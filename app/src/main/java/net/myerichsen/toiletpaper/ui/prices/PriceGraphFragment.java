@@ -23,10 +23,12 @@ import com.jjoe64.graphview.helper.DateAsXAxisLabelFormatter;
 import com.jjoe64.graphview.series.DataPoint;
 import com.jjoe64.graphview.series.LineGraphSeries;
 
+import net.myerichsen.toiletpaper.Money;
 import net.myerichsen.toiletpaper.R;
 import net.myerichsen.toiletpaper.TPDbAdapter;
+import net.myerichsen.toiletpaper.TPRepository;
 import net.myerichsen.toiletpaper.ui.home.HomeFragment;
-import net.myerichsen.toiletpaper.ui.products.ProductModel;
+import net.myerichsen.toiletpaper.ui.products.ProductSummary;
 
 import java.time.LocalDateTime;
 import java.time.ZoneId;
@@ -118,16 +120,42 @@ public class PriceGraphFragment extends Fragment {
         super.onViewCreated(view, savedInstanceState);
 
         Context context = getContext();
-        TPDbAdapter adapter = new TPDbAdapter(context);
-        List<ProductModel> lpm;
+        final String selection;
+        final String arg;
 
         if ((itemNo != null) && (!itemNo.equals(""))) {
-            lpm = adapter.getProductModels("ITEM_NO=?", itemNo, "TIME_STAMP");
+            selection = "ITEM_NO=?";
+            arg = itemNo;
         } else if ((brand != null) && (!brand.equals(""))) {
-            lpm = adapter.getProductModels("BRAND=?=?", brand, "TIME_STAMP");
+            selection = "BRAND=?";
+            arg = brand;
         } else return;
 
-        GraphView graph = view.findViewById(R.id.priceGraph);
+        TPRepository.getInstance(context).query(getViewLifecycleOwner(), new TPRepository.DbCall<List<ProductSummary>>() {
+            @Override
+            public List<ProductSummary> call(TPDbAdapter adapter) {
+                return adapter.getPriceHistory(selection, arg);
+            }
+        }, new TPRepository.DbCallback<List<ProductSummary>>() {
+            @Override
+            public void onResult(List<ProductSummary> lps) {
+                showGraph(lps);
+            }
+
+            @Override
+            public void onError(Exception e) {
+                // No graph
+            }
+        });
+
+        hideSoftKeyboard(requireActivity());
+    }
+
+    /**
+     * Plot the package prices over time
+     */
+    private void showGraph(List<ProductSummary> lps) {
+        GraphView graph = requireView().findViewById(R.id.priceGraph);
 
         LineGraphSeries<DataPoint> series = new LineGraphSeries<>();
 
@@ -135,11 +163,11 @@ public class PriceGraphFragment extends Fragment {
         LocalDateTime ldt;
         Date date;
 
-        for (int i = 0; i < lpm.size(); i++) {
-            ldt = LocalDateTime.parse(lpm.get(i).getTimestamp(), f);
+        for (int i = 0; i < lps.size(); i++) {
+            ldt = LocalDateTime.parse(lps.get(i).timestamp, f);
             date = Date.from(ldt.atZone(ZoneId.systemDefault()).toInstant());
 
-            DataPoint dp = new DataPoint(date, Double.parseDouble(String.valueOf(lpm.get(i).getPackagePrice())));
+            DataPoint dp = new DataPoint(date, Money.toKroner(lps.get(i).packagePrice, Money.PRICE_SCALE));
             series.appendData(dp, true, 10, true);
         }
 
@@ -160,7 +188,5 @@ public class PriceGraphFragment extends Fragment {
 
         // activate vertical scrolling
         graph.getViewport().setScrollableY(true);
-
-        hideSoftKeyboard(requireActivity());
     }
 }
\ No newline at end of file
@@ -15,7 +15,11 @@ import androidx.recyclerview.widget.GridLayoutManager;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
+import com.google.android.material.snackbar.Snackbar;
+
 import net.myerichsen.toiletpaper.R;
+import net.myerichsen.toiletpaper.TPDbAdapter;
+import net.myerichsen.toiletpaper.TPRepository;
 import net.myerichsen.toiletpaper.ui.home.HomeFragment;
 import net.myerichsen.toiletpaper.ui.prices.PriceModel.PriceItem;
 
@@ -103,16 +107,31 @@ public class PriceListFragment extends Fragment {
 
         // Set the adapter
         if (view instanceof RecyclerView) {
-            RecyclerView recyclerView = (RecyclerView) view;
-            Context context = view.getContext();
+            final RecyclerView recyclerView = (RecyclerView) view;
+            final Context context = view.getContext();
 
             if (mColumnCount <= 1) {
                 recyclerView.setLayoutManager(new LinearLayoutManager(context));
             } else {
                 recyclerView.setLayoutManager(new GridLayoutManager(context, mColumnCount));
             }
-            PriceModel priceModel = new PriceModel(context, itemNo, brand);
-            recyclerView.setAdapter(new PriceRecyclerViewAdapter(priceModel.ITEMS, mListener));
+            TPRepository.getInstance(context).query(getViewLifecycleOwner(), new TPRepository.DbCall<PriceModel>() {
+                @Override
+                public PriceModel call(TPDbAdapter adapter) {
+                    return new PriceModel(adapter, itemNo, brand);
+                }
+            }, new TPRepository.DbCallback<PriceModel>() {
+                @Override
+                public void onResult(PriceModel model) {
+                    recyclerView.setAdapter(new PriceRecyclerViewAdapter(model.ITEMS, mListener));
+                }
+
+                @Override
+                public void onError(Exception e) {
+                    Snackbar.make(requireActivity().findViewById(android.R.id.content),
+                            String.valueOf(e.getMessage()), Snackbar.LENGTH_LONG).show();
+                }
+            });
         }
         hideSoftKeyboard(requireActivity());
     }
@@ -1,9 +1,8 @@
 package net.myerichsen.toiletpaper.ui.prices;
 
-import android.content.Context;
-
+import net.myerichsen.toiletpaper.Money;
 import net.myerichsen.toiletpaper.TPDbAdapter;
-import net.myerichsen.toiletpaper.ui.products.ProductModel;
+import net.myerichsen.toiletpaper.ui.products.ProductSummary;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -25,21 +24,22 @@ public class PriceModel {
      */
     public final List<PriceItem> ITEMS;
 
-    public PriceModel(Context context, String itemNo, String brand) {
+    /**
+     * Read the price observations. Runs on a background thread.
+     */
+    public PriceModel(TPDbAdapter adapter, String itemNo, String brand) {
         ITEMS = new ArrayList<>();
 
-        TPDbAdapter adapter = new TPDbAdapter(context);
-
-        List<ProductModel> lpm;
+        List<ProductSummary> lps;
         if ((itemNo != null) && (!itemNo.equals(""))) {
-            lpm = adapter.getProductModels("ITEM_NO=?", itemNo, "TIME_STAMP");
+            lps = adapter.getPriceHistory("ITEM_NO=?", itemNo);
         } else if ((brand != null) && (!brand.equals(""))) {
-            lpm = adapter.getProductModels("BRAND=?=?", brand, "TIME_STAMP");
+            lps = adapter.getPriceHistory("BRAND=?", brand);
         } else return;
 
-        for (ProductModel pm : lpm) {
-            addItem(new PriceItem(pm.getItemNo(), pm.getBrand(), String.valueOf(pm.getPackagePrice()),
-                    pm.getTimestamp(), pm.getUid()));
+        for (ProductSummary ps : lps) {
+            addItem(new PriceItem(ps.itemNo, ps.brand, Money.format(ps.packagePrice, Money.PRICE_SCALE),
+                    ps.timestamp, ps.uid));
         }
     }
 
@@ -27,7 +27,8 @@ import com.google.android.material.textfield.TextInputEditText;
 
 import net.myerichsen.toiletpaper.R;
 import net.myerichsen.toiletpaper.TPDbAdapter;
-import net.myerichsen.toiletpaper.ui.products.ProductModel;
+import net.myerichsen.toiletpaper.TPRepository;
+import net.myerichsen.toiletpaper.ui.products.ProductSummary;
 
 import java.util.List;
 import java.util.Objects;
@@ -42,7 +43,7 @@ import static net.myerichsen.toiletpaper.ui.home.HomeFragment.ITEM_NO;
  */
 @SuppressWarnings("unused")
 public class PriceSelectFragment extends Fragment {
-    private TPDbAdapter adapter;
+    private TPRepository repository;
     private Activity activity;
     private View snackView;
 
@@ -121,7 +122,7 @@ public class PriceSelectFragment extends Fragment {
 
         activity = getActivity();
         Context context = getContext();
-        adapter = new TPDbAdapter(context);
+        repository = TPRepository.getInstance(context);
         snackView = requireActivity().findViewById(android.R.id.content);
 
         pItemNoEditText = view.findViewById(R.id.pItemNoEditText);
@@ -231,21 +232,30 @@ public class PriceSelectFragment extends Fragment {
              */
             @Override
             public void onFragmentResult(@NonNull String itemNoRequestKey, @NonNull Bundle bundle) {
-                String result = bundle.getString(ITEM_NO);
+                final String result = bundle.getString(ITEM_NO);
 
-                try {
-                    List<ProductModel> lpm = adapter.getProductModels("ITEM_NO=?", result);
+                repository.query(getViewLifecycleOwner(), new TPRepository.DbCall<List<ProductSummary>>() {
+                    @Override
+                    public List<ProductSummary> call(TPDbAdapter adapter) {
+                        return adapter.getProductSummaries("ITEM_NO=?", result, null);
+                    }
+                }, new TPRepository.DbCallback<List<ProductSummary>>() {
+                    @Override
+                    public void onResult(List<ProductSummary> lps) {
+                        if (lps.size() == 0) {
+                            Snackbar.make(snackView,
+                                    R.string.itemno_not_found, Snackbar.LENGTH_LONG).show();
+                        } else {
+                            pItemNoEditText.setText(lps.get(0).itemNo);
+                            pBrandEditText.setText(lps.get(0).brand);
+                        }
+                    }
 
-                    if (lpm.size() == 0) {
-                        Snackbar.make(snackView,
-                                R.string.itemno_not_found, Snackbar.LENGTH_LONG).show();
-                    } else {
-                        pItemNoEditText.setText(lpm.get(0).getItemNo());
-                        pBrandEditText.setText(lpm.get(0).getBrand());
+                    @Override
+                    public void onError(Exception e) {
+                        Snackbar.make(snackView, String.valueOf(e.getMessage()), Snackbar.LENGTH_LONG).show();
                     }
-                } catch (Exception e) {
-                    Snackbar.make(snackView, Objects.requireNonNull(e.getMessage()), Snackbar.LENGTH_LONG).show();
-                }
+                });
             }
         };
     }
@@ -261,21 +271,30 @@ public class PriceSelectFragment extends Fragment {
              */
             @Override
             public void onFragmentResult(@NonNull String brandRequestKey, @NonNull Bundle bundle) {
-                String result = bundle.getString(BRAND);
+                final String result = bundle.getString(BRAND);
 
-                try {
-                    List<ProductModel> lpm = adapter.getProductModels("BRAND=?", result);
+                repository.query(getViewLifecycleOwner(), new TPRepository.DbCall<List<ProductSummary>>() {
+                    @Override
+                    public List<ProductSummary> call(TPDbAdapter adapter) {
+                        return adapter.getProductSummaries("BRAND=?", result, null);
+                    }
+                }, new TPRepository.DbCallback<List<ProductSummary>>() {
+                    @Override
+                    public void onResult(List<ProductSummary> lps) {
+                        if (lps.size() == 0) {
+                            Snackbar.make(snackView,
+                                    R.string.brand_not_found, Snackbar.LENGTH_LONG).show();
+                        } else {
+                            pItemNoEditText.setText(lps.get(0).itemNo);
+                            pBrandEditText.setText(lps.get(0).brand);
+                        }
+                    }
 
-                    if (lpm.size() == 0) {
-                        Snackbar.make(snackView,
-                                R.string.brand_not_found, Snackbar.LENGTH_LONG).show();
-                    } else {
-                        pItemNoEditText.setText(lpm.get(0).getItemNo());
-                        pBrandEditText.setText(lpm.get(0).getBrand());
+                    @Override
+                    public void onError(Exception e) {
+                        Snackbar.make(snackView, String.valueOf(e.getMessage()), Snackbar.LENGTH_LONG).show();
                     }
-                } catch (Exception e) {
-                    Snackbar.make(snackView, Objects.requireNonNull(e.getMessage()), Snackbar.LENGTH_LONG).show();
-                }
+                });
             }
         };
     }
@@ -25,11 +25,12 @@ import androidx.fragment.app.Fragment;
 
 import com.google.android.material.snackbar.Snackbar;
 
+import net.myerichsen.toiletpaper.Money;
 import net.myerichsen.toiletpaper.R;
 import net.myerichsen.toiletpaper.TPDbAdapter;
+import net.myerichsen.toiletpaper.TPRepository;
 
 import java.util.List;
-import java.util.Objects;
 
 /**
  * Display and maintain product details
@@ -41,6 +42,7 @@ public class ProductDetailsFragment extends Fragment {
     private Context context;
     private View root;
     private View snackView;
+    private TPRepository repository;
 
     /**
      * Required empty public constructor
@@ -85,7 +87,7 @@ public class ProductDetailsFragment extends Fragment {
 
         context = getContext();
         snackView = requireActivity().findViewById(android.R.id.content);
-        final TPDbAdapter adapter = new TPDbAdapter(context);
+        repository = TPRepository.getInstance(context);
 
         final TableLayout productDetailTableLayout = root.findViewById(R.id.productDetailTableLayout);
         TableRow tableRow = new TableRow(context);
@@ -99,20 +101,32 @@ public class ProductDetailsFragment extends Fragment {
             uid = getArguments().getInt(UID);
         }
 
-        List<ProductModel> lpm = null;
+        repository.query(getViewLifecycleOwner(), new TPRepository.DbCall<List<ProductModel>>() {
+            @Override
+            public List<ProductModel> call(TPDbAdapter adapter) {
+                return adapter.getProductModels("UID=?", String.valueOf(uid));
+            }
+        }, new TPRepository.DbCallback<List<ProductModel>>() {
+            @Override
+            public void onResult(List<ProductModel> lpm) {
+                if (lpm.size() == 0) {
+                    Snackbar.make(snackView, "Produkt nr. " + uid + " findes ikke", Snackbar.LENGTH_LONG).show();
+                    return;
+                }
+                showProduct(productDetailTableLayout, lpm.get(0));
+            }
 
-        try {
-            lpm = adapter.getProductModels("UID=?", String.valueOf(uid));
-        } catch (Exception e) {
-            Snackbar.make(snackView, Objects.requireNonNull(e.getMessage()), Snackbar.LENGTH_LONG).show();
-        }
+            @Override
+            public void onError(Exception e) {
+                Snackbar.make(snackView, String.valueOf(e.getMessage()), Snackbar.LENGTH_LONG).show();
+            }
+        });
 
-        if (lpm == null) {
-            Snackbar.make(snackView, "Produkt nr. " + uid + " findes ikke", Snackbar.LENGTH_LONG).show();
-            return;
-        }
+        ImageButton productDeleteBtn = root.findViewById(R.id.productDeleteBtn);
+        productDeleteBtn.setOnClickListener(deleteProduct());
+    }
 
-        ProductModel pm = lpm.get(0);
+    private void showProduct(TableLayout productDetailTableLayout, ProductModel pm) {
         addTableRow(productDetailTableLayout, "Løbenr.", pm.getUid());
         addTableRow(productDetailTableLayout, "Varenummer", pm.getItemNo());
         addTableRow(productDetailTableLayout, "Varemærke", pm.getBrand());
@@ -122,31 +136,40 @@ public class ProductDetailsFragment extends Fragment {
         addTableRow(productDetailTableLayout, "Arkbredde", pm.getSheetWidth());
         addTableRow(productDetailTableLayout, "Arklængde", pm.getSheetLength());
         addTableRow(productDetailTableLayout, "Rullelængde", pm.getRollLength());
-        addTableRow(productDetailTableLayout, "Pakkepris", pm.getPackagePrice());
-        addTableRow(productDetailTableLayout, "Rullepris", pm.getRollPrice());
+        addTableRow(productDetailTableLayout, "Pakkepris", Money.format(pm.getPackagePrice(), Money.PRICE_SCALE));
+        addTableRow(productDetailTableLayout, "Rullepris", Money.format(pm.getRollPrice(), Money.UNIT_PRICE_SCALE));
         addTableRow(productDetailTableLayout, "Papirvægt", pm.getPaperWeight());
         addTableRow(productDetailTableLayout, "Pakkevægt", pm.getPackageWeight());
         addTableRow(productDetailTableLayout, "Rullevægt", pm.getRollWeight());
-        addTableRow(productDetailTableLayout, "Kilopris", pm.getKiloPrice());
-        addTableRow(productDetailTableLayout, "Meterpris", pm.getMeterPrice());
-        addTableRow(productDetailTableLayout, "Arkpris", pm.getSheetPrice());
+        addTableRow(productDetailTableLayout, "Kilopris", Money.format(pm.getKiloPrice(), Money.UNIT_PRICE_SCALE));
+        addTableRow(productDetailTableLayout, "Meterpris", Money.format(pm.getMeterPrice(), Money.UNIT_PRICE_SCALE));
+        addTableRow(productDetailTableLayout, "Arkpris", Money.format(pm.getSheetPrice(), Money.UNIT_PRICE_SCALE));
         addTableRow(productDetailTableLayout, "Butik", pm.getSupplier());
         addTableRow(productDetailTableLayout, "Kommentarer", pm.getComments());
         addTableRow(productDetailTableLayout, "Timestamp", pm.getTimestamp());
-
-        ImageButton productDeleteBtn = root.findViewById(R.id.productDeleteBtn);
-        productDeleteBtn.setOnClickListener(deleteProduct(adapter));
     }
 
-    private View.OnClickListener deleteProduct(final TPDbAdapter adapter) {
+    private View.OnClickListener deleteProduct() {
         return new View.OnClickListener() {
             @Override
             public void onClick(View v) {
-                try {
-                    adapter.deleteProduct(uid);
-                } catch (Exception e) {
-                    Snackbar.make(snackView, Objects.requireNonNull(e.getMessage()), Snackbar.LENGTH_LONG).show();
-                }
+                repository.update(getViewLifecycleOwner(), new TPRepository.DbCall<Void>() {
+                    @Override
+                    public Void call(TPDbAdapter adapter) throws Exception {
+                        adapter.deleteProduct(uid);
+                        return null;
+                    }
+                }, new TPRepository.DbCallback<Void>() {
+                    @Override
+                    public void onResult(Void result) {
+                        // Nothing to show, as before
+                    }
+
+                    @Override
+                    public void onError(Exception e) {
+                        Snackbar.make(snackView, String.valueOf(e.getMessage()), Snackbar.LENGTH_LONG).show();
+                    }
+                });
             }
         };
     }
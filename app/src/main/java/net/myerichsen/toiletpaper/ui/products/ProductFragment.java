@@ -1,29 +1,20 @@
 package net.myerichsen.toiletpaper.ui.products;
 
-import android.content.Context;
-import android.graphics.Color;
 import android.os.Bundle;
-import android.util.TypedValue;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
-import android.widget.LinearLayout;
-import android.widget.TableLayout;
-import android.widget.TableRow;
-import android.widget.TextView;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.fragment.app.Fragment;
 import androidx.navigation.Navigation;
+import androidx.recyclerview.widget.RecyclerView;
 
 import com.google.android.material.snackbar.Snackbar;
 
 import net.myerichsen.toiletpaper.R;
-import net.myerichsen.toiletpaper.TPDbAdapter;
-
-import java.util.List;
-import java.util.Objects;
+import net.myerichsen.toiletpaper.TPRepository;
 
 /*
  * Copyright (c) 2020. Michael Erichsen.
@@ -32,12 +23,10 @@ import java.util.Objects;
  */
 
 /**
- * Display a list of Products
+ * Display a list of Products. The list is read page by page while scrolling.
  */
 public class ProductFragment extends Fragment {
-    private final TableRow.LayoutParams llp = new TableRow.LayoutParams(LinearLayout.LayoutParams.WRAP_CONTENT, LinearLayout.LayoutParams.WRAP_CONTENT);
     private View root;
-    private Context context;
     private View snackView;
 
     @Override
@@ -51,77 +40,38 @@ public class ProductFragment extends Fragment {
     @Override
     public void onViewCreated(@NonNull View view, @Nullable Bundle savedInstanceState) {
         super.onViewCreated(view, savedInstanceState);
-        context = getContext();
         snackView = requireActivity().findViewById(android.R.id.content);
-        TPDbAdapter adapter = new TPDbAdapter(context);
-
-        final TableLayout tableLayout = root.findViewById(R.id.productTableLayout);
-        TableRow tableRow = new TableRow(context);
-        tableRow.setBackgroundColor(Color.BLACK);
-        tableRow.setPadding(2, 2, 2, 2);
-        tableRow.addView(addCell("Varemærke"));
-        tableRow.addView(addCell("Varenummer"));
-        tableRow.addView(addCell("Løbenr."));
-        tableLayout.addView(tableRow);
-
-        List<ProductModel> lpm;
-        try {
-            lpm = adapter.getProductModels();
-        } catch (Exception e) {
-            Snackbar.make(snackView, Objects.requireNonNull(e.getMessage()), Snackbar.LENGTH_LONG).show();
-            return;
-        }
-
-        if (lpm.size() == 0) {
-            Snackbar.make(snackView, "Tabellen er tom", Snackbar.LENGTH_LONG).show();
-            return;
-        }
-
-        for (ProductModel pm : lpm) {
-            tableRow = new TableRow(context);
-            tableRow.setBackgroundColor(Color.BLACK);
-            tableRow.setPadding(2, 2, 2, 2); //Border between rows
-
-            tableRow.addView(addCell(pm.getBrand()));
-            tableRow.addView(addCell(pm.getItemNo()));
-            tableRow.addView(addCell(Integer.toString(pm.getUid())));
-            tableRow.setClickable(true);
-            tableRow.setOnClickListener(tableRowOnclickListener());
-            tableLayout.addView(tableRow);
-        }
+        TPRepository repository = TPRepository.getInstance(requireContext());
+
+        RecyclerView recyclerView = root.findViewById(R.id.productRecyclerView);
+        recyclerView.setHasFixedSize(true);
+        ProductRecyclerViewAdapter recyclerViewAdapter = new ProductRecyclerViewAdapter(repository, getViewLifecycleOwner(),
+                productListListener());
+        recyclerView.setAdapter(recyclerViewAdapter);
+        recyclerViewAdapter.loadNextPage();
     }
 
-    private View.OnClickListener tableRowOnclickListener() {
-        return new View.OnClickListener() {
-            public void onClick(View v) {
+    private ProductRecyclerViewAdapter.OnProductListListener productListListener() {
+        return new ProductRecyclerViewAdapter.OnProductListListener() {
+            @Override
+            public void onProductSelected(int uid) {
                 try {
-                    TableRow selectedRow = (TableRow) v;
-                    LinearLayout ll = (LinearLayout) selectedRow.getChildAt(2);
-                    TextView tv = (TextView) ll.getChildAt(0);
-                    int uid = Integer.parseInt(tv.getText().toString());
-
                     ProductFragmentDirections.ActionNavProductsToNavProductDetails action = ProductFragmentDirections.actionNavProductsToNavProductDetails(uid);
-                    Navigation.findNavController(v).navigate(action);
+                    Navigation.findNavController(root).navigate(action);
                 } catch (Exception e) {
-                    Snackbar.make(snackView, Objects.requireNonNull(e.getMessage()), Snackbar.LENGTH_LONG).show();
+                    Snackbar.make(snackView, String.valueOf(e.getMessage()), Snackbar.LENGTH_LONG).show();
                 }
             }
-        };
-    }
-
-    private LinearLayout addCell(String cellData) {
-        llp.setMargins(2, 2, 2, 2);
 
-        LinearLayout cell;
-        cell = new LinearLayout(context);
-        cell.setBackgroundColor(Color.WHITE);
-        cell.setLayoutParams(llp);//2px border on the right for the cell
+            @Override
+            public void onEmptyList() {
+                Snackbar.make(snackView, R.string.empty_table, Snackbar.LENGTH_LONG).show();
+            }
 
-        TextView tv = new TextView(context);
-        tv.setText(cellData);
-        tv.setPadding(0, 0, 4, 3);
-        tv.setTextSize(TypedValue.COMPLEX_UNIT_SP, 16);
-        cell.addView(tv);
-        return cell;
+            @Override
+            public void onLoadError(String message) {
+                Snackbar.make(snackView, message, Snackbar.LENGTH_LONG).show();
+            }
+        };
     }
-}
\ No newline at end of file
+}
@@ -8,6 +8,8 @@ package net.myerichsen.toiletpaper.ui.products;
 /**
  * Class to encapsulate all toilet paper product data.
  * Boolean values are stored as integers 0 (false) and 1 (true).
+ * Prices are fixed-point amounts, see {@link net.myerichsen.toiletpaper.Money}: the package price in øre and
+ * the unit prices in hundredths of an øre.
  */
 public class ProductModel {
     private int uid;
@@ -19,8 +21,8 @@ public class ProductModel {
     private int sheetLength_c = 0;
     private float rollLength = 0;
     private int rollLength_c = 0;
-    private float packagePrice = 0;
-    private float rollPrice = 0;
+    private long packagePrice = 0;
+    private long rollPrice = 0;
     private int rollPrice_c = 0;
     private float paperWeight = 0;
     private int paperWeight_c = 0;
@@ -28,11 +30,11 @@ public class ProductModel {
     private int packageWeight_c = 0;
     private float rollWeight = 0;
     private int rollWeight_c = 0;
-    private float kiloPrice = 0;
+    private long kiloPrice = 0;
     private int kiloPrice_c = 0;
-    private float meterPrice = 0;
+    private long meterPrice = 0;
     private int meterPrice_c = 0;
-    private float sheetPrice = 0;
+    private long sheetPrice = 0;
     private int sheetPrice_c = 0;
     private String supplier = "";
     private String comments = "";
@@ -48,10 +50,10 @@ public class ProductModel {
 
     public ProductModel(String itemNo, String brand,
                         int layers, int packageRolls, int rollSheets, int sheetWidth, int sheetLength, int sheetLength_c,
-                        float rollLength, int rollLength_c, float packagePrice, float rollPrice, int rollPrice_c,
+                        float rollLength, int rollLength_c, long packagePrice, long rollPrice, int rollPrice_c,
                         float packageWeight, int packageWeight_c, float paperWeight, int paperWeight_c,
-                        float rollWeight, int rollWeight_c, float kiloPrice, int kiloPrice_c,
-                        float meterPrice, int meterPrice_c, float sheetPrice, int sheetPrice_c,
+                        float rollWeight, int rollWeight_c, long kiloPrice, int kiloPrice_c,
+                        long meterPrice, int meterPrice_c, long sheetPrice, int sheetPrice_c,
                         String supplier, String comments) {
         this.layers = layers;
         this.packageRolls = packageRolls;
@@ -170,19 +172,19 @@ public class ProductModel {
         this.rollLength_c = rollLength_c;
     }
 
-    public float getPackagePrice() {
+    public long getPackagePrice() {
         return packagePrice;
     }
 
-    public void setPackagePrice(float packagePrice) {
+    public void setPackagePrice(long packagePrice) {
         this.packagePrice = packagePrice;
     }
 
-    public float getRollPrice() {
+    public long getRollPrice() {
         return rollPrice;
     }
 
-    public void setRollPrice(float rollPrice) {
+    public void setRollPrice(long rollPrice) {
         this.rollPrice = rollPrice;
     }
 
@@ -226,11 +228,11 @@ public class ProductModel {
         this.rollWeight_c = rollWeight_c;
     }
 
-    public float getKiloPrice() {
+    public long getKiloPrice() {
         return kiloPrice;
     }
 
-    public void setKiloPrice(float kiloPrice) {
+    public void setKiloPrice(long kiloPrice) {
         this.kiloPrice = kiloPrice;
     }
 
@@ -242,11 +244,11 @@ public class ProductModel {
         this.kiloPrice_c = kiloPrice_c;
     }
 
-    public float getMeterPrice() {
+    public long getMeterPrice() {
         return meterPrice;
     }
 
-    public void setMeterPrice(float meterPrice) {
+    public void setMeterPrice(long meterPrice) {
         this.meterPrice = meterPrice;
     }
 
@@ -258,11 +260,11 @@ public class ProductModel {
         this.meterPrice_c = meterPrice_c;
     }
 
-    public float getSheetPrice() {
+    public long getSheetPrice() {
         return sheetPrice;
     }
 
-    public void setSheetPrice(float sheetPrice) {
+    public void setSheetPrice(long sheetPrice) {
         this.sheetPrice = sheetPrice;
     }
 
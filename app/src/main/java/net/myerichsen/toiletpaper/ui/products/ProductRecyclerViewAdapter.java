@@ -0,0 +1,177 @@
+package net.myerichsen.toiletpaper.ui.products;
+
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+import androidx.lifecycle.LifecycleOwner;
+import androidx.recyclerview.widget.RecyclerView;
+
+import net.myerichsen.toiletpaper.R;
+import net.myerichsen.toiletpaper.TPDbAdapter;
+import net.myerichsen.toiletpaper.TPRepository;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * Copyright (c) 2020. Michael Erichsen.
+ *
+ * The program is distributed under the terms of the GNU Affero General Public License v3.0
+ */
+
+/**
+ * {@link RecyclerView.Adapter} that displays the product table one page at a time.
+ * <p>
+ * Pages are read through the repository, ordered by brand and UID, each starting after the
+ * last row already shown. The next page is requested while the user is still
+ * PREFETCH_DISTANCE rows from the end, so scrolling rarely has to wait for the database.
+ */
+public class ProductRecyclerViewAdapter extends RecyclerView.Adapter<ProductRecyclerViewAdapter.ViewHolder> {
+    static final int PAGE_SIZE = 50;
+    static final int PREFETCH_DISTANCE = 20;
+    private final List<ProductSummary> mValues = new ArrayList<>();
+    private final TPRepository repository;
+    private final LifecycleOwner owner;
+    private final OnProductListListener mListener;
+    private boolean loading;
+    private boolean endReached;
+
+    /**
+     * Constructor
+     *
+     * @param repository Repository
+     * @param owner      Lifecycle owner. Page reads are cancelled when it is destroyed
+     * @param listener   Receives clicks, an empty table and load errors
+     */
+    public ProductRecyclerViewAdapter(TPRepository repository, LifecycleOwner owner, OnProductListListener listener) {
+        this.repository = repository;
+        this.owner = owner;
+        mListener = listener;
+    }
+
+    @NonNull
+    @Override
+    public ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        View view = LayoutInflater.from(parent.getContext())
+                .inflate(R.layout.fragment_product_list, parent, false);
+        return new ViewHolder(view);
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
+        ProductSummary ps = mValues.get(position);
+        holder.plItem = ps;
+        holder.plBrandView.setText(ps.brand);
+        holder.plItemNoView.setText(ps.itemNo);
+        holder.plUidView.setText(Integer.toString(ps.uid));
+
+        if (position >= mValues.size() - PREFETCH_DISTANCE) {
+            loadNextPage();
+        }
+    }
+
+    @Override
+    public int getItemCount() {
+        return mValues.size();
+    }
+
+    /**
+     * Start reading the next page, unless a read is running or the last page has been read
+     */
+    public void loadNextPage() {
+        if (loading || endReached) {
+            return;
+        }
+
+        final ProductSummary after = mValues.isEmpty() ? null : mValues.get(mValues.size() - 1);
+        loading = true;
+
+        repository.query(owner, new TPRepository.DbCall<List<ProductSummary>>() {
+            @Override
+            public List<ProductSummary> call(TPDbAdapter adapter) {
+                return adapter.getProductSummaryPage(after, PAGE_SIZE);
+            }
+        }, new TPRepository.DbCallback<List<ProductSummary>>() {
+            @Override
+            public void onResult(List<ProductSummary> page) {
+                onPageLoaded(page);
+            }
+
+            @Override
+            public void onError(Exception e) {
+                onPageFailed(String.valueOf(e.getMessage()));
+            }
+        });
+    }
+
+    private void onPageLoaded(List<ProductSummary> page) {
+        loading = false;
+
+        if (page.size() < PAGE_SIZE) {
+            endReached = true;
+        }
+
+        if ((mValues.size() == 0) && (page.size() == 0)) {
+            if (mListener != null) {
+                mListener.onEmptyList();
+            }
+            return;
+        }
+
+        int start = mValues.size();
+        mValues.addAll(page);
+        notifyItemRangeInserted(start, page.size());
+    }
+
+    private void onPageFailed(String message) {
+        loading = false;
+        endReached = true;
+
+        if (mListener != null) {
+            mListener.onLoadError(message);
+        }
+    }
+
+    /**
+     * Callbacks from the product list
+     */
+    public interface OnProductListListener {
+        void onProductSelected(int uid);
+
+        void onEmptyList();
+
+        void onLoadError(String message);
+    }
+
+    public class ViewHolder extends RecyclerView.ViewHolder {
+        final TextView plBrandView;
+        final TextView plItemNoView;
+        final TextView plUidView;
+        ProductSummary plItem;
+
+        ViewHolder(View view) {
+            super(view);
+            plBrandView = view.findViewById(R.id.plBrand);
+            plItemNoView = view.findViewById(R.id.plItemNo);
+            plUidView = view.findViewById(R.id.plUid);
+
+            // Set once per holder, not on every bind
+            view.setOnClickListener(new View.OnClickListener() {
+                @Override
+                public void onClick(View v) {
+                    if ((mListener != null) && (plItem != null)) {
+                        mListener.onProductSelected(plItem.uid);
+                    }
+                }
+            });
+        }
+
+        @Override
+        public String toString() {
+            return super.toString() + " '" + plBrandView.getText() + "'";
+        }
+    }
+}
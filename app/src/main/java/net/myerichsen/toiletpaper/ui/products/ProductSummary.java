@@ -0,0 +1,44 @@
+/*
+ * Copyright (c) 2020. Michael Erichsen.
+ *
+ * The program is distributed under the terms of the GNU Affero General Public License v3.0
+ */
+
+package net.myerichsen.toiletpaper.ui.products;
+
+import net.myerichsen.toiletpaper.Money;
+
+/**
+ * Lightweight product row with only the columns the list screens need.
+ * Use ProductModel when all product data is needed.
+ */
+public class ProductSummary {
+    public final int uid;
+    public final String itemNo;
+    public final String brand;
+    public final String supplier;
+    // Fixed-point prices, see Money
+    public final long packagePrice;
+    public final long kiloPrice;
+    public final long meterPrice;
+    public final String timestamp;
+
+    public ProductSummary(int uid, String itemNo, String brand, String supplier, long packagePrice,
+                          long kiloPrice, long meterPrice, String timestamp) {
+        this.uid = uid;
+        this.itemNo = itemNo;
+        this.brand = brand;
+        this.supplier = supplier;
+        this.packagePrice = packagePrice;
+        this.kiloPrice = kiloPrice;
+        this.meterPrice = meterPrice;
+        this.timestamp = timestamp;
+    }
+
+    @SuppressWarnings("NullableProblems")
+    @Override
+    public String toString() {
+        return brand + ", " + itemNo + ", " + supplier + ", " +
+                Money.format(packagePrice, Money.PRICE_SCALE) + ", " + timestamp;
+    }
+}
@@ -6,12 +6,17 @@
 
 package net.myerichsen.toiletpaper.ui.settings;
 
+import android.app.Activity;
+import android.content.ContentResolver;
+import android.content.Intent;
 import android.content.SharedPreferences;
+import android.net.Uri;
 import android.os.AsyncTask;
 import android.os.Bundle;
 import android.view.View;
 import android.widget.ProgressBar;
 
+import androidx.annotation.Nullable;
 import androidx.preference.DropDownPreference;
 import androidx.preference.Preference;
 import androidx.preference.PreferenceFragmentCompat;
@@ -20,10 +25,15 @@ import androidx.preference.SwitchPreferenceCompat;
 
 import com.google.android.material.snackbar.Snackbar;
 
+import net.myerichsen.toiletpaper.ImportReport;
 import net.myerichsen.toiletpaper.R;
 import net.myerichsen.toiletpaper.TPDbAdapter;
+import net.myerichsen.toiletpaper.TPRepository;
 import net.myerichsen.toiletpaper.ui.suppliers.SupplierModel;
 
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.Objects;
 
@@ -31,6 +41,7 @@ import java.util.Objects;
  * Settings screen
  */
 public class SettingsFragment extends PreferenceFragmentCompat {
+    private static final int IMPORT_REQUEST_CODE = 301;
     private View snackView;
 
     @Override
@@ -41,7 +52,6 @@ public class SettingsFragment extends PreferenceFragmentCompat {
         initialLoadProgressBar.setVisibility(View.GONE);
 
         try {
-            TPDbAdapter adapter = new TPDbAdapter(getContext());
             SharedPreferences preferences = PreferenceManager.getDefaultSharedPreferences(requireContext());
 
             SwitchPreferenceCompat advancedScreenPreference = findPreference("advancedscreen");
@@ -50,6 +60,9 @@ public class SettingsFragment extends PreferenceFragmentCompat {
             Preference initialLoadPreference = findPreference("initialload");
             Objects.requireNonNull(initialLoadPreference).setOnPreferenceClickListener(initLoadOnClickListener());
 
+            Preference importPreference = findPreference("importproducts");
+            Objects.requireNonNull(importPreference).setOnPreferenceClickListener(importOnClickListener());
+
             DropDownPreference fontSizePreference = findPreference("fontsize");
             String fontsize = preferences.getString("fontsize", "0");
             if (!fontsize.equals("0")) {
@@ -60,7 +73,7 @@ public class SettingsFragment extends PreferenceFragmentCompat {
             DropDownPreference defaultSupplierPreference = findPreference("defaultsupplier");
             Objects.requireNonNull(defaultSupplierPreference).setSummary(preferences.getString("defaultsupplier",
                     "Vælg foretrukken butik fra databasen"));
-            populateSupplierDropDown(adapter, defaultSupplierPreference);
+            populateSupplierDropDown(defaultSupplierPreference);
             defaultSupplierPreference.setOnPreferenceChangeListener(defaultSupplierOnPreferenceChangeListener());
         } catch (Exception e) {
             Snackbar.make(snackView, Objects.requireNonNull(e.getMessage()), Snackbar.LENGTH_LONG).show();
@@ -87,17 +100,28 @@ public class SettingsFragment extends PreferenceFragmentCompat {
         };
     }
 
-    private void populateSupplierDropDown(TPDbAdapter adapter, DropDownPreference defaultSupplierPreference) {
-        List<SupplierModel> lsm;
-        SupplierModel sm;
+    private void populateSupplierDropDown(final DropDownPreference defaultSupplierPreference) {
+        // The preferences are created before the view, so the fragment itself owns the query
+        TPRepository.getInstance(requireContext()).query(this, new TPRepository.DbCall<List<SupplierModel>>() {
+            @Override
+            public List<SupplierModel> call(TPDbAdapter adapter) {
+                return adapter.getSupplierModels();
+            }
+        }, new TPRepository.DbCallback<List<SupplierModel>>() {
+            @Override
+            public void onResult(List<SupplierModel> lsm) {
+                setSupplierEntries(defaultSupplierPreference, lsm);
+            }
 
-        try {
-            lsm = adapter.getSupplierModels();
-        } catch (Exception e) {
-            Snackbar.make(snackView, Objects.requireNonNull(e.getMessage()), Snackbar.LENGTH_LONG).show();
-            return;
-        }
+            @Override
+            public void onError(Exception e) {
+                Snackbar.make(snackView, String.valueOf(e.getMessage()), Snackbar.LENGTH_LONG).show();
+            }
+        });
+    }
 
+    private void setSupplierEntries(DropDownPreference defaultSupplierPreference, List<SupplierModel> lsm) {
+        SupplierModel sm;
         int count = lsm.size();
 
         if (count == 0) {
@@ -132,7 +156,7 @@ public class SettingsFragment extends PreferenceFragmentCompat {
             @Override
             public boolean onPreferenceClick(Preference preference) {
                 try {
-                    InitLoadTask initLoadTask = new InitLoadTask((SettingsActivity) getActivity());
+                    InitLoadTask initLoadTask = new InitLoadTask((SettingsActivity) getActivity(), null);
                     initLoadTask.execute();
                     return true;
                 } catch (Exception e) {
@@ -144,16 +168,57 @@ public class SettingsFragment extends PreferenceFragmentCompat {
         };
     }
 
+    private Preference.OnPreferenceClickListener importOnClickListener() {
+        return new Preference.OnPreferenceClickListener() {
+            @Override
+            public boolean onPreferenceClick(Preference preference) {
+                Intent intent = new Intent(Intent.ACTION_OPEN_DOCUMENT);
+                intent.addCategory(Intent.CATEGORY_OPENABLE);
+                intent.setType("text/*");
+                startActivityForResult(intent, IMPORT_REQUEST_CODE);
+                return true;
+            }
+        };
+    }
+
+    @Override
+    public void onActivityResult(int requestCode, int resultCode, @Nullable Intent data) {
+        super.onActivityResult(requestCode, resultCode, data);
+
+        if ((requestCode != IMPORT_REQUEST_CODE) || (resultCode != Activity.RESULT_OK) || (data == null)) {
+            return;
+        }
+
+        try {
+            InitLoadTask importTask = new InitLoadTask((SettingsActivity) getActivity(), data.getData());
+            importTask.execute();
+        } catch (Exception e) {
+            Snackbar.make(snackView, Objects.requireNonNull(e.getMessage()), Snackbar.LENGTH_LONG).show();
+        }
+    }
+
     /**
-     * Asynchronous task to do the initial load
+     * Asynchronous task to do the initial load or import a product file
      */
-    private static class InitLoadTask extends AsyncTask<Void, Void, String> {
+    private static class InitLoadTask extends AsyncTask<Void, Integer, String> {
         private final TPDbAdapter adapter;
+        private final ContentResolver contentResolver;
+        private final Uri uri;
         private ProgressBar initialLoadProgressBar;
         private View snackView;
+        private Snackbar progressSnackbar;
+        private ImportReport report;
 
-        InitLoadTask(SettingsActivity context) {
+        /**
+         * Constructor
+         *
+         * @param context Settings activity
+         * @param uri     File to import, or null for the initial load
+         */
+        InitLoadTask(SettingsActivity context, Uri uri) {
             adapter = new TPDbAdapter(context);
+            contentResolver = context.getContentResolver();
+            this.uri = uri;
             initialLoadProgressBar = context.findViewById(R.id.initialLoadProgressBar);
             snackView = context.findViewById(android.R.id.content);
         }
@@ -169,7 +234,8 @@ public class SettingsFragment extends PreferenceFragmentCompat {
         @Override
         protected void onPreExecute() {
             super.onPreExecute();
-            Snackbar.make(snackView, R.string.please_be_a_patient, Snackbar.LENGTH_LONG).show();
+            progressSnackbar = Snackbar.make(snackView, R.string.please_be_a_patient, Snackbar.LENGTH_INDEFINITE);
+            progressSnackbar.show();
             initialLoadProgressBar.setVisibility(View.VISIBLE);
         }
 
@@ -193,14 +259,39 @@ public class SettingsFragment extends PreferenceFragmentCompat {
          */
         @Override
         protected String doInBackground(Void... voids) {
+            TPDbAdapter.LoadProgressListener listener = new TPDbAdapter.LoadProgressListener() {
+                @Override
+                public void onProgress(int rows) {
+                    publishProgress(rows);
+                }
+            };
+
             try {
-                adapter.doInitialLoad();
+                if (uri == null) {
+                    adapter.doInitialLoad(listener);
+                } else {
+                    try (InputStream is = contentResolver.openInputStream(uri)) {
+                        report = adapter.importProducts(
+                                new InputStreamReader(Objects.requireNonNull(is), StandardCharsets.UTF_8), listener);
+                    }
+                }
             } catch (Exception e) {
-                Snackbar.make(snackView, Objects.requireNonNull(e.getMessage()), Snackbar.LENGTH_LONG).show();
+                return e.getMessage();
             }
             return null;
         }
 
+        /**
+         * Runs on the UI thread after {@link #publishProgress} is invoked.
+         *
+         * @param values Number of rows committed so far
+         */
+        @Override
+        protected void onProgressUpdate(Integer... values) {
+            super.onProgressUpdate(values);
+            progressSnackbar.setText(snackView.getContext().getString(R.string.rows_loaded, values[0]));
+        }
+
         /**
          * <p>Runs on the UI thread after {@link #doInBackground}. The
          * specified result is the value returned by {@link #doInBackground}.
@@ -219,7 +310,17 @@ public class SettingsFragment extends PreferenceFragmentCompat {
             super.onPostExecute(s);
             initialLoadProgressBar.setVisibility(View.GONE);
             initialLoadProgressBar = null;
-            Snackbar.make(snackView, R.string.initial_load_done, Snackbar.LENGTH_LONG).show();
+            progressSnackbar.dismiss();
+            progressSnackbar = null;
+
+            if ((s == null) && (report != null)) {
+                Snackbar.make(snackView, snackView.getContext().getString(R.string.import_done,
+                        report.getRows(), report.getSkipped(), report.getRejected()), Snackbar.LENGTH_LONG).show();
+            } else if (s == null) {
+                Snackbar.make(snackView, R.string.initial_load_done, Snackbar.LENGTH_LONG).show();
+            } else {
+                Snackbar.make(snackView, s, Snackbar.LENGTH_LONG).show();
+            }
             snackView = null;
         }
     }
@@ -25,6 +25,7 @@ import com.google.android.material.snackbar.Snackbar;
 
 import net.myerichsen.toiletpaper.R;
 import net.myerichsen.toiletpaper.TPDbAdapter;
+import net.myerichsen.toiletpaper.TPRepository;
 
 import java.util.Objects;
 
@@ -36,7 +37,7 @@ public class SupplierDetailsFragment extends Fragment {
     private View root;
     private String supplier;
     private View snackView;
-    private TPDbAdapter adapter;
+    private TPRepository repository;
     private EditText supplierDetailSupplierEditText;
     private EditText supplierDetailChainEditText;
     private TextView supplierDetailTimestampTextView;
@@ -83,7 +84,7 @@ public class SupplierDetailsFragment extends Fragment {
         snackView = requireActivity().findViewById(android.R.id.content);
         SharedPreferences preferences = PreferenceManager.getDefaultSharedPreferences(Objects.requireNonNull(context));
         float fontSize = Float.parseFloat(preferences.getString("fontsize", "24"));
-        adapter = new TPDbAdapter(context);
+        repository = TPRepository.getInstance(context);
 
         supplierDetailSupplierEditText = root.findViewById(R.id.supplierDetailSupplierEditText);
         supplierDetailSupplierEditText.setTextSize(fontSize);
@@ -96,26 +97,53 @@ public class SupplierDetailsFragment extends Fragment {
         supplierDetailAddBtn.setOnClickListener(new View.OnClickListener() {
             @Override
             public void onClick(View v) {
-                SupplierModel sm = new SupplierModel();
+                final SupplierModel sm = new SupplierModel();
                 sm.setSupplier(supplierDetailSupplierEditText.getText().toString());
                 sm.setChain(supplierDetailChainEditText.getText().toString());
-                adapter.insertData(sm);
-                Snackbar.make(snackView, R.string.supplier_added, Snackbar.LENGTH_LONG).show();
+                repository.update(getViewLifecycleOwner(), new TPRepository.DbCall<Void>() {
+                    @Override
+                    public Void call(TPDbAdapter adapter) {
+                        adapter.insertData(sm);
+                        return null;
+                    }
+                }, new TPRepository.DbCallback<Void>() {
+                    @Override
+                    public void onResult(Void result) {
+                        Snackbar.make(snackView, R.string.supplier_added, Snackbar.LENGTH_LONG).show();
+                    }
+
+                    @Override
+                    public void onError(Exception e) {
+                        Snackbar.make(snackView, String.valueOf(e.getMessage()), Snackbar.LENGTH_LONG).show();
+                    }
+                });
             }
         });
         ImageButton supplierDetailDeleteBtn = root.findViewById(R.id.supplierDetailDeleteBtn);
         supplierDetailDeleteBtn.setOnClickListener(new View.OnClickListener() {
             @Override
             public void onClick(View v) {
-                try {
-                    adapter.deleteSupplier(supplierDetailSupplierEditText.getText().toString());
-                    Snackbar.make(snackView, R.string.supplier_deleted, Snackbar.LENGTH_LONG).show();
-                    supplierDetailSupplierEditText.setText("");
-                    supplierDetailChainEditText.setText("");
-                    supplierDetailTimestampTextView.setText("");
-                } catch (Exception e) {
-                    Snackbar.make(snackView, Objects.requireNonNull(e.getMessage()), Snackbar.LENGTH_LONG).show();
-                }
+                final String deleted = supplierDetailSupplierEditText.getText().toString();
+                repository.update(getViewLifecycleOwner(), new TPRepository.DbCall<Void>() {
+                    @Override
+                    public Void call(TPDbAdapter adapter) throws Exception {
+                        adapter.deleteSupplier(deleted);
+                        return null;
+                    }
+                }, new TPRepository.DbCallback<Void>() {
+                    @Override
+                    public void onResult(Void result) {
+                        Snackbar.make(snackView, R.string.supplier_deleted, Snackbar.LENGTH_LONG).show();
+                        supplierDetailSupplierEditText.setText("");
+                        supplierDetailChainEditText.setText("");
+                        supplierDetailTimestampTextView.setText("");
+                    }
+
+                    @Override
+                    public void onError(Exception e) {
+                        Snackbar.make(snackView, String.valueOf(e.getMessage()), Snackbar.LENGTH_LONG).show();
+                    }
+                });
             }
         });
 
@@ -123,13 +151,23 @@ public class SupplierDetailsFragment extends Fragment {
             supplier = getArguments().getString(SUPPLIER);
         }
 
-        try {
-            SupplierModel sm = adapter.getSupplierModels("SUPPLIER=?", supplier).get(0);
-            supplierDetailSupplierEditText.setText(sm.getSupplier());
-            supplierDetailChainEditText.setText(sm.getChain());
-            supplierDetailTimestampTextView.setText(sm.getTimestamp());
-        } catch (Exception e) {
-            Snackbar.make(snackView, Objects.requireNonNull(e.getMessage()), Snackbar.LENGTH_LONG).show();
-        }
+        repository.query(getViewLifecycleOwner(), new TPRepository.DbCall<SupplierModel>() {
+            @Override
+            public SupplierModel call(TPDbAdapter adapter) {
+                return adapter.getSupplierModels("SUPPLIER=?", supplier).get(0);
+            }
+        }, new TPRepository.DbCallback<SupplierModel>() {
+            @Override
+            public void onResult(SupplierModel sm) {
+                supplierDetailSupplierEditText.setText(sm.getSupplier());
+                supplierDetailChainEditText.setText(sm.getChain());
+                supplierDetailTimestampTextView.setText(sm.getTimestamp());
+            }
+
+            @Override
+            public void onError(Exception e) {
+                Snackbar.make(snackView, String.valueOf(e.getMessage()), Snackbar.LENGTH_LONG).show();
+            }
+        });
     }
 }
@@ -21,6 +21,7 @@ import com.google.android.material.snackbar.Snackbar;
 
 import net.myerichsen.toiletpaper.R;
 import net.myerichsen.toiletpaper.TPDbAdapter;
+import net.myerichsen.toiletpaper.TPRepository;
 
 import java.util.List;
 import java.util.Objects;
@@ -52,8 +53,6 @@ public class SupplierFragment extends Fragment {
 
         context = getContext();
         snackView = requireActivity().findViewById(android.R.id.content);
-        TPDbAdapter adapter = new TPDbAdapter(context);
-
         final TableLayout tableLayout = view.findViewById(R.id.supplierTableLayout);
 
         TableRow tableRow = new TableRow(context);
@@ -63,13 +62,26 @@ public class SupplierFragment extends Fragment {
         tableRow.addView(addCell("Kæde"));
         tableLayout.addView(tableRow);
 
-        List<SupplierModel> lsm;
-        try {
-            lsm = adapter.getSupplierModels();
-        } catch (Exception e) {
-            Snackbar.make(snackView, Objects.requireNonNull(e.getMessage()), Snackbar.LENGTH_LONG).show();
-            return;
-        }
+        TPRepository.getInstance(context).query(getViewLifecycleOwner(), new TPRepository.DbCall<List<SupplierModel>>() {
+            @Override
+            public List<SupplierModel> call(TPDbAdapter adapter) {
+                return adapter.getSupplierModels();
+            }
+        }, new TPRepository.DbCallback<List<SupplierModel>>() {
+            @Override
+            public void onResult(List<SupplierModel> lsm) {
+                showSuppliers(tableLayout, lsm);
+            }
+
+            @Override
+            public void onError(Exception e) {
+                Snackbar.make(snackView, String.valueOf(e.getMessage()), Snackbar.LENGTH_LONG).show();
+            }
+        });
+    }
+
+    private void showSuppliers(TableLayout tableLayout, List<SupplierModel> lsm) {
+        TableRow tableRow;
 
         if (lsm.size() == 0) {
             Snackbar.make(snackView, "Tabellen er tom", Snackbar.LENGTH_LONG).show();
@@ -0,0 +1,145 @@
+/*
+ * Copyright (c) 2020. Michael Erichsen.
+ *
+ * The program is distributed under the terms of the GNU Affero General Public License v3.0
+ */
+
+package net.myerichsen.toiletpaper;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.File;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Local test of the schema migrations, starting from a populated version 5 database
+ */
+@RunWith(RobolectricTestRunner.class)
+public class DbMigrationTest {
+    private static final int ROWS = 100000;
+    private static final int DUPLICATES = 100;
+    // Item numbers 0 to 4999, each always at the same supplier
+    private static final int PRODUCTS = 5000;
+    // Schema as released in version 5
+    private static final String CREATE_PRODUCT_TABLE_V5 = "CREATE TABLE IF NOT EXISTS TABLE_PRODUCT " +
+            "(UID INTEGER PRIMARY KEY AUTOINCREMENT, LAYERS INTEGER, PACKAGE_ROLLS INTEGER, " +
+            "ROLL_SHEETS INTEGER, SHEET_WIDTH INTEGER, SHEET_LENGTH INTEGER, SHEET_LENGTH_C INTEGER, " +
+            "ROLL_LENGTH NUMERIC, ROLL_LENGTH_C INTEGER, PACKAGE_PRICE NUMERIC, ROLL_PRICE NUMERIC, " +
+            "ROLL_PRICE_C INTEGER, PAPER_WEIGHT NUMERIC, PAPER_WEIGHT_C INTEGER, PACKAGE_WEIGHT NUMERIC, " +
+            "PACKAGE_WEIGHT_C INTEGER, ROLL_WEIGHT NUMERIC, ROLL_WEIGHT_C INTEGER, KILO_PRICE NUMERIC, " +
+            "KILO_PRICE_C INTEGER, METER_PRICE NUMERIC, METER_PRICE_C INTEGER, SHEET_PRICE NUMERIC, " +
+            "SHEET_PRICE_C INTEGER, SUPPLIER TEXT, COMMENTS TEXT, ITEM_NO TEXT, BRAND TEXT, " +
+            "TIME_STAMP TIMESTAMP DEFAULT CURRENT_TIMESTAMP);";
+    private static final String CREATE_SUPPLIER_TABLE_V5 = "CREATE TABLE IF NOT EXISTS TABLE_SUPPLIER " +
+            "(SUPPLIER TEXT PRIMARY KEY, CHAIN TEXT, TIME_STAMP TIMESTAMP DEFAULT CURRENT_TIMESTAMP);";
+    private Context context;
+    private TPDbAdapter.TpDbHelper helper;
+
+    @Before
+    public void setUp() {
+        context = ApplicationProvider.getApplicationContext();
+        File file = context.getDatabasePath("TOILET_PAPER_DATABASE");
+        //noinspection ResultOfMethodCallIgnored
+        file.getParentFile().mkdirs();
+
+        SQLiteDatabase db = SQLiteDatabase.openOrCreateDatabase(file, null);
+        db.execSQL(CREATE_SUPPLIER_TABLE_V5);
+        db.execSQL(CREATE_PRODUCT_TABLE_V5);
+
+        SQLiteStatement statement = db.compileStatement("INSERT INTO TABLE_PRODUCT " +
+                "(ITEM_NO, BRAND, SUPPLIER, PACKAGE_PRICE, KILO_PRICE, TIME_STAMP) VALUES (?, ?, ?, ?, ?, ?)");
+        db.beginTransaction();
+        try {
+            for (int i = 0; i < ROWS + DUPLICATES; i++) {
+                int row = i % ROWS;
+                statement.bindString(1, String.valueOf(row % 5000));
+                statement.bindString(2, "Brand " + (row % 300));
+                statement.bindString(3, "Supplier " + (row % 10));
+                statement.bindDouble(4, 10 + row % 50);
+                statement.bindDouble(5, 20 + row % 70);
+                statement.bindString(6, "2020-01-01 00:00:" + String.format("%02d", row / 50000) +
+                        "." + (row % 50000));
+                statement.executeInsert();
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        statement.close();
+        db.setVersion(5);
+        db.close();
+    }
+
+    @After
+    public void tearDown() {
+        if (helper != null) {
+            helper.close();
+        }
+        context.deleteDatabase("TOILET_PAPER_DATABASE");
+    }
+
+    @Test
+    public void upgradeFromVersion5_keepsData() {
+        helper = new TPDbAdapter.TpDbHelper(context);
+        SQLiteDatabase db = helper.getWritableDatabase();
+
+        assertEquals(PRODUCTS, DatabaseUtils.queryNumEntries(db, "TABLE_PRODUCT"));
+        assertEquals(ROWS, DatabaseUtils.queryNumEntries(db, "TABLE_PRICE"));
+        // Prices are converted to øre and hundredths of an øre
+        assertEquals(1000, DatabaseUtils.longForQuery(db, "SELECT MIN(PACKAGE_PRICE) FROM TABLE_PRICE", null));
+        assertEquals(0, DatabaseUtils.longForQuery(db, "SELECT COUNT(*) FROM TABLE_PRODUCT " +
+                "WHERE KILO_PRICE < 200000 OR KILO_PRICE % 10000 <> 0", null));
+        // Every product row holds its latest observation
+        assertEquals(0, DatabaseUtils.longForQuery(db, "SELECT COUNT(*) FROM TABLE_PRODUCT p " +
+                "WHERE TIME_STAMP <> (SELECT MAX(TIME_STAMP) FROM TABLE_PRICE WHERE PRODUCT_UID = p.UID)", null));
+
+        // The derived fields are recomputed after the upgrade
+        assertEquals(0, DatabaseUtils.longForQuery(db,
+                "SELECT LAST_UID FROM TABLE_JOB WHERE JOB = 'RECOMPUTE_DERIVED'", null));
+        // The existing products are in the search index
+        assertEquals(PRODUCTS, DatabaseUtils.longForQuery(db,
+                "SELECT COUNT(*) FROM TABLE_SEARCH WHERE TABLE_SEARCH MATCH 'BRAND:brand*'", null));
+
+        Cursor cursor = db.rawQuery("SELECT name FROM sqlite_master WHERE type = 'index' AND name = ?",
+                new String[]{"INDEX_PRODUCT_KEY"});
+        assertEquals(1, cursor.getCount());
+        cursor.close();
+    }
+
+    @Test
+    public void upgradeFromVersion5_keepsProductsSharingAPlaceholder() {
+        SQLiteDatabase v5 = SQLiteDatabase.openDatabase(context.getDatabasePath("TOILET_PAPER_DATABASE").getPath(),
+                null, SQLiteDatabase.OPEN_READWRITE);
+        // Saved in the same second, as the seed file was
+        v5.execSQL("INSERT INTO TABLE_PRODUCT (ITEM_NO, BRAND, SUPPLIER, PACKAGE_PRICE, TIME_STAMP) " +
+                "VALUES ('?', 'Coop', 'Supplier 0', 21.95, '2020-01-01 10:00:00')");
+        v5.execSQL("INSERT INTO TABLE_PRODUCT (ITEM_NO, BRAND, SUPPLIER, PACKAGE_PRICE, TIME_STAMP) " +
+                "VALUES ('?', 'Irma', 'Supplier 0', 34, '2020-01-01 10:00:00')");
+        v5.close();
+
+        helper = new TPDbAdapter.TpDbHelper(context);
+        SQLiteDatabase db = helper.getWritableDatabase();
+
+        assertEquals(PRODUCTS + 2, DatabaseUtils.queryNumEntries(db, "TABLE_PRODUCT"));
+        assertEquals(2195, DatabaseUtils.longForQuery(db, "SELECT PACKAGE_PRICE FROM TABLE_PRODUCT " +
+                "WHERE ITEM_NO = '?' AND BRAND = 'Coop'", null));
+        assertEquals(3400, DatabaseUtils.longForQuery(db, "SELECT PACKAGE_PRICE FROM TABLE_PRODUCT " +
+                "WHERE ITEM_NO = '?' AND BRAND = 'Irma'", null));
+        // Each product has its own price
+        assertEquals(2, DatabaseUtils.longForQuery(db, "SELECT COUNT(DISTINCT PRODUCT_UID) FROM TABLE_PRICE " +
+                "WHERE PRODUCT_UID IN (SELECT UID FROM TABLE_PRODUCT WHERE ITEM_NO = '?')", null));
+    }
+}
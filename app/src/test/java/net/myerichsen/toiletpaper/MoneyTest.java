@@ -0,0 +1,59 @@
+/*
+ * Copyright (c) 2020. Michael Erichsen.
+ *
+ * The program is distributed under the terms of the GNU Affero General Public License v3.0
+ */
+
+package net.myerichsen.toiletpaper;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Local test of the fixed-point amounts
+ */
+public class MoneyTest {
+
+    @Test
+    public void parse_roundsHalfUpToScale() {
+        assertEquals(2995, Money.parse("29.95", Money.PRICE_SCALE));
+        assertEquals(2995, Money.parse(" 29,95 ", Money.PRICE_SCALE));
+        assertEquals(3000, Money.parse("29.995", Money.PRICE_SCALE));
+        assertEquals(15, Money.parse("0.0015", Money.UNIT_PRICE_SCALE));
+        assertEquals(0, Money.parse("", Money.PRICE_SCALE));
+    }
+
+    @Test(expected = NumberFormatException.class)
+    public void parse_rejectsText() {
+        Money.parse("kr. 10", Money.PRICE_SCALE);
+    }
+
+    @Test
+    public void unitPrice_isExact() {
+        // 29.95 kr for 8 rolls of 250 sheets
+        assertEquals(37438, Money.unitPrice(2995, 8));
+        assertEquals(150, Money.unitPrice(2995, 8 * 250));
+        // 29.95 kr for 8 rolls of 31.25 m
+        assertEquals(1198, Money.unitPrice(2995, 8 * 31.25));
+        // 29.95 kr for 1.1 kg
+        assertEquals(272273, Money.unitPrice(2995, 1.1));
+    }
+
+    @Test
+    public void round_isHalfUp() {
+        assertEquals(12, Money.round(1198, Money.UNIT_PRICE_SCALE, Money.PRICE_SCALE));
+        assertEquals(1, Money.round(50, Money.UNIT_PRICE_SCALE, Money.PRICE_SCALE));
+        assertEquals(0, Money.round(49, Money.UNIT_PRICE_SCALE, Money.PRICE_SCALE));
+    }
+
+    @Test
+    public void format_keepsAtLeastTwoDecimals() {
+        assertEquals("29.95", Money.format(2995, Money.PRICE_SCALE));
+        assertEquals("0.05", Money.format(5, Money.PRICE_SCALE));
+        assertEquals("27.20", Money.format(272000, Money.UNIT_PRICE_SCALE));
+        assertEquals("0.1198", Money.format(1198, Money.UNIT_PRICE_SCALE));
+        assertEquals("0.015", Money.format(150, Money.UNIT_PRICE_SCALE));
+        assertEquals("-1.50", Money.format(-150, Money.PRICE_SCALE));
+    }
+}
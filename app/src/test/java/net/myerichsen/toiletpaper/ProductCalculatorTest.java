@@ -0,0 +1,118 @@
+/*
+ * Copyright (c) 2020. Michael Erichsen.
+ *
+ * The program is distributed under the terms of the GNU Affero General Public License v3.0
+ */
+
+package net.myerichsen.toiletpaper;
+
+import net.myerichsen.toiletpaper.ui.products.ProductModel;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Local test of the derived fields
+ */
+public class ProductCalculatorTest {
+
+    /**
+     * 29.95 kr for 8 rolls of 250 sheets of 125 mm, 1.1 kg
+     */
+    private static ProductModel entered() {
+        ProductModel pm = new ProductModel();
+        pm.setPackageRolls(8);
+        pm.setRollSheets(250);
+        pm.setSheetLength(125);
+        pm.setPackagePrice(2995);
+        pm.setPackageWeight(1.1f);
+        return pm;
+    }
+
+    @Test
+    public void calculate_fillsMissingFields() {
+        ProductModel pm = entered();
+
+        assertTrue(ProductCalculator.calculate(pm));
+
+        assertEquals(31.25f, pm.getRollLength(), 0);
+        assertEquals(1, pm.getRollLength_c());
+        assertEquals(137.5f, pm.getRollWeight(), 0.001);
+        assertEquals(37438, pm.getRollPrice());
+        assertEquals(272273, pm.getKiloPrice());
+        assertEquals(1198, pm.getMeterPrice());
+        assertEquals(150, pm.getSheetPrice());
+        assertEquals(1, pm.getSheetPrice_c());
+        assertEquals(125, pm.getSheetLength());
+        assertEquals(0, pm.getSheetLength_c());
+    }
+
+    @Test
+    public void calculate_keepsEnteredValues() {
+        ProductModel pm = entered();
+        pm.setKiloPrice(250000);
+
+        ProductCalculator.calculate(pm);
+
+        assertEquals(250000, pm.getKiloPrice());
+        assertEquals(0, pm.getKiloPrice_c());
+    }
+
+    @Test
+    public void calculate_replacesComputedValues() {
+        ProductModel pm = entered();
+        pm.setSheetPrice(15);
+        pm.setSheetPrice_c(1);
+
+        ProductCalculator.calculate(pm);
+
+        assertEquals(150, pm.getSheetPrice());
+    }
+
+    @Test
+    public void calculate_derivesSheetLengthFromRollLength() {
+        ProductModel pm = entered();
+        pm.setSheetLength(0);
+        pm.setRollLength(31.25f);
+
+        ProductCalculator.calculate(pm);
+
+        assertEquals(125, pm.getSheetLength());
+        assertEquals(1, pm.getSheetLength_c());
+        assertEquals(1198, pm.getMeterPrice());
+    }
+
+    @Test
+    public void calculate_resolvesWeightsInDependencyOrder() {
+        // Only the roll weight is known. The package weight is derived from it, and the
+        // kilo price and paper weight from the package weight
+        ProductModel pm = entered();
+        pm.setPackageWeight(0);
+        pm.setRollWeight(137.5f);
+        pm.setSheetWidth(100);
+
+        ProductCalculator.calculate(pm);
+
+        assertEquals(1.1f, pm.getPackageWeight(), 0.0001);
+        assertEquals(1, pm.getPackageWeight_c());
+        assertEquals(0, pm.getRollWeight_c());
+        assertEquals(272273, pm.getKiloPrice());
+        // 1100 g on 8 * 250 sheets of 100 * 125 mm = 25 m2
+        assertEquals(44f, pm.getPaperWeight(), 0.001);
+    }
+
+    @Test
+    public void calculate_clearsComputedFieldsWithoutInputs() {
+        ProductModel pm = new ProductModel();
+        pm.setPackagePrice(2995);
+        pm.setKiloPrice(272273);
+        pm.setKiloPrice_c(1);
+
+        assertFalse(ProductCalculator.calculate(pm));
+        assertEquals(0, pm.getKiloPrice());
+        assertEquals(0, pm.getKiloPrice_c());
+    }
+}
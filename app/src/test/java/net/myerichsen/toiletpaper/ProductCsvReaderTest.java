@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2020. Michael Erichsen.
+ *
+ * The program is distributed under the terms of the GNU Affero General Public License v3.0
+ */
+
+package net.myerichsen.toiletpaper;
+
+import net.myerichsen.toiletpaper.ui.products.ProductModel;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Local test of the streaming product CSV reader
+ */
+public class ProductCsvReaderTest {
+
+    @Test
+    public void readNext_mapsColumnsByHeaderName() throws Exception {
+        String csv = "supplier, packageWeight ,paperWeight,brand,itemNo\n" +
+                "Netto ,1.2,18,Lambi,5701\n";
+        ProductCsvReader reader = new ProductCsvReader(new StringReader(csv), new ImportReport());
+
+        ProductModel pm = reader.readNext();
+
+        assertEquals("5701", pm.getItemNo());
+        assertEquals("Lambi", pm.getBrand());
+        assertEquals("Netto", pm.getSupplier());
+        assertEquals(1.2f, pm.getPackageWeight(), 0.0001f);
+        assertEquals(18f, pm.getPaperWeight(), 0.0001f);
+        assertEquals(0, pm.getPackageRolls());
+        assertNull(reader.readNext());
+    }
+
+    @Test
+    public void readNext_readsPricesAsFixedPoint() throws Exception {
+        String csv = "itemNo,packagePrice,meterPrice,sheetPrice\n" +
+                "1,29.95,0.1198,0.015\n";
+        ProductCsvReader reader = new ProductCsvReader(new StringReader(csv), new ImportReport());
+
+        ProductModel pm = reader.readNext();
+
+        assertEquals(2995, pm.getPackagePrice());
+        assertEquals(1198, pm.getMeterPrice());
+        assertEquals(150, pm.getSheetPrice());
+        assertEquals(0, pm.getKiloPrice());
+    }
+
+    @Test
+    public void readNext_reportsAndSkipsBadRows() throws Exception {
+        String csv = "itemNo,brand,layers\n" +
+                "1,A,x\n" +
+                "\n" +
+                "2,B,3\n";
+        ImportReport report = new ImportReport();
+        ProductCsvReader reader = new ProductCsvReader(new StringReader(csv), report);
+
+        assertEquals("2", reader.readNext().getItemNo());
+        assertNull(reader.readNext());
+        assertEquals(1, report.getRejected());
+        assertEquals("Linje 2", report.getRejects().get(0).substring(0, 7));
+    }
+
+    @Test
+    public void readNext_storesTimestampsInOneFormat() throws Exception {
+        String csv = "itemNo,brand,timestamp\n" +
+                "1,A,2026-10-18 09:05:00\n" +
+                "2,A,18-10-2026 9:05\n" +
+                "3,A,2026-10-18T09:05:07\n" +
+                "4,A,18.10.2026\n" +
+                "5,A,31-02-2026\n" +
+                "6,A,18/10/2026\n" +
+                "7,A,\n";
+        ImportReport report = new ImportReport();
+        ProductCsvReader reader = new ProductCsvReader(new StringReader(csv), report);
+
+        assertEquals("2026-10-18 09:05:00", reader.readNext().getTimestamp());
+        assertEquals("2026-10-18 09:05:00", reader.readNext().getTimestamp());
+        assertEquals("2026-10-18 09:05:07", reader.readNext().getTimestamp());
+        assertEquals("2026-10-18 00:00:00", reader.readNext().getTimestamp());
+        assertNull(reader.readNext().getTimestamp());
+        assertEquals(2, report.getRejected());
+        assertEquals("Linje 6", report.getRejects().get(0).substring(0, 7));
+    }
+
+    @Test(expected = IOException.class)
+    public void constructor_rejectsUnknownFormat() throws Exception {
+        new ProductCsvReader(new StringReader("a,b,c\n1,2,3\n"), new ImportReport());
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright (c) 2020. Michael Erichsen.
+ *
+ * The program is distributed under the terms of the GNU Affero General Public License v3.0
+ */
+
+package net.myerichsen.toiletpaper;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Local test of the in-memory prefix index
+ */
+public class ProductIndexTest {
+    private static ProductIndex brands() {
+        int[] uids = {1, 2, 3, 4, 5};
+        String[] brands = {"Lotus", "Lambi Classic", "Lambi Classic", "Crème-Soft", null};
+        return new ProductIndex(uids, brands, uids.length);
+    }
+
+    @Test
+    public void lookup_findsDistinctValuesByWordPrefix() {
+        ProductIndex index = brands();
+
+        assertEquals(Arrays.asList("Lambi Classic", "Lotus"), index.lookup("l", 10));
+        assertEquals(Collections.singletonList("Lambi Classic"), index.lookup("CLA", 10));
+        assertEquals(Collections.singletonList("Lambi Classic"), index.lookup("lambi  cl", 10));
+        assertEquals(Collections.singletonList("Crème-Soft"), index.lookup("creme so", 10));
+        assertEquals(Collections.singletonList("Lambi Classic"), index.lookup("l", 1));
+        assertEquals(Collections.<String>emptyList(), index.lookup(" ", 10));
+    }
+
+    @Test
+    public void put_andRemove_keepTheIndexCurrent() {
+        ProductIndex index = brands();
+
+        index.put(6, "Lambada");
+        index.put(1, "Budget");
+        assertEquals(Arrays.asList("Lambada", "Lambi Classic"), index.lookup("l", 10));
+
+        index.remove(2);
+        index.remove(3);
+        assertEquals(Collections.singletonList("Lambada"), index.lookup("l", 10));
+        assertEquals(Collections.singletonList("Budget"), index.lookup("b", 10));
+    }
+
+    @Test
+    public void put_countsTheProductsOfEachValue() {
+        ProductIndex index = brands();
+
+        // Two products have the value, so it stays until both are gone
+        index.remove(2);
+        assertEquals(Collections.singletonList("Lambi Classic"), index.lookup("cla", 10));
+
+        index.put(3, "Lambada");
+        assertEquals(Collections.<String>emptyList(), index.lookup("cla", 10));
+        assertEquals(Arrays.asList("Lambada", "Lotus"), index.lookup("l", 10));
+
+        // Saving a product again with the same value does not count it twice
+        index.put(6, "Lotus");
+        index.put(6, "Lotus");
+        index.remove(1);
+        index.remove(6);
+        assertEquals(Collections.singletonList("Lambada"), index.lookup("l", 10));
+    }
+
+    @Test
+    public void lookup_returnsEachValueOnce() {
+        int[] uids = {1, 2, 3};
+        String[] brands = {"Soft Soft", "Soft", "Soft Soft"};
+        ProductIndex index = new ProductIndex(uids, brands, uids.length);
+
+        assertEquals(Arrays.asList("Soft Soft", "Soft"), index.lookup("so", 10));
+    }
+
+    @Test
+    public void productUids_listsTheProductsOfEachValue() {
+        ProductIndex index = brands();
+
+        assertArrayEquals(new int[]{2, 3}, index.productUids("Lambi Classic"));
+        assertArrayEquals(new int[0], index.productUids("Lambi"));
+
+        index.put(7, "Lotus");
+        index.put(3, "Lotus");
+        assertArrayEquals(new int[]{1, 3, 7}, index.productUids("Lotus"));
+        assertArrayEquals(new int[]{2}, index.productUids("Lambi Classic"));
+    }
+
+    @Test
+    public void put_andRemove_matchARebuiltIndex() {
+        String[] brands = {"Lotus", "Lambi Classic", "Lambi", "Soft Lambi", "Budget", "Crème-Soft", null};
+        int[] uids = new int[200];
+        String[] texts = new String[uids.length];
+        ProductIndex index = new ProductIndex(uids, texts, 0);
+        Random random = new Random(42);
+
+        for (int i = 0; i < 2000; i++) {
+            int uid = random.nextInt(uids.length);
+            String brand = brands[random.nextInt(brands.length)];
+            uids[uid] = uid;
+            texts[uid] = brand;
+            index.put(uid, brand);
+        }
+        ProductIndex rebuilt = new ProductIndex(uids, texts, uids.length);
+
+        for (String prefix : new String[]{"l", "lam", "so", "b", "creme", "x"}) {
+            assertEquals(prefix, sorted(rebuilt.lookup(prefix, 10)), sorted(index.lookup(prefix, 10)));
+        }
+
+        for (String brand : brands) {
+            assertArrayEquals(brand, rebuilt.productUids(brand), index.productUids(brand));
+        }
+    }
+
+    private static List<String> sorted(List<String> values) {
+        List<String> sorted = new ArrayList<>(values);
+        Collections.sort(sorted);
+        return sorted;
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright (c) 2020. Michael Erichsen.
+ *
+ * The program is distributed under the terms of the GNU Affero General Public License v3.0
+ */
+
+package net.myerichsen.toiletpaper;
+
+import android.database.Cursor;
+import android.database.MatrixCursor;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Micro benchmark of row decoding with indices resolved once per cursor
+ * against a column name lookup per field per row.
+ * <p>
+ * Runs on demand with gradlew testDebugUnitTest -Pbenchmark. Nothing is asserted, the
+ * throughput is printed.
+ * </p>
+ */
+@RunWith(RobolectricTestRunner.class)
+public class ProductRowMapperBenchmarkTest {
+    private static final int ROWS = 100000;
+
+    @Before
+    public void setUp() {
+        assumeTrue(Boolean.getBoolean("benchmark"));
+    }
+
+    @Test
+    public void mapper_againstLookupPerField() {
+        MatrixCursor cursor = ProductRowMapperTest.createCursor(ROWS);
+
+        // Warm up both paths
+        for (int run = 0; run < 3; run++) {
+            timeLookup(cursor);
+            timeMapper(cursor);
+        }
+
+        long lookup = timeLookup(cursor);
+        long mapped = timeMapper(cursor);
+        cursor.close();
+
+        System.out.println("Lookup per field: " + ROWS * 1000000000L / lookup + " rows/s, mapper: " +
+                ROWS * 1000000000L / mapped + " rows/s");
+    }
+
+    private static long timeLookup(Cursor cursor) {
+        long start = System.nanoTime();
+        cursor.moveToPosition(-1);
+        while (cursor.moveToNext()) {
+            ProductRowMapperTest.lookupPerField(cursor);
+        }
+        return System.nanoTime() - start;
+    }
+
+    private static long timeMapper(Cursor cursor) {
+        long start = System.nanoTime();
+        cursor.moveToPosition(-1);
+        TPDbAdapter.ProductRowMapper mapper = new TPDbAdapter.ProductRowMapper(cursor);
+        while (cursor.moveToNext()) {
+            mapper.map(cursor);
+        }
+        return System.nanoTime() - start;
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2020. Michael Erichsen.
+ *
+ * The program is distributed under the terms of the GNU Affero General Public License v3.0
+ */
+
+package net.myerichsen.toiletpaper;
+
+import android.database.Cursor;
+import android.database.MatrixCursor;
+
+import net.myerichsen.toiletpaper.ui.products.ProductModel;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Row decoding with indices resolved once per cursor gives the same product as a column
+ * name lookup per field
+ */
+@RunWith(RobolectricTestRunner.class)
+public class ProductRowMapperTest {
+    private static final int ROWS = 100;
+    private static final String[] COLUMNS = {"UID", "LAYERS", "PACKAGE_ROLLS", "ROLL_SHEETS", "SHEET_WIDTH",
+            "SHEET_LENGTH", "SHEET_LENGTH_C", "ROLL_LENGTH", "ROLL_LENGTH_C", "PACKAGE_PRICE", "ROLL_PRICE",
+            "ROLL_PRICE_C", "PAPER_WEIGHT", "PAPER_WEIGHT_C", "PACKAGE_WEIGHT", "PACKAGE_WEIGHT_C",
+            "ROLL_WEIGHT", "ROLL_WEIGHT_C", "KILO_PRICE", "KILO_PRICE_C", "METER_PRICE", "METER_PRICE_C",
+            "SHEET_PRICE", "SHEET_PRICE_C", "SUPPLIER", "COMMENTS", "ITEM_NO", "BRAND", "TIME_STAMP"};
+
+    static MatrixCursor createCursor(int rows) {
+        MatrixCursor cursor = new MatrixCursor(COLUMNS, rows);
+
+        for (int i = 0; i < rows; i++) {
+            cursor.addRow(new Object[]{i, 2, 8, 250, 97, 125, 0, 31.25f, 1, 2995L, 37400L, 1, 18.5f, 0,
+                    1.1f, 0, 137.5f, 1, 272000L, 1, 1200L, 1, 15L, 1, "Netto", "", String.valueOf(i),
+                    "Lambi", "2020-06-01 10:00:00"});
+        }
+        return cursor;
+    }
+
+    /**
+     * Decoding as it was done before, with a name lookup per field
+     */
+    static ProductModel lookupPerField(Cursor cursor) {
+        ProductModel pm = new ProductModel();
+        pm.setUid(cursor.getInt(cursor.getColumnIndex("UID")));
+        pm.setLayers(cursor.getInt(cursor.getColumnIndex("LAYERS")));
+        pm.setPackageRolls(cursor.getInt(cursor.getColumnIndex("PACKAGE_ROLLS")));
+        pm.setRollSheets(cursor.getInt(cursor.getColumnIndex("ROLL_SHEETS")));
+        pm.setSheetWidth(cursor.getInt(cursor.getColumnIndex("SHEET_WIDTH")));
+        pm.setSheetLength(cursor.getInt(cursor.getColumnIndex("SHEET_LENGTH")));
+        pm.setSheetLength_c(cursor.getInt(cursor.getColumnIndex("SHEET_LENGTH_C")));
+        pm.setRollLength(cursor.getFloat(cursor.getColumnIndex("ROLL_LENGTH")));
+        pm.setRollLength_c(cursor.getInt(cursor.getColumnIndex("ROLL_LENGTH_C")));
+        pm.setPackagePrice(cursor.getLong(cursor.getColumnIndex("PACKAGE_PRICE")));
+        pm.setRollPrice(cursor.getLong(cursor.getColumnIndex("ROLL_PRICE")));
+        pm.setRollPrice_c(cursor.getInt(cursor.getColumnIndex("ROLL_PRICE_C")));
+        pm.setPaperWeight(cursor.getFloat(cursor.getColumnIndex("PAPER_WEIGHT")));
+        pm.setPaperWeight_c(cursor.getInt(cursor.getColumnIndex("PAPER_WEIGHT_C")));
+        pm.setPackageWeight(cursor.getFloat(cursor.getColumnIndex("PACKAGE_WEIGHT")));
+        pm.setPackageWeight_c(cursor.getInt(cursor.getColumnIndex("PACKAGE_WEIGHT_C")));
+        pm.setRollWeight(cursor.getFloat(cursor.getColumnIndex("ROLL_WEIGHT")));
+        pm.setRollWeight_c(cursor.getInt(cursor.getColumnIndex("ROLL_WEIGHT_C")));
+        pm.setKiloPrice(cursor.getLong(cursor.getColumnIndex("KILO_PRICE")));
+        pm.setKiloPrice_c(cursor.getInt(cursor.getColumnIndex("KILO_PRICE_C")));
+        pm.setMeterPrice(cursor.getLong(cursor.getColumnIndex("METER_PRICE")));
+        pm.setMeterPrice_c(cursor.getInt(cursor.getColumnIndex("METER_PRICE_C")));
+        pm.setSheetPrice(cursor.getLong(cursor.getColumnIndex("SHEET_PRICE")));
+        pm.setSheetPrice_c(cursor.getInt(cursor.getColumnIndex("SHEET_PRICE_C")));
+        pm.setSupplier(cursor.getString(cursor.getColumnIndex("SUPPLIER")));
+        pm.setComments(cursor.getString(cursor.getColumnIndex("COMMENTS")));
+        pm.setItemNo(cursor.getString(cursor.getColumnIndex("ITEM_NO")));
+        pm.setBrand(cursor.getString(cursor.getColumnIndex("BRAND")));
+        pm.setTimestamp(cursor.getString(cursor.getColumnIndex("TIME_STAMP")));
+        return pm;
+    }
+
+    @Test
+    public void mapper_decodesSameValues() {
+        MatrixCursor cursor = createCursor(ROWS);
+        TPDbAdapter.ProductRowMapper mapper = new TPDbAdapter.ProductRowMapper(cursor);
+        cursor.moveToPosition(42);
+
+        ProductModel expected = lookupPerField(cursor);
+        ProductModel actual = mapper.map(cursor);
+
+        assertEquals(expected.getUid(), actual.getUid());
+        assertEquals(expected.getLayers(), actual.getLayers());
+        assertEquals(expected.getPackageRolls(), actual.getPackageRolls());
+        assertEquals(expected.getRollSheets(), actual.getRollSheets());
+        assertEquals(expected.getSheetWidth(), actual.getSheetWidth());
+        assertEquals(expected.getSheetLength(), actual.getSheetLength());
+        assertEquals(expected.getSheetLength_c(), actual.getSheetLength_c());
+        assertEquals(expected.getRollLength(), actual.getRollLength(), 0);
+        assertEquals(expected.getRollLength_c(), actual.getRollLength_c());
+        assertEquals(expected.getPackagePrice(), actual.getPackagePrice());
+        assertEquals(expected.getRollPrice(), actual.getRollPrice());
+        assertEquals(expected.getRollPrice_c(), actual.getRollPrice_c());
+        assertEquals(expected.getPaperWeight(), actual.getPaperWeight(), 0);
+        assertEquals(expected.getPaperWeight_c(), actual.getPaperWeight_c());
+        assertEquals(expected.getPackageWeight(), actual.getPackageWeight(), 0);
+        assertEquals(expected.getPackageWeight_c(), actual.getPackageWeight_c());
+        assertEquals(expected.getRollWeight(), actual.getRollWeight(), 0);
+        assertEquals(expected.getRollWeight_c(), actual.getRollWeight_c());
+        assertEquals(expected.getKiloPrice(), actual.getKiloPrice());
+        assertEquals(expected.getKiloPrice_c(), actual.getKiloPrice_c());
+        assertEquals(expected.getMeterPrice(), actual.getMeterPrice());
+        assertEquals(expected.getMeterPrice_c(), actual.getMeterPrice_c());
+        assertEquals(expected.getSheetPrice(), actual.getSheetPrice());
+        assertEquals(expected.getSheetPrice_c(), actual.getSheetPrice_c());
+        assertEquals(expected.getSupplier(), actual.getSupplier());
+        assertEquals(expected.getComments(), actual.getComments());
+        assertEquals(expected.getItemNo(), actual.getItemNo());
+        assertEquals(expected.getBrand(), actual.getBrand());
+        assertEquals(expected.getTimestamp(), actual.getTimestamp());
+        cursor.close();
+    }
+}
@@ -0,0 +1,304 @@
+/*
+ * Copyright (c) 2020. Michael Erichsen.
+ *
+ * The program is distributed under the terms of the GNU Affero General Public License v3.0
+ */
+
+package net.myerichsen.toiletpaper;
+
+import android.database.Cursor;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import net.myerichsen.toiletpaper.ui.products.ProductModel;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Local test of the transactional bulk loader
+ */
+@RunWith(RobolectricTestRunner.class)
+public class TPDbAdapterLoadTest {
+    private static final String HEADER = "itemNo,brand,layers,packageRolls,rollSheets,sheetWidth,sheetLength," +
+            "sheetLength_c,rollLength,rollLength_c,packagePrice,rollPrice,rollPrice_c,paperWeight,paperWeight_c," +
+            "packageWeight,packageWeight_c,rollWeight,rollWeight_c,kiloPrice,kiloPrice_c,meterPrice,meterPrice_c," +
+            "sheetPrice,sheetPrice_c,supplier,comments\n";
+    private TPDbAdapter.TpDbHelper helper;
+    private SQLiteDatabase db;
+
+    static String productCsv(int rows) {
+        StringBuilder sb = new StringBuilder(HEADER);
+
+        for (int i = 0; i < rows; i++) {
+            sb.append(i).append(",Brand ").append(i % 50)
+                    .append(",2,8,250,97,125,0,31.25,1,29.95,3.74,1,18.5,0,1.1,0,137.5,1,27.2,1,0.12,1,0.0015,1,")
+                    .append("Bilka Hillerød,\n");
+        }
+        return sb.toString();
+    }
+
+    @Before
+    public void setUp() {
+        helper = new TPDbAdapter.TpDbHelper(ApplicationProvider.getApplicationContext());
+        db = helper.getWritableDatabase();
+    }
+
+    @After
+    public void tearDown() {
+        helper.close();
+    }
+
+    @Test
+    public void loadProducts_insertsAllRows() throws Exception {
+        ImportReport report = helper.loadProducts(db, new StringReader(productCsv(1234)), null, false);
+
+        assertEquals(1234, report.getRows());
+        assertEquals(0, report.getRejected());
+        assertEquals(1234, DatabaseUtils.queryNumEntries(db, "TABLE_PRODUCT"));
+        assertEquals(1234, DatabaseUtils.queryNumEntries(db, "TABLE_PRICE"));
+    }
+
+    @Test
+    public void loadProducts_reportsProgressPerBatch() throws Exception {
+        final List<Integer> progress = new ArrayList<>();
+        helper.setBatchSize(100);
+
+        helper.loadProducts(db, new StringReader(productCsv(250)), new TPDbAdapter.LoadProgressListener() {
+            @Override
+            public void onProgress(int rows) {
+                progress.add(rows);
+            }
+        }, false);
+
+        assertEquals("[100, 200, 250]", progress.toString());
+    }
+
+    @Test
+    public void loadProducts_rejectsBadRowsAndContinues() throws Exception {
+        String csv = productCsv(3) + "99,Bad,two,8\n" + "100,Good,2,8\n";
+
+        ImportReport report = helper.loadProducts(db, new StringReader(csv), null, false);
+
+        assertEquals(4, report.getRows());
+        assertEquals(1, report.getRejected());
+        assertTrue(report.getRejects().get(0).startsWith("Linje 5"));
+    }
+
+    @Test
+    public void loadProducts_deltaSkipsKnownPrices() throws Exception {
+        helper.loadProducts(db, new StringReader(productCsv(100)), null, false);
+        db.execSQL("UPDATE TABLE_PRODUCT SET TIME_STAMP = '2020-06-01 10:00:00'");
+        db.execSQL("UPDATE TABLE_PRICE SET TIME_STAMP = '2020-06-01 10:00:00'");
+        String changed = productCsv(100).replace("\n42,Brand 42,2,8,250,97,125,0,31.25,1,29.95,",
+                "\n42,Brand 42,2,8,250,97,125,0,31.25,1,24.95,");
+
+        ImportReport report = helper.loadProducts(db, new StringReader(changed), null, true);
+
+        assertEquals(1, report.getRows());
+        assertEquals(99, report.getSkipped());
+        assertEquals(100, DatabaseUtils.queryNumEntries(db, "TABLE_PRODUCT"));
+        assertEquals(101, DatabaseUtils.queryNumEntries(db, "TABLE_PRICE"));
+        assertEquals(1, DatabaseUtils.longForQuery(db,
+                "SELECT COUNT(*) FROM TABLE_PRODUCT WHERE ITEM_NO = '42' AND PACKAGE_PRICE = 2495", null));
+    }
+
+    @Test
+    public void loadProducts_deltaSkipsKnownObservations() throws Exception {
+        String csv = "itemNo,brand,packagePrice,supplier,timestamp\n" +
+                "1,A,10,Netto,2020-06-01 10:00:00\n" +
+                "1,A,10,Netto,2020-06-08 10:00:00\n";
+        helper.loadProducts(db, new StringReader(csv), null, true);
+
+        ImportReport report = helper.loadProducts(db, new StringReader(csv +
+                "1,A,10,Netto,2020-06-15 10:00:00\n"), null, true);
+
+        assertEquals(1, report.getRows());
+        assertEquals(2, report.getSkipped());
+        assertEquals(1, DatabaseUtils.queryNumEntries(db, "TABLE_PRODUCT"));
+        assertEquals(3, DatabaseUtils.queryNumEntries(db, "TABLE_PRICE"));
+    }
+
+    @Test
+    public void loadProducts_olderObservationOnlyExtendsHistory() throws Exception {
+        String csv = "itemNo,brand,packagePrice,supplier,timestamp\n" +
+                "1,A,10,Netto,2020-06-15 10:00:00\n" +
+                "1,A,12,Netto,2020-06-01 10:00:00\n";
+
+        ImportReport report = helper.loadProducts(db, new StringReader(csv), null, false);
+
+        assertEquals(2, report.getRows());
+        assertEquals(1, DatabaseUtils.queryNumEntries(db, "TABLE_PRODUCT"));
+        assertEquals(2, DatabaseUtils.queryNumEntries(db, "TABLE_PRICE"));
+        assertEquals("2020-06-15 10:00:00", DatabaseUtils.stringForQuery(db,
+                "SELECT TIME_STAMP FROM TABLE_PRODUCT", null));
+        assertEquals(1000, DatabaseUtils.longForQuery(db,
+                "SELECT PACKAGE_PRICE FROM TABLE_PRODUCT", null));
+    }
+
+    @Test
+    public void loadProducts_failedRowLeavesNoProduct() throws Exception {
+        db.execSQL("CREATE TRIGGER FAIL_PRICE BEFORE INSERT ON TABLE_PRICE WHEN NEW.PACKAGE_PRICE = 666 " +
+                "BEGIN SELECT RAISE(ABORT, 'Fejl'); END");
+        String csv = "itemNo,brand,packagePrice,supplier\n" +
+                "1,A,10,Netto\n" +
+                "2,B,6.66,Netto\n" +
+                "3,C,12,Netto\n";
+
+        ImportReport report = helper.loadProducts(db, new StringReader(csv), null, false);
+
+        assertEquals(2, report.getRows());
+        assertEquals(1, report.getRejected());
+        assertEquals(2, DatabaseUtils.queryNumEntries(db, "TABLE_PRODUCT"));
+        assertEquals(0, DatabaseUtils.queryNumEntries(db, "TABLE_PRODUCT", "ITEM_NO = '2'"));
+        assertEquals(2, DatabaseUtils.queryNumEntries(db, "TABLE_PRICE"));
+    }
+
+    @Test
+    public void loadProducts_failedUpdateLeavesNoPrice() throws Exception {
+        db.execSQL("CREATE TRIGGER FAIL_UPDATE BEFORE UPDATE ON TABLE_PRODUCT WHEN NEW.BRAND = 'Fejl' " +
+                "BEGIN SELECT RAISE(ABORT, 'Fejl'); END");
+        String csv = "itemNo,brand,packagePrice,supplier,timestamp\n" +
+                "1,A,10,Netto,2020-06-01 10:00:00\n" +
+                "1,Fejl,12,Netto,2020-06-08 10:00:00\n";
+
+        ImportReport report = helper.loadProducts(db, new StringReader(csv), null, false);
+
+        assertEquals(1, report.getRows());
+        assertEquals(1, report.getRejected());
+        assertEquals(1, DatabaseUtils.queryNumEntries(db, "TABLE_PRICE"));
+        assertEquals(1000, DatabaseUtils.longForQuery(db,
+                "SELECT PACKAGE_PRICE FROM TABLE_PRODUCT", null));
+    }
+
+    @Test
+    public void loadProducts_keepsEveryProductOfTheSeedFile() throws Exception {
+        ImportReport report = helper.loadProducts(db, seedFile(), null, false);
+
+        assertEquals(40, report.getRows());
+        assertEquals(40, DatabaseUtils.queryNumEntries(db, "TABLE_PRODUCT"));
+        assertEquals(40, DatabaseUtils.queryNumEntries(db, "TABLE_PRICE"));
+        assertEquals(Arrays.asList("Coop Luxury", "Irmas Blødt Toiletpapir", "Irmas Toiletpapir",
+                "Irmas Toiletpapir Ny Kvalitet", "Lotus Comfort 8", "Xtra Toiletpapir", "Änglamark"),
+                brands("Kvickly Helsinge"));
+        assertEquals(Arrays.asList("Lotus Comfort 8", "Nemlig Basic", "Nemlig Basic", "Nemlig Plus"),
+                brands("nemlig.com"));
+        assertEquals(6, DatabaseUtils.queryNumEntries(db, "TABLE_PRODUCT", "ITEM_NO = 'test'"));
+
+        // Loading the file again adds nothing
+        report = helper.loadProducts(db, seedFile(), null, true);
+
+        assertEquals(0, report.getRows());
+        assertEquals(40, report.getSkipped());
+        assertEquals(40, DatabaseUtils.queryNumEntries(db, "TABLE_PRODUCT"));
+    }
+
+    private static Reader seedFile() throws Exception {
+        return new InputStreamReader(ApplicationProvider.getApplicationContext().getAssets()
+                .open("products.csv"), StandardCharsets.UTF_8);
+    }
+
+    private List<String> brands(String supplier) {
+        List<String> brands = new ArrayList<>();
+        Cursor cursor = db.rawQuery("SELECT BRAND FROM TABLE_PRODUCT WHERE ITEM_NO = '?' AND SUPPLIER = ? " +
+                "ORDER BY BRAND", new String[]{supplier});
+
+        while (cursor.moveToNext()) {
+            brands.add(cursor.getString(0));
+        }
+        cursor.close();
+        return brands;
+    }
+
+    @Test
+    public void write_findsProductWithoutSupplier() {
+        TPDbAdapter.ObservationWriter writer = new TPDbAdapter.ObservationWriter(helper, db);
+        ProductModel pm = new ProductModel();
+        pm.setItemNo("1");
+        pm.setSupplier(null);
+        pm.setPackagePrice(1000);
+        pm.setTimestamp("2020-06-01 10:00:00");
+        long first = writer.write(pm, false);
+
+        pm.setPackagePrice(1200);
+        pm.setTimestamp("2020-06-08 10:00:00");
+
+        assertEquals(first, writer.write(pm, false));
+        assertEquals(1, DatabaseUtils.queryNumEntries(db, "TABLE_PRODUCT"));
+        assertEquals(2, DatabaseUtils.queryNumEntries(db, "TABLE_PRICE"));
+    }
+
+    @Test
+    public void save_inTheSameSecondReplacesTheObservation() {
+        TPDbAdapter.ObservationWriter writer = new TPDbAdapter.ObservationWriter(helper, db);
+        ProductModel pm = new ProductModel();
+        pm.setItemNo("1");
+        pm.setBrand("A");
+        pm.setSupplier("Netto");
+        pm.setPackagePrice(1000);
+        pm.setTimestamp("2020-06-01 10:00:00");
+        long first = writer.save(pm);
+
+        pm.setBrand("B");
+        pm.setPackagePrice(1200);
+
+        assertEquals(first, writer.save(pm));
+        assertEquals(1, DatabaseUtils.queryNumEntries(db, "TABLE_PRODUCT"));
+        assertEquals("B", DatabaseUtils.stringForQuery(db, "SELECT BRAND FROM TABLE_PRODUCT", null));
+        assertEquals(1200, DatabaseUtils.longForQuery(db, "SELECT PACKAGE_PRICE FROM TABLE_PRODUCT", null));
+        assertEquals(1, DatabaseUtils.queryNumEntries(db, "TABLE_PRICE"));
+        assertEquals(1200, DatabaseUtils.longForQuery(db, "SELECT PACKAGE_PRICE FROM TABLE_PRICE", null));
+    }
+
+    @Test
+    public void loadProducts_computesDerivedFields() throws Exception {
+        String csv = "itemNo,brand,packageRolls,rollSheets,sheetLength,packagePrice,packageWeight,supplier\n" +
+                "1,A,8,250,125,29.95,1.1,Netto\n" +
+                "2,B,8,250,125,19.95,,Netto\n";
+        helper.loadProducts(db, new StringReader(csv), null, false);
+
+        assertEquals(272273, DatabaseUtils.longForQuery(db,
+                "SELECT KILO_PRICE FROM TABLE_PRODUCT WHERE ITEM_NO = '1'", null));
+        assertEquals(1198, DatabaseUtils.longForQuery(db,
+                "SELECT METER_PRICE FROM TABLE_PRODUCT WHERE ITEM_NO = '1'", null));
+        assertEquals(150, DatabaseUtils.longForQuery(db,
+                "SELECT SHEET_PRICE FROM TABLE_PRODUCT WHERE ITEM_NO = '1'", null));
+        // Product 2 has no weight, so its kilo price is unknown
+        assertEquals(0, DatabaseUtils.longForQuery(db,
+                "SELECT KILO_PRICE FROM TABLE_PRODUCT WHERE ITEM_NO = '2'", null));
+    }
+
+    @Test
+    public void loadSuppliers_countsNewSuppliersAndRejectsShortRows() throws Exception {
+        String csv = "supplier,chain\n" +
+                "Netto Hillerød,Netto\n" +
+                "Bilka\n" +
+                "\n" +
+                "Føtex Hillerød,Føtex\n";
+        helper.loadSuppliers(db, new StringReader("supplier,chain\nNetto Hillerød,Netto\n"));
+
+        ImportReport report = helper.loadSuppliers(db, new StringReader(csv));
+
+        assertEquals(1, report.getRows());
+        assertEquals(1, report.getSkipped());
+        assertEquals(1, report.getRejected());
+        assertTrue(report.getRejects().get(0).startsWith("Linje 3"));
+        assertEquals(2, DatabaseUtils.queryNumEntries(db, "TABLE_SUPPLIER"));
+    }
+}
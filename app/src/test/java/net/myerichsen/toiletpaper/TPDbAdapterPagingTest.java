@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2020. Michael Erichsen.
+ *
+ * The program is distributed under the terms of the GNU Affero General Public License v3.0
+ */
+
+package net.myerichsen.toiletpaper;
+
+import android.content.Context;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import net.myerichsen.toiletpaper.ui.products.ProductSummary;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.StringReader;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Keyset pagination of the product list
+ */
+@RunWith(RobolectricTestRunner.class)
+public class TPDbAdapterPagingTest {
+    private static final int ROWS = 1000;
+    private TPDbAdapter.TpDbHelper helper;
+    private TPDbAdapter adapter;
+
+    @Before
+    public void setUp() throws Exception {
+        Context context = ApplicationProvider.getApplicationContext();
+        helper = TPDbAdapter.TpDbHelper.getInstance(context);
+        helper.loadProducts(helper.getWritableDatabase(),
+                new StringReader(TPDbAdapterLoadTest.productCsv(ROWS)), null, false);
+        adapter = new TPDbAdapter(context);
+    }
+
+    @After
+    public void tearDown() {
+        TPDbAdapter.TpDbHelper.resetInstance();
+    }
+
+    @Test
+    public void pages_coverEveryRowOnceInOrder() {
+        // Not a divisor of the rows per brand, so pages end in the middle of a brand
+        assertEquals(ROWS, readAllPages(37));
+    }
+
+    @Test
+    public void pages_coverProductsWithoutBrand() {
+        helper.getWritableDatabase().execSQL("UPDATE TABLE_PRODUCT SET BRAND = NULL WHERE UID % 3 = 0");
+
+        // Pages end inside the products without a brand and where they meet the others
+        assertEquals(ROWS, readAllPages(37));
+        assertEquals(ROWS, readAllPages(ROWS / 3));
+    }
+
+    @Test
+    public void pageAfterLastRow_isEmpty() {
+        List<ProductSummary> all = adapter.getProductSummaryPage(null, ROWS);
+        ProductSummary last = all.get(all.size() - 1);
+
+        assertEquals(ROWS, all.size());
+        assertEquals(0, adapter.getProductSummaryPage(last, 10).size());
+    }
+
+    /**
+     * Read the product list page by page, checking the order
+     *
+     * @return Number of rows read
+     */
+    private int readAllPages(int pageSize) {
+        Set<Integer> seen = new HashSet<>();
+        ProductSummary previous = null;
+        List<ProductSummary> page = adapter.getProductSummaryPage(null, pageSize);
+
+        while (page.size() > 0) {
+            for (ProductSummary ps : page) {
+                assertTrue("Duplicate UID " + ps.uid, seen.add(ps.uid));
+
+                if (previous != null) {
+                    assertTrue("Out of order at UID " + ps.uid, isBefore(previous, ps));
+                }
+                previous = ps;
+            }
+
+            if (page.size() < pageSize) {
+                break;
+            }
+            page = adapter.getProductSummaryPage(previous, pageSize);
+        }
+        return seen.size();
+    }
+
+    /**
+     * SQLite order: NULL brands first, then by brand and UID
+     */
+    private static boolean isBefore(ProductSummary a, ProductSummary b) {
+        if ((a.brand == null) || (b.brand == null)) {
+            return (b.brand != null) || ((a.brand == null) && (a.uid < b.uid));
+        }
+
+        int order = a.brand.compareTo(b.brand);
+        return (order < 0) || ((order == 0) && (a.uid < b.uid));
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright (c) 2020. Michael Erichsen.
+ *
+ * The program is distributed under the terms of the GNU Affero General Public License v3.0
+ */
+
+package net.myerichsen.toiletpaper;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteQueryBuilder;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.StringReader;
+
+import static org.junit.Assert.fail;
+
+/**
+ * Verify that every filtered query issued through TPDbAdapter is served by an index.
+ * Unfiltered queries return every row and are not checked.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class TPDbAdapterQueryPlanTest {
+    private static final String HISTORY = "TABLE_PRODUCT JOIN TABLE_PRICE ON " +
+            "TABLE_PRICE.PRODUCT_UID = TABLE_PRODUCT.UID";
+    // Table, selection, selection argument, order by
+    private static final String[][] QUERIES = {
+            // HomeFragment, PriceSelectFragment
+            {"TABLE_PRODUCT", "ITEM_NO=?", "42", null},
+            {"TABLE_PRODUCT", "BRAND=?", "Brand 7", null},
+            // ProductDetailsFragment
+            {"TABLE_PRODUCT", "UID=?", "1", null},
+            // PriceModel, PriceGraphFragment
+            {HISTORY, "ITEM_NO=?", "42", "TABLE_PRICE.TIME_STAMP"},
+            {HISTORY, "BRAND=?", "Brand 7", "TABLE_PRICE.TIME_STAMP"},
+            // ItemNoModel, BrandModel
+            {"TABLE_PRODUCT", "UID IN (SELECT docid FROM TABLE_SEARCH WHERE TABLE_SEARCH MATCH ?)",
+                    "ITEM_NO:4*", "TIME_STAMP"},
+            {"TABLE_PRODUCT", "UID IN (SELECT docid FROM TABLE_SEARCH WHERE TABLE_SEARCH MATCH ?)",
+                    "BRAND:bra*", "TIME_STAMP"},
+            // SupplierDetailsFragment
+            {"TABLE_SUPPLIER", "SUPPLIER=?", "Bilka Hillerød", null},
+    };
+    private TPDbAdapter.TpDbHelper helper;
+    private SQLiteDatabase db;
+
+    @Before
+    public void setUp() throws Exception {
+        helper = new TPDbAdapter.TpDbHelper(ApplicationProvider.getApplicationContext());
+        db = helper.getWritableDatabase();
+        helper.loadProducts(db, new StringReader(TPDbAdapterLoadTest.productCsv(1000)), null, false);
+        db.execSQL("ANALYZE");
+    }
+
+    @After
+    public void tearDown() {
+        helper.close();
+    }
+
+    @Test
+    public void filteredQueries_useIndexes() {
+        StringBuilder failures = new StringBuilder();
+
+        for (String[] query : QUERIES) {
+            String sql = SQLiteQueryBuilder.buildQueryString(false, query[0], null, query[1],
+                    null, null, query[3], null);
+            String[] args = {query[2]};
+            Cursor cursor = db.rawQuery("EXPLAIN QUERY PLAN " + sql, args);
+            int detailIndex = cursor.getColumnIndex("detail");
+
+            while (cursor.moveToNext()) {
+                String detail = cursor.getString(detailIndex);
+
+                if (detail.startsWith("SCAN") && !detail.contains("INDEX")) {
+                    failures.append(sql).append(" -> ").append(detail).append('\n');
+                }
+            }
+            cursor.close();
+        }
+
+        if (failures.length() > 0) {
+            fail("Full table scans:\n" + failures);
+        }
+    }
+
+    @Test
+    public void productPages_areReadFromIndexWithoutSorting() {
+        // ProductRecyclerViewAdapter, first and following pages, and pages after a product
+        // without a brand
+        String first = "SELECT UID FROM TABLE_PRODUCT ORDER BY BRAND, UID LIMIT 50";
+        String next = "SELECT UID FROM TABLE_PRODUCT WHERE BRAND >= ? AND (BRAND > ? OR UID > ?) " +
+                "ORDER BY BRAND, UID LIMIT 50";
+        StringBuilder failures = new StringBuilder();
+
+        checkPlan(first, new String[0], failures);
+        checkPlan(next, new String[]{"Brand 7", "Brand 7", "7"}, failures);
+        checkPlan("SELECT UID FROM TABLE_PRODUCT WHERE BRAND IS NULL AND UID > ? " +
+                "ORDER BY BRAND, UID LIMIT 50", new String[]{"7"}, failures);
+        checkPlan("SELECT UID FROM TABLE_PRODUCT WHERE BRAND IS NOT NULL " +
+                "ORDER BY BRAND, UID LIMIT 50", new String[0], failures);
+
+        if (failures.length() > 0) {
+            fail("Page queries not served by an index:\n" + failures);
+        }
+    }
+
+    @Test
+    public void rankingPages_areReadFromIndexWithoutSorting() {
+        // CompareModel, CompareDetailsFragment: first and following pages, all suppliers or one
+        String[] keys = {"PAPER_WEIGHT", "KILO_PRICE", "METER_PRICE", "SHEET_PRICE"};
+        StringBuilder failures = new StringBuilder();
+
+        for (String key : keys) {
+            String beyond = key.equals("PAPER_WEIGHT") ? "<" : ">";
+            String order = " ORDER BY " + TPDbAdapter.TpDbHelper.rankOrder(key) + " LIMIT 50";
+            String next = " AND " + key + " " + beyond + "= ? AND (" + key + " " + beyond + " ? OR UID > ?)";
+            String select = "SELECT UID, ITEM_NO, BRAND FROM TABLE_PRODUCT WHERE " + key + " > 0";
+
+            checkPlan(select + order, new String[0], failures);
+            checkPlan(select + next + order, new String[]{"20", "20", "7"}, failures);
+            checkPlan(select + " AND SUPPLIER = ?" + order, new String[]{"Bilka Hillerød"}, failures);
+            checkPlan(select + " AND SUPPLIER = ?" + next + order,
+                    new String[]{"Bilka Hillerød", "20", "20", "7"}, failures);
+        }
+
+        if (failures.length() > 0) {
+            fail("Ranking queries not served by an index:\n" + failures);
+        }
+    }
+
+    private void checkPlan(String sql, String[] args, StringBuilder failures) {
+        Cursor cursor = db.rawQuery("EXPLAIN QUERY PLAN " + sql, args);
+        int detailIndex = cursor.getColumnIndex("detail");
+
+        while (cursor.moveToNext()) {
+            String detail = cursor.getString(detailIndex);
+
+            if ((detail.startsWith("SCAN") && !detail.contains("INDEX")) || detail.contains("TEMP B-TREE")) {
+                failures.append(sql).append(" -> ").append(detail).append('\n');
+            }
+        }
+        cursor.close();
+    }
+}
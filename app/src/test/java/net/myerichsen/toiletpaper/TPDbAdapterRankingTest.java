@@ -0,0 +1,206 @@
+/*
+ * Copyright (c) 2020. Michael Erichsen.
+ *
+ * The program is distributed under the terms of the GNU Affero General Public License v3.0
+ */
+
+package net.myerichsen.toiletpaper;
+
+import android.content.Context;
+import android.database.Cursor;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import net.myerichsen.toiletpaper.ui.compare.CompareFragment;
+import net.myerichsen.toiletpaper.ui.products.ProductModel;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Keyset pagination of the compare rankings
+ */
+@RunWith(RobolectricTestRunner.class)
+public class TPDbAdapterRankingTest {
+    private static final int ROWS = 1000;
+    private TPDbAdapter adapter;
+    private TPDbAdapter.TpDbHelper helper;
+
+    /**
+     * Few distinct values, so pages end in the middle of equal values. Every seventh
+     * product has no paper weight.
+     */
+    private static String rankingCsv() {
+        StringBuilder sb = new StringBuilder("itemNo,brand,packageRolls,packagePrice,packageWeight,paperWeight,supplier\n");
+
+        for (int i = 0; i < ROWS; i++) {
+            sb.append(i).append(",Brand ").append(i % 50).append(",8,")
+                    .append(10 + i % 37).append(",1.").append(i % 5).append(',')
+                    .append(i % 7 == 0 ? "" : (i % 7) + ".1").append(",Supplier ").append(i % 2).append('\n');
+        }
+        return sb.toString();
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        Context context = ApplicationProvider.getApplicationContext();
+        helper = TPDbAdapter.TpDbHelper.getInstance(context);
+        helper.loadProducts(helper.getWritableDatabase(), new StringReader(rankingCsv()), null, false);
+        adapter = new TPDbAdapter(context);
+    }
+
+    @After
+    public void tearDown() {
+        TPDbAdapter.TpDbHelper.resetInstance();
+    }
+
+    /**
+     * Read a whole ranking page by page
+     *
+     * @return Number of products ranked
+     */
+    private int readRanking(String sortKey, String sortFilter, boolean descending) {
+        // Not a divisor of the products per value
+        int pageSize = 37;
+        Set<Integer> seen = new HashSet<>();
+        ProductModel previous = null;
+        List<ProductModel> page = adapter.getRankingPage(sortKey, sortFilter, null, pageSize);
+
+        while (page.size() > 0) {
+            for (ProductModel pm : page) {
+                assertTrue("Duplicate UID " + pm.getUid(), seen.add(pm.getUid()));
+
+                if (!sortFilter.equals(CompareFragment.ALL)) {
+                    assertEquals(sortFilter, pm.getSupplier());
+                }
+
+                if (previous != null) {
+                    double order = sortKey.equals("PAPER_WEIGHT") ?
+                            Float.compare(previous.getPaperWeight(), pm.getPaperWeight()) :
+                            Long.compare(previous.getKiloPrice(), pm.getKiloPrice());
+                    order = descending ? -order : order;
+                    assertTrue("Out of order at UID " + pm.getUid(),
+                            (order < 0) || ((order == 0) && (previous.getUid() < pm.getUid())));
+                }
+                previous = pm;
+            }
+
+            if (page.size() < pageSize) {
+                break;
+            }
+            page = adapter.getRankingPage(sortKey, sortFilter, previous, pageSize);
+        }
+
+        return seen.size();
+    }
+
+    @Test
+    public void kiloPriceRanking_coversEveryProductOnceCheapestFirst() {
+        assertEquals(ROWS, readRanking("KILO_PRICE", CompareFragment.ALL, false));
+        assertEquals(ROWS / 2, readRanking("KILO_PRICE", "Supplier 1", false));
+    }
+
+    @Test
+    public void paperWeightRanking_leavesOutUnknownHeaviestFirst() {
+        int unknown = (ROWS + 6) / 7;
+
+        assertEquals(ROWS - unknown, readRanking("PAPER_WEIGHT", CompareFragment.ALL, true));
+    }
+
+    /**
+     * @return UIDs of a products list
+     */
+    private static List<Integer> uids(List<ProductModel> lpm) {
+        List<Integer> uids = new ArrayList<>();
+
+        for (ProductModel pm : lpm) {
+            uids.add(pm.getUid());
+        }
+        return uids;
+    }
+
+    /**
+     * @return UIDs of the best products by a full sort of the table
+     */
+    private List<Integer> sortedUids(String sortKey, String sortFilter, int count) {
+        List<Integer> uids = new ArrayList<>();
+        Cursor cursor = helper.getReadableDatabase().rawQuery("SELECT UID FROM TABLE_PRODUCT WHERE " +
+                sortKey + " > 0 AND SUPPLIER = ? ORDER BY " + sortKey + ", UID LIMIT " + count,
+                new String[]{sortFilter});
+
+        while (cursor.moveToNext()) {
+            uids.add(cursor.getInt(0));
+        }
+        cursor.close();
+        return uids;
+    }
+
+    @Test
+    public void topProducts_rankedMetricIsTheFirstRankingPage() {
+        assertEquals(uids(adapter.getRankingPage("KILO_PRICE", CompareFragment.ALL, null, 25)),
+                uids(adapter.getTopProducts("KILO_PRICE", CompareFragment.ALL, 25)));
+    }
+
+    @Test
+    public void topProducts_otherMetricMatchesFullSort() {
+        // Roll price has no ranking index, so the bounded heap is used
+        List<ProductModel> top = adapter.getTopProducts("ROLL_PRICE", "Supplier 0", 25);
+
+        assertEquals(25, top.size());
+        assertEquals(sortedUids("ROLL_PRICE", "Supplier 0", 25), uids(top));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void topProducts_rejectsUnknownMetric() {
+        adapter.getTopProducts("1; DROP TABLE TABLE_PRODUCT", CompareFragment.ALL, 25);
+    }
+
+    private static ProductModel observation(String itemNo, long packagePrice, String timestamp) {
+        ProductModel pm = new ProductModel();
+        pm.setItemNo(itemNo);
+        pm.setBrand("Repeated");
+        pm.setPackageRolls(8);
+        pm.setPackageWeight(1.0f);
+        pm.setPackagePrice(packagePrice);
+        pm.setSupplier("Supplier 9");
+        pm.setTimestamp(timestamp);
+        return pm;
+    }
+
+    @Test
+    public void ranking_holdsTheLatestPriceOfEachProductOnce() {
+        // Saved three times, the oldest last
+        adapter.insertData(observation("R1", 3000, "2020-01-02 10:00:00"));
+        adapter.insertData(observation("R1", 2000, "2020-01-03 10:00:00"));
+        adapter.insertData(observation("R1", 1000, "2020-01-01 10:00:00"));
+        adapter.insertData(observation("R2", 2500, "2020-01-01 10:00:00"));
+        // Two products sharing a placeholder item number
+        ProductModel first = observation("?", 1500, "2020-01-01 10:00:00");
+        first.setBrand("Coop");
+        adapter.insertData(first);
+        ProductModel second = observation("?", 2200, "2020-01-01 10:00:00");
+        second.setBrand("Irma");
+        adapter.insertData(second);
+
+        List<ProductModel> top = adapter.getTopProducts("KILO_PRICE", "Supplier 9", 10);
+
+        assertEquals(4, top.size());
+        assertEquals("Coop", top.get(0).getBrand());
+        assertEquals("R1", top.get(1).getItemNo());
+        assertEquals(200000, top.get(1).getKiloPrice());
+        assertEquals("Irma", top.get(2).getBrand());
+        assertEquals("R2", top.get(3).getItemNo());
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2020. Michael Erichsen.
+ *
+ * The program is distributed under the terms of the GNU Affero General Public License v3.0
+ */
+
+package net.myerichsen.toiletpaper;
+
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.StringReader;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Local test of the batch recompute of the derived fields
+ */
+@RunWith(RobolectricTestRunner.class)
+public class TPDbAdapterRecomputeTest {
+    private static final String MISSING = "SELECT COUNT(*) FROM TABLE_PRODUCT " +
+            "WHERE ROLL_LENGTH = 0 OR METER_PRICE = 0 OR SHEET_PRICE = 0";
+    private TPDbAdapter.TpDbHelper helper;
+    private SQLiteDatabase db;
+
+    @Before
+    public void setUp() throws Exception {
+        helper = new TPDbAdapter.TpDbHelper(ApplicationProvider.getApplicationContext());
+        db = helper.getWritableDatabase();
+        helper.loadProducts(db, new StringReader(TPDbAdapterLoadTest.productCsv(1000)), null, false);
+
+        // As saved by older versions, which left the derived fields to the form
+        db.execSQL("UPDATE TABLE_PRODUCT SET ROLL_LENGTH = 0, ROLL_LENGTH_C = 0, " +
+                "METER_PRICE = 0, METER_PRICE_C = 0, SHEET_PRICE = 0, SHEET_PRICE_C = 0");
+        helper.setBatchSize(100);
+    }
+
+    @After
+    public void tearDown() {
+        helper.close();
+    }
+
+    private void queueJob(long lastUid) {
+        db.execSQL("INSERT OR REPLACE INTO TABLE_JOB (JOB, LAST_UID) VALUES (?, ?)",
+                new Object[]{TPDbAdapter.TpDbHelper.RECOMPUTE_JOB, lastUid});
+    }
+
+    @Test
+    public void recomputeDerivedFields_doesNothingUnlessQueued() {
+        assertEquals(0, helper.recomputeDerivedFields(db));
+        assertEquals(1000, DatabaseUtils.longForQuery(db, MISSING, null));
+    }
+
+    @Test
+    public void recomputeDerivedFields_fillsAllRowsAndEndsJob() {
+        queueJob(0);
+
+        assertEquals(1000, helper.recomputeDerivedFields(db));
+
+        assertEquals(0, DatabaseUtils.longForQuery(db, MISSING, null));
+        assertEquals(1000, DatabaseUtils.longForQuery(db,
+                "SELECT COUNT(*) FROM TABLE_PRODUCT WHERE SHEET_PRICE = 150 AND SHEET_PRICE_C = 1", null));
+        assertEquals(0, DatabaseUtils.queryNumEntries(db, "TABLE_JOB"));
+    }
+
+    @Test
+    public void recomputeDerivedFields_resumesAfterLastCommittedBatch() {
+        // A run stopped after four batches
+        long lastUid = DatabaseUtils.longForQuery(db,
+                "SELECT UID FROM TABLE_PRODUCT ORDER BY UID LIMIT 1 OFFSET 399", null);
+        queueJob(lastUid);
+
+        assertEquals(600, helper.recomputeDerivedFields(db));
+
+        assertEquals(400, DatabaseUtils.longForQuery(db, MISSING, null));
+        assertEquals(0, DatabaseUtils.longForQuery(db, MISSING + " AND UID > " + lastUid, null));
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2020. Michael Erichsen.
+ *
+ * The program is distributed under the terms of the GNU Affero General Public License v3.0
+ */
+
+package net.myerichsen.toiletpaper;
+
+import android.content.Context;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import net.myerichsen.toiletpaper.ui.products.ProductModel;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.StringReader;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Local test of the lookup of scanned item numbers
+ */
+@RunWith(RobolectricTestRunner.class)
+public class TPDbAdapterScanTest {
+    private static final int ROWS = 1000;
+    private TPDbAdapter adapter;
+
+    @Before
+    public void setUp() {
+        adapter = new TPDbAdapter(ApplicationProvider.<Context>getApplicationContext());
+    }
+
+    @After
+    public void tearDown() {
+        TPDbAdapter.TpDbHelper.resetInstance();
+    }
+
+    private static ProductModel observation(String supplier, long packagePrice, String timestamp) {
+        ProductModel pm = new ProductModel();
+        pm.setItemNo("5701234567890");
+        pm.setBrand("Lambi");
+        pm.setSupplier(supplier);
+        pm.setPackagePrice(packagePrice);
+        pm.setTimestamp(timestamp);
+        return pm;
+    }
+
+    @Test
+    public void latestProduct_isTheNewestObservationOfAnySupplier() {
+        adapter.insertData(observation("Netto", 2995, "2020-01-02 10:00:00"));
+        adapter.insertData(observation("Føtex", 3295, "2020-01-03 10:00:00"));
+        adapter.insertData(observation("Bilka", 2795, "2020-01-01 10:00:00"));
+
+        ProductModel pm = adapter.getLatestProduct("5701234567890");
+
+        assertEquals("Føtex", pm.getSupplier());
+        assertEquals(3295, pm.getPackagePrice());
+        assertNull(adapter.getLatestProduct("4000000000000"));
+    }
+
+    @Test
+    public void latestProduct_isCachedUntilTheItemIsSaved() {
+        adapter.insertData(observation("Netto", 2995, "2020-01-02 10:00:00"));
+        ProductModel first = adapter.getLatestProduct("5701234567890");
+
+        assertSame(first, adapter.getLatestProduct("5701234567890"));
+
+        adapter.insertData(observation("Netto", 2495, "2020-01-04 10:00:00"));
+        assertEquals(2495, adapter.getLatestProduct("5701234567890").getPackagePrice());
+    }
+
+    @Test
+    public void latestProduct_followsALoad() throws Exception {
+        adapter.insertData(observation("Netto", 2995, "2020-01-02 10:00:00"));
+        ProductModel first = adapter.getLatestProduct("5701234567890");
+        StringBuilder sb = new StringBuilder("itemNo,brand,packagePrice,supplier,timestamp\n");
+
+        for (int i = 0; i < ROWS; i++) {
+            sb.append(5700000000000L + i).append(",Brand ").append(i % 50).append(",29.95,Supplier ")
+                    .append(i % 3).append(",2020-01-03 10:00:00\n");
+        }
+        sb.append("5701234567890,Lambi,24.95,Netto,2020-01-03 10:00:00\n");
+        TPDbAdapter.TpDbHelper helper = TPDbAdapter.TpDbHelper
+                .getInstance(ApplicationProvider.<Context>getApplicationContext());
+        helper.loadProducts(helper.getWritableDatabase(), new StringReader(sb.toString()), null, false);
+
+        assertEquals(2995, first.getPackagePrice());
+        assertEquals(2495, adapter.getLatestProduct("5701234567890").getPackagePrice());
+        assertEquals("Brand 45", adapter.getLatestProduct("5700000000345").getBrand());
+    }
+}
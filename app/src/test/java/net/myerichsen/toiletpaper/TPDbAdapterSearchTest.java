@@ -0,0 +1,141 @@
+/*
+ * Copyright (c) 2020. Michael Erichsen.
+ *
+ * The program is distributed under the terms of the GNU Affero General Public License v3.0
+ */
+
+package net.myerichsen.toiletpaper;
+
+import android.content.Context;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import net.myerichsen.toiletpaper.ui.products.ProductModel;
+import net.myerichsen.toiletpaper.ui.products.ProductSummary;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Local test of the full text search of products
+ */
+@RunWith(RobolectricTestRunner.class)
+public class TPDbAdapterSearchTest {
+    private static final int ROWS = 10000;
+    private TPDbAdapter adapter;
+
+    @Before
+    public void setUp() {
+        adapter = new TPDbAdapter(ApplicationProvider.<Context>getApplicationContext());
+    }
+
+    @After
+    public void tearDown() {
+        TPDbAdapter.TpDbHelper.resetInstance();
+    }
+
+    private static ProductModel product(String itemNo, String brand, String supplier) {
+        ProductModel pm = new ProductModel();
+        pm.setItemNo(itemNo);
+        pm.setBrand(brand);
+        pm.setSupplier(supplier);
+        pm.setPackagePrice(2995);
+        return pm;
+    }
+
+    @Test
+    public void search_matchesWordPrefixesIgnoringCaseAndDiacritics() {
+        adapter.insertData(product("5701234", "Lambi Classic", "Netto"));
+        adapter.insertData(product("5709999", "Budget", "Føtex"));
+        adapter.insertData(product("123", "Crème Soft", "Netto"));
+
+        assertEquals(1, adapter.searchProductSummaries("BRAND", "lam", null).size());
+        assertEquals(1, adapter.searchProductSummaries("BRAND", "CLASS", null).size());
+        assertEquals(1, adapter.searchProductSummaries("BRAND", "creme so", null).size());
+        assertEquals(2, adapter.searchProductSummaries("ITEM_NO", "570", null).size());
+        assertEquals(0, adapter.searchProductSummaries("ITEM_NO", "lam", null).size());
+        assertEquals(2, adapter.searchProductSummaries(null, "netto", null).size());
+        // Syntax characters of the query language are only separators
+        assertEquals(1, adapter.searchProductSummaries("BRAND", "\"lam\" (cl*", null).size());
+        assertEquals(0, adapter.searchProductSummaries("BRAND", "*", null).size());
+    }
+
+    @Test
+    public void search_findsEachProductOnceAndFollowsChanges() {
+        adapter.insertData(product("1", "Lambi", "Netto"));
+        ProductModel pm = product("1", "Lambi", "Netto");
+        pm.setPackagePrice(3495);
+        adapter.insertData(pm);
+
+        List<ProductSummary> lps = adapter.searchProductSummaries("BRAND", "lambi", null);
+        assertEquals(1, lps.size());
+
+        // A new brand replaces the old one in the index
+        pm = product("1", "Lotus", "Netto");
+        pm.setPackagePrice(3495);
+        pm.setTimestamp("2099-01-01 00:00:00");
+        adapter.insertData(pm);
+        assertEquals(0, adapter.searchProductSummaries("BRAND", "lambi", null).size());
+        assertEquals(1, adapter.searchProductSummaries("BRAND", "lotus", null).size());
+    }
+
+    @Test
+    public void suggestions_areDistinctValuesInOrder() {
+        adapter.insertData(product("1", "Lotus", "Netto"));
+        adapter.insertData(product("2", "Lambi", "Netto"));
+        adapter.insertData(product("3", "Lambi", "Føtex"));
+        adapter.insertData(product("4", "Budget", "Netto"));
+
+        assertEquals(Arrays.asList("Lambi", "Lotus"), adapter.getSuggestions("BRAND", "l", 10));
+        assertEquals(Collections.singletonList("Lambi"), adapter.getSuggestions("BRAND", "l", 1));
+        assertEquals(Collections.<String>emptyList(), adapter.getSuggestions("BRAND", " ", 10));
+    }
+
+    @Test
+    public void suggestions_followSavesAndDeletesOnceLoaded() throws Exception {
+        adapter.insertData(product("1", "Lotus", "Netto"));
+        assertEquals(Collections.singletonList("Lotus"), adapter.getSuggestions("BRAND", "lo", 10));
+
+        adapter.insertData(product("2", "Lomax", "Netto"));
+        assertEquals(Arrays.asList("Lomax", "Lotus"), adapter.getSuggestions("BRAND", "lo", 10));
+        assertEquals(Collections.singletonList("2"), adapter.getSuggestions("ITEM_NO", "2", 10));
+
+        adapter.deleteProduct(adapter.getProductModels("ITEM_NO=?", "2").get(0).getUid());
+        assertEquals(Collections.singletonList("Lotus"), adapter.getSuggestions("BRAND", "lo", 10));
+        assertEquals(Collections.<String>emptyList(), adapter.getSuggestions("ITEM_NO", "2", 10));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void search_rejectsUnknownColumn() {
+        adapter.searchProductSummaries("UID", "1", null);
+    }
+
+    @Test
+    public void search_findsEveryHitInALoadedTable() throws Exception {
+        StringBuilder sb = new StringBuilder("itemNo,brand,packagePrice,supplier,comments\n");
+
+        for (int i = 0; i < ROWS; i++) {
+            sb.append(i).append(",Brand").append(i % 500).append(" Soft,29.95,Supplier ")
+                    .append(i % 20).append(",Row ").append(i).append('\n');
+        }
+        TPDbAdapter.TpDbHelper helper = TPDbAdapter.TpDbHelper
+                .getInstance(ApplicationProvider.<Context>getApplicationContext());
+        helper.loadProducts(helper.getWritableDatabase(), new StringReader(sb.toString()), null, false);
+
+        // Brand123 only, then Brand12 and Brand120 to Brand129
+        assertEquals(ROWS / 500, adapter.searchProductSummaries("BRAND", "brand123", null).size());
+        assertEquals(11 * ROWS / 500, adapter.searchProductSummaries("BRAND", "brand12", null).size());
+        assertEquals(ROWS, adapter.searchProductSummaries("BRAND", "soft", null).size());
+        assertEquals(1, adapter.searchProductSummaries("COMMENTS", "row 4321", null).size());
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2020. Michael Erichsen.
+ *
+ * The program is distributed under the terms of the GNU Affero General Public License v3.0
+ */
+
+package net.myerichsen.toiletpaper;
+
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import net.myerichsen.toiletpaper.ui.products.ProductModel;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Micro benchmark of product inserts through ContentValues, as insertData did before,
+ * against the cached statement bound positionally. Each size is measured after a warm up
+ * and inside one transaction per path, so only the cost per row differs.
+ * <p>
+ * Runs on demand with gradlew testDebugUnitTest -Pbenchmark. Nothing is asserted, the
+ * timings are printed.
+ * </p>
+ */
+@RunWith(RobolectricTestRunner.class)
+public class TPDbAdapterStatementBenchmarkTest {
+    private static final int[] SIZES = {1000, 10000, 100000};
+    private static final int WARM_UP = 1000;
+    private TPDbAdapter.TpDbHelper helper;
+    private SQLiteDatabase db;
+    private List<ProductModel> products;
+
+    @Before
+    public void setUp() {
+        assumeTrue(Boolean.getBoolean("benchmark"));
+        helper = new TPDbAdapter.TpDbHelper(ApplicationProvider.getApplicationContext());
+        db = helper.getWritableDatabase();
+        products = new ArrayList<>(SIZES[SIZES.length - 1]);
+
+        for (int i = 0; i < SIZES[SIZES.length - 1]; i++) {
+            ProductModel pm = new ProductModel("" + i, "Lambi", 2, 8, 250, 97, 125, 0, 31.25f, 1,
+                    2995, 37438, 1, 1.1f, 0, 18.5f, 0, 137.5f, 1, 272273, 1, 1198, 1, 150, 1,
+                    "Netto", "");
+            products.add(pm);
+        }
+    }
+
+    @After
+    public void tearDown() {
+        if (helper != null) {
+            helper.close();
+        }
+    }
+
+    private void insertWithContentValues(int rows) {
+        for (int i = 0; i < rows; i++) {
+            TPDbAdapterStatementTest.insertWithContentValues(db, products.get(i));
+        }
+    }
+
+    private void insertWithStatement(int rows) {
+        synchronized (helper.writeLock) {
+            SQLiteStatement statement = helper.statement(db, TPDbAdapter.TpDbHelper.INSERT_PRODUCT);
+
+            for (int i = 0; i < rows; i++) {
+                TPDbAdapter.bindData(statement, products.get(i), TPDbAdapterStatementTest.TIMESTAMP);
+                statement.executeInsert();
+            }
+        }
+    }
+
+    /**
+     * @return Nanoseconds to insert the rows into an empty table
+     */
+    private long time(int rows, boolean compiled) {
+        long start = 0;
+
+        for (int run = 0; run < 2; run++) {
+            int n = run == 0 ? WARM_UP : rows;
+            db.execSQL("DELETE FROM TABLE_PRODUCT");
+            db.beginTransaction();
+            try {
+                start = System.nanoTime();
+
+                if (compiled) {
+                    insertWithStatement(n);
+                } else {
+                    insertWithContentValues(n);
+                }
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+            }
+        }
+        return System.nanoTime() - start;
+    }
+
+    @Test
+    public void statement_againstContentValues() {
+        StringBuilder results = new StringBuilder("Rows, ContentValues ns/row, statement ns/row\n");
+
+        for (int rows : SIZES) {
+            long contentValues = time(rows, false) / rows;
+            long statement = time(rows, true) / rows;
+            results.append(String.format(Locale.ROOT, "%d, %d, %d%n", rows, contentValues, statement));
+        }
+
+        System.out.println(results);
+    }
+}
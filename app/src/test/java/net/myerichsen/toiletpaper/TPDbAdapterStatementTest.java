@@ -0,0 +1,138 @@
+/*
+ * Copyright (c) 2020. Michael Erichsen.
+ *
+ * The program is distributed under the terms of the GNU Affero General Public License v3.0
+ */
+
+package net.myerichsen.toiletpaper;
+
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import net.myerichsen.toiletpaper.ui.products.ProductModel;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Product inserts through the cached statement bound positionally write the same row as
+ * inserts through ContentValues, as insertData did before
+ */
+@RunWith(RobolectricTestRunner.class)
+public class TPDbAdapterStatementTest {
+    static final String TIMESTAMP = "2020-06-01 10:00:00";
+    private TPDbAdapter.TpDbHelper helper;
+    private SQLiteDatabase db;
+    private List<ProductModel> products;
+
+    @Before
+    public void setUp() {
+        helper = new TPDbAdapter.TpDbHelper(ApplicationProvider.getApplicationContext());
+        db = helper.getWritableDatabase();
+        products = new ArrayList<>(2);
+
+        for (int i = 0; i < 2; i++) {
+            ProductModel pm = new ProductModel("" + i, "Lambi", 2, 8, 250, 97, 125, 0, 31.25f, 1,
+                    2995, 37438, 1, 1.1f, 0, 18.5f, 0, 137.5f, 1, 272273, 1, 1198, 1, 150, 1,
+                    "Netto", "");
+            products.add(pm);
+        }
+    }
+
+    @After
+    public void tearDown() {
+        helper.close();
+    }
+
+    /**
+     * Insertion as it was done before, with a ContentValues map per row
+     */
+    static void insertWithContentValues(SQLiteDatabase db, ProductModel pm) {
+        ContentValues contentValues = new ContentValues();
+        contentValues.put("LAYERS", pm.getLayers());
+        contentValues.put("PACKAGE_ROLLS", pm.getPackageRolls());
+        contentValues.put("ROLL_SHEETS", pm.getRollSheets());
+        contentValues.put("SHEET_WIDTH", pm.getSheetWidth());
+        contentValues.put("SHEET_LENGTH", pm.getSheetLength());
+        contentValues.put("SHEET_LENGTH_C", pm.getSheetLength_c());
+        contentValues.put("ROLL_LENGTH", pm.getRollLength());
+        contentValues.put("ROLL_LENGTH_C", pm.getRollLength_c());
+        contentValues.put("PACKAGE_PRICE", pm.getPackagePrice());
+        contentValues.put("ROLL_PRICE", pm.getRollPrice());
+        contentValues.put("ROLL_PRICE_C", pm.getRollPrice_c());
+        contentValues.put("PAPER_WEIGHT", pm.getPaperWeight());
+        contentValues.put("PAPER_WEIGHT_C", pm.getPaperWeight_c());
+        contentValues.put("PACKAGE_WEIGHT", pm.getPackageWeight());
+        contentValues.put("PACKAGE_WEIGHT_C", pm.getPackageWeight_c());
+        contentValues.put("ROLL_WEIGHT", pm.getRollWeight());
+        contentValues.put("ROLL_WEIGHT_C", pm.getRollWeight_c());
+        contentValues.put("KILO_PRICE", pm.getKiloPrice());
+        contentValues.put("KILO_PRICE_C", pm.getKiloPrice_c());
+        contentValues.put("METER_PRICE", pm.getMeterPrice());
+        contentValues.put("METER_PRICE_C", pm.getMeterPrice_c());
+        contentValues.put("SHEET_PRICE", pm.getSheetPrice());
+        contentValues.put("SHEET_PRICE_C", pm.getSheetPrice_c());
+        contentValues.put("SUPPLIER", pm.getSupplier());
+        contentValues.put("COMMENTS", pm.getComments());
+        contentValues.put("ITEM_NO", pm.getItemNo());
+        contentValues.put("BRAND", pm.getBrand());
+        contentValues.put("TIME_STAMP", TIMESTAMP);
+        db.insert("TABLE_PRODUCT", null, contentValues);
+    }
+
+    @Test
+    public void statement_writesSameRowAsContentValues() {
+        insertWithContentValues(db, products.get(0));
+
+        synchronized (helper.writeLock) {
+            SQLiteStatement statement = helper.statement(db, TPDbAdapter.TpDbHelper.INSERT_PRODUCT);
+            TPDbAdapter.bindData(statement, products.get(1), TIMESTAMP);
+            statement.executeInsert();
+        }
+
+        Cursor cursor = db.rawQuery("SELECT * FROM TABLE_PRODUCT ORDER BY ITEM_NO", null);
+        assertEquals(2, cursor.getCount());
+        cursor.moveToFirst();
+        String[] expected = new String[cursor.getColumnCount()];
+
+        for (int i = 0; i < expected.length; i++) {
+            expected[i] = cursor.getString(i);
+        }
+        cursor.moveToNext();
+
+        for (int i = 0; i < expected.length; i++) {
+            String column = cursor.getColumnName(i);
+
+            if (!column.equals("UID") && !column.equals("ITEM_NO")) {
+                assertEquals(column, expected[i], cursor.getString(i));
+            }
+        }
+        cursor.close();
+    }
+
+    @Test
+    public void statement_isCompiledOncePerDatabase() {
+        synchronized (helper.writeLock) {
+            SQLiteStatement statement = helper.statement(db, TPDbAdapter.TpDbHelper.INSERT_PRODUCT);
+            assertSame(statement, helper.statement(db, TPDbAdapter.TpDbHelper.INSERT_PRODUCT));
+
+            helper.close();
+            db = helper.getWritableDatabase();
+            assertNotSame(statement, helper.statement(db, TPDbAdapter.TpDbHelper.INSERT_PRODUCT));
+        }
+    }
+}
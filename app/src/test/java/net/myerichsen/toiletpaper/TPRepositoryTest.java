@@ -0,0 +1,193 @@
+/*
+ * Copyright (c) 2020. Michael Erichsen.
+ *
+ * The program is distributed under the terms of the GNU Affero General Public License v3.0
+ */
+
+package net.myerichsen.toiletpaper;
+
+import android.os.Looper;
+
+import androidx.annotation.NonNull;
+import androidx.lifecycle.Lifecycle;
+import androidx.lifecycle.LifecycleOwner;
+import androidx.lifecycle.LifecycleRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.robolectric.Shadows.shadowOf;
+
+/**
+ * Threading and lifecycle behaviour of the repository. The calls do not touch the database.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class TPRepositoryTest {
+    private ExecutorService executor;
+    private TPRepository repository;
+    private TestOwner owner;
+
+    @Before
+    public void setUp() {
+        executor = Executors.newSingleThreadExecutor();
+        repository = new TPRepository(null, executor);
+        owner = new TestOwner();
+        owner.registry.handleLifecycleEvent(Lifecycle.Event.ON_RESUME);
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void query_runsInBackgroundAndDeliversOnMainThread() throws Exception {
+        final AtomicReference<Thread> callThread = new AtomicReference<>();
+        Recorder<String> recorder = new Recorder<>();
+
+        Future<String> future = repository.query(owner, new TPRepository.DbCall<String>() {
+            @Override
+            public String call(TPDbAdapter adapter) {
+                callThread.set(Thread.currentThread());
+                return "result";
+            }
+        }, recorder);
+        future.get(5, TimeUnit.SECONDS);
+        idleUntilDelivered(recorder);
+
+        assertTrue(callThread.get() != Looper.getMainLooper().getThread());
+        assertEquals("result", recorder.result.get());
+        assertSame(Looper.getMainLooper().getThread(), recorder.thread.get());
+    }
+
+    @Test
+    public void query_reportsCallException() throws Exception {
+        final Exception failure = new IllegalStateException("fejl");
+        Recorder<String> recorder = new Recorder<>();
+
+        repository.query(owner, new TPRepository.DbCall<String>() {
+            @Override
+            public String call(TPDbAdapter adapter) throws Exception {
+                throw failure;
+            }
+        }, recorder);
+        idleUntilDelivered(recorder);
+
+        assertSame(failure, recorder.error.get());
+    }
+
+    @Test
+    public void query_isCancelledWhenOwnerIsDestroyed() throws Exception {
+        CountDownLatch release = blockExecutor();
+        Recorder<String> recorder = new Recorder<>();
+
+        Future<String> future = repository.query(owner, constant("result"), recorder);
+        owner.registry.handleLifecycleEvent(Lifecycle.Event.ON_DESTROY);
+        release.countDown();
+        drain();
+
+        assertTrue(future.isCancelled());
+        assertNull(recorder.result.get());
+    }
+
+    @Test
+    public void update_completesButIsNotDeliveredWhenOwnerIsDestroyed() throws Exception {
+        CountDownLatch release = blockExecutor();
+        Recorder<String> recorder = new Recorder<>();
+
+        Future<String> future = repository.update(owner, constant("result"), recorder);
+        owner.registry.handleLifecycleEvent(Lifecycle.Event.ON_DESTROY);
+        release.countDown();
+
+        assertEquals("result", future.get(5, TimeUnit.SECONDS));
+        drain();
+        assertNull(recorder.result.get());
+    }
+
+    private static TPRepository.DbCall<String> constant(final String value) {
+        return new TPRepository.DbCall<String>() {
+            @Override
+            public String call(TPDbAdapter adapter) {
+                return value;
+            }
+        };
+    }
+
+    /**
+     * Occupy the single worker, so the next call stays queued until the latch is released
+     */
+    private CountDownLatch blockExecutor() {
+        final CountDownLatch release = new CountDownLatch(1);
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        return release;
+    }
+
+    private void drain() throws Exception {
+        executor.submit(new Runnable() {
+            @Override
+            public void run() {
+            }
+        }).get(5, TimeUnit.SECONDS);
+        shadowOf(Looper.getMainLooper()).idle();
+    }
+
+    private static void idleUntilDelivered(Recorder<?> recorder) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+
+        while ((recorder.thread.get() == null) && (System.currentTimeMillis() < deadline)) {
+            shadowOf(Looper.getMainLooper()).idle();
+            Thread.sleep(5);
+        }
+    }
+
+    private static class Recorder<T> implements TPRepository.DbCallback<T> {
+        final AtomicReference<T> result = new AtomicReference<>();
+        final AtomicReference<Exception> error = new AtomicReference<>();
+        final AtomicReference<Thread> thread = new AtomicReference<>();
+
+        @Override
+        public void onResult(T value) {
+            result.set(value);
+            thread.set(Thread.currentThread());
+        }
+
+        @Override
+        public void onError(Exception e) {
+            error.set(e);
+            thread.set(Thread.currentThread());
+        }
+    }
+
+    private static class TestOwner implements LifecycleOwner {
+        final LifecycleRegistry registry = new LifecycleRegistry(this);
+
+        @NonNull
+        @Override
+        public Lifecycle getLifecycle() {
+            return registry;
+        }
+    }
+}
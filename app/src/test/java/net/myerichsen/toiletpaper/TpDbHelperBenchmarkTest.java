@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2020. Michael Erichsen.
+ *
+ * The program is distributed under the terms of the GNU Affero General Public License v3.0
+ */
+
+package net.myerichsen.toiletpaper;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.StringReader;
+
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Compare opening the database once per screen with the shared helper.
+ * <p>
+ * Runs on demand with gradlew testDebugUnitTest -Pbenchmark. Nothing is asserted, the
+ * timings are printed.
+ * </p>
+ */
+@RunWith(RobolectricTestRunner.class)
+public class TpDbHelperBenchmarkTest {
+    private static final int SCREENS = 200;
+    private Context context;
+    private TPDbAdapter.TpDbHelper shared;
+
+    @Before
+    public void setUp() throws Exception {
+        assumeTrue(Boolean.getBoolean("benchmark"));
+        context = ApplicationProvider.getApplicationContext();
+        shared = TPDbAdapter.TpDbHelper.getInstance(context);
+        SQLiteDatabase db = shared.getWritableDatabase();
+        shared.loadProducts(db, new StringReader(TPDbAdapterLoadTest.productCsv(500)), null, false);
+    }
+
+    @After
+    public void tearDown() {
+        TPDbAdapter.TpDbHelper.resetInstance();
+    }
+
+    @Test
+    public void sharedHelper_againstOpenPerScreen() {
+        long start = System.nanoTime();
+        for (int i = 0; i < SCREENS; i++) {
+            TPDbAdapter.TpDbHelper helper = new TPDbAdapter.TpDbHelper(context);
+            query(helper.getReadableDatabase(), i);
+            helper.close();
+        }
+        long perScreen = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int i = 0; i < SCREENS; i++) {
+            query(shared.getReadableDatabase(), i);
+        }
+        long sharedTime = System.nanoTime() - start;
+
+        System.out.println("Open per screen: " + perScreen / 1000000 + " ms, shared: " +
+                sharedTime / 1000000 + " ms for " + SCREENS + " screens");
+    }
+
+    private static void query(SQLiteDatabase db, int i) {
+        Cursor cursor = db.rawQuery("SELECT * FROM TABLE_PRODUCT WHERE ITEM_NO = ?",
+                new String[]{String.valueOf(i)});
+        //noinspection StatementWithEmptyBody
+        while (cursor.moveToNext()) {
+        }
+        cursor.close();
+    }
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright (c) 2020. Michael Erichsen.
+ *
+ * The program is distributed under the terms of the GNU Affero General Public License v3.0
+ */
+
+package net.myerichsen.toiletpaper;
+
+import android.content.Context;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * The database helper shared by all screens
+ */
+@RunWith(RobolectricTestRunner.class)
+public class TpDbHelperTest {
+    private Context context;
+    private TPDbAdapter.TpDbHelper shared;
+
+    @Before
+    public void setUp() {
+        context = ApplicationProvider.getApplicationContext();
+        shared = TPDbAdapter.TpDbHelper.getInstance(context);
+    }
+
+    @After
+    public void tearDown() {
+        TPDbAdapter.TpDbHelper.resetInstance();
+    }
+
+    @Test
+    public void getInstance_returnsSameHelper() {
+        assertSame(shared, TPDbAdapter.TpDbHelper.getInstance(context));
+        assertSame(shared.getReadableDatabase(), TPDbAdapter.TpDbHelper.getInstance(context).getReadableDatabase());
+    }
+
+    @Test
+    public void database_usesWriteAheadLog() {
+        SQLiteDatabase db = shared.getWritableDatabase();
+
+        assertTrue(db.isWriteAheadLoggingEnabled());
+        assertEquals("wal", DatabaseUtils.stringForQuery(db, "PRAGMA journal_mode", null));
+    }
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright (c) 2020. Michael Erichsen.
+ *
+ * The program is distributed under the terms of the GNU Affero General Public License v3.0
+ */
+
+package net.myerichsen.toiletpaper.ui.home;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Local test of the confirmation of scanned codes
+ */
+public class BarcodeConfirmerTest {
+
+    @Test
+    public void onFrame_confirmsCodeReadInConsecutiveFrames() {
+        BarcodeConfirmer confirmer = new BarcodeConfirmer(3);
+
+        assertNull(confirmer.onFrame("5701234567890"));
+        assertNull(confirmer.onFrame("5701234567890"));
+        assertFalse(confirmer.isConfirmed());
+        assertEquals("5701234567890", confirmer.onFrame("5701234567890"));
+        assertTrue(confirmer.isConfirmed());
+    }
+
+    @Test
+    public void onFrame_restartsOnMisreadOrEmptyFrame() {
+        BarcodeConfirmer confirmer = new BarcodeConfirmer(3);
+
+        confirmer.onFrame("5701234567890");
+        confirmer.onFrame("5701234567899");
+        confirmer.onFrame(null);
+        assertNull(confirmer.onFrame("5701234567890"));
+        assertNull(confirmer.onFrame("5701234567890"));
+        assertEquals("5701234567890", confirmer.onFrame("5701234567890"));
+    }
+
+    @Test
+    public void onFrame_dropsFramesAfterConfirmation() {
+        BarcodeConfirmer confirmer = new BarcodeConfirmer(1);
+
+        assertEquals("5701234567890", confirmer.onFrame("5701234567890"));
+        assertNull(confirmer.onFrame("5701234567890"));
+        assertNull(confirmer.onFrame("4000000000000"));
+    }
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright (c) 2020. Michael Erichsen.
+ *
+ * The program is distributed under the terms of the GNU Affero General Public License v3.0
+ */
+
+package net.myerichsen.toiletpaper.ui.home;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Local test of the latency histogram
+ */
+public class LatencyHistogramTest {
+
+    @Test
+    public void percentile_isTheBoundOfItsBucket() {
+        LatencyHistogram histogram = new LatencyHistogram();
+
+        for (int i = 0; i < 90; i++) {
+            histogram.record(3000000);
+        }
+        for (int i = 0; i < 9; i++) {
+            histogram.record(40000000);
+        }
+        histogram.record(2000000000);
+
+        assertEquals(100, histogram.count());
+        assertEquals(4, histogram.percentile(0.5));
+        assertEquals(4, histogram.percentile(0.9));
+        assertEquals(64, histogram.percentile(0.99));
+        assertEquals(-1, histogram.percentile(1.0));
+        assertEquals("n=100, p50<=4 ms, p90<=4 ms, p99<=64 ms, max=2000 ms", histogram.toString());
+    }
+
+    @Test
+    public void percentile_ofEmptyHistogramIsUnknown() {
+        assertEquals(-1, new LatencyHistogram().percentile(0.5));
+    }
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright (c) 2020. Michael Erichsen.
+ *
+ * The program is distributed under the terms of the GNU Affero General Public License v3.0
+ */
+
+package net.myerichsen.toiletpaper.ui.home;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Local test of the suggestion cache
+ */
+public class SuggestionCacheTest {
+
+    @Test
+    public void get_servesRepeatedText() {
+        SuggestionCache cache = new SuggestionCache(3, 10);
+        List<String> suggestions = Arrays.asList("Lambi", "Lambi Classic");
+        cache.put("Lam", suggestions);
+
+        assertEquals(suggestions, cache.get("lam"));
+        assertNull(cache.get("lo"));
+    }
+
+    @Test
+    public void get_filtersCompleteResultOfPrefix() {
+        SuggestionCache cache = new SuggestionCache(3, 10);
+        cache.put("l", Arrays.asList("Lambi", "Lambi Classic", "Lotus"));
+        cache.put("c", Arrays.asList("Crème Soft", "Coop"));
+
+        // Three is the limit, so the result for "l" may be cut off
+        assertNull(cache.get("la"));
+        assertEquals(Collections.singletonList("Crème Soft"), cache.get("CREME"));
+        assertEquals(Collections.singletonList("Crème Soft"), cache.get("creme so"));
+        assertEquals(Collections.<String>emptyList(), cache.get("cx"));
+    }
+
+    @Test
+    public void put_evictsLeastRecentlyUsed() {
+        SuggestionCache cache = new SuggestionCache(3, 2);
+        cache.put("a", Collections.<String>emptyList());
+        cache.put("b", Collections.<String>emptyList());
+        cache.get("a");
+        cache.put("c", Collections.<String>emptyList());
+
+        assertNull(cache.get("b"));
+        assertEquals(Collections.<String>emptyList(), cache.get("a"));
+    }
+}